@@ -0,0 +1,273 @@
+package com.github.stupdit1t.jackson.expand.benchmark;
+
+import com.github.stupdit1t.jackson.expand.annotation.Expand;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准测试的数据模型
+ *
+ * @author 625
+ */
+public final class BenchmarkModel {
+
+    /**
+     * 不同用户数量, 全部命中时缓存能放下
+     */
+    static final int USER_COUNT = 1000;
+
+    /**
+     * 不同商品数量
+     */
+    static final int PRODUCT_COUNT = 500;
+
+    private BenchmarkModel() {
+    }
+
+    /**
+     * 测试数据形状
+     */
+    public enum Shape {
+
+        /**
+         * 单个对象, 带5个明细
+         */
+        SINGLE,
+
+        /**
+         * 10000个对象的列表, 不带明细
+         */
+        LIST,
+
+        /**
+         * 3层嵌套的对象, 每层带5个明细
+         */
+        NESTED;
+
+        /**
+         * 创建测试数据
+         *
+         * @return
+         */
+        public Object create() {
+            switch (this) {
+                case SINGLE:
+                    return order(1, 5, 0);
+                case LIST:
+                    List<OrderVo> orders = new ArrayList<>(10_000);
+                    for (int i = 0; i < 10_000; i++) {
+                        orders.add(order(i, 0, 0));
+                    }
+                    return orders;
+                default:
+                    return order(1, 5, 3);
+            }
+        }
+    }
+
+    /**
+     * 创建订单
+     *
+     * @param id    主键
+     * @param items 明细数量
+     * @param depth 上级订单层数
+     * @return
+     */
+    static OrderVo order(long id, int items, int depth) {
+        OrderVo order = new OrderVo();
+        order.setId(id);
+        order.setNo("NO" + id);
+        order.setUserId(id % USER_COUNT);
+        order.setCreater((id + 1) % USER_COUNT);
+        order.setAmount(id * 100 + 99);
+        List<ItemVo> list = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            ItemVo item = new ItemVo();
+            item.setId(id * 100 + i);
+            item.setProductId((id + i) % PRODUCT_COUNT);
+            item.setQuantity(i + 1);
+            list.add(item);
+        }
+        order.setItems(list);
+        if (depth > 0) {
+            order.setParent(order(id + 1, items, depth - 1));
+        }
+        return order;
+    }
+
+    /**
+     * 订单
+     */
+    public static class OrderVo {
+
+        private Long id;
+
+        private String no;
+
+        @Expand(bean = "userService")
+        private Long userId;
+
+        @Expand(bean = "userService", method = "name")
+        private Long creater;
+
+        private Long amount;
+
+        private List<ItemVo> items;
+
+        private OrderVo parent;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getNo() {
+            return no;
+        }
+
+        public void setNo(String no) {
+            this.no = no;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public void setUserId(Long userId) {
+            this.userId = userId;
+        }
+
+        public Long getCreater() {
+            return creater;
+        }
+
+        public void setCreater(Long creater) {
+            this.creater = creater;
+        }
+
+        public Long getAmount() {
+            return amount;
+        }
+
+        public void setAmount(Long amount) {
+            this.amount = amount;
+        }
+
+        public List<ItemVo> getItems() {
+            return items;
+        }
+
+        public void setItems(List<ItemVo> items) {
+            this.items = items;
+        }
+
+        public OrderVo getParent() {
+            return parent;
+        }
+
+        public void setParent(OrderVo parent) {
+            this.parent = parent;
+        }
+    }
+
+    /**
+     * 订单明细
+     */
+    public static class ItemVo {
+
+        private Long id;
+
+        @Expand(bean = "productService")
+        private Long productId;
+
+        private Integer quantity;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public Long getProductId() {
+            return productId;
+        }
+
+        public void setProductId(Long productId) {
+            this.productId = productId;
+        }
+
+        public Integer getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(Integer quantity) {
+            this.quantity = quantity;
+        }
+    }
+
+    /**
+     * 展开后的用户
+     */
+    public static class UserDto {
+
+        private final Long id;
+
+        private final String name;
+
+        private final String dept;
+
+        UserDto(Long id, String name, String dept) {
+            this.id = id;
+            this.name = name;
+            this.dept = dept;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDept() {
+            return dept;
+        }
+    }
+
+    /**
+     * 展开后的商品
+     */
+    public static class ProductDto {
+
+        private final Long id;
+
+        private final String title;
+
+        private final Long price;
+
+        ProductDto(Long id, String title, Long price) {
+            this.id = id;
+            this.title = title;
+            this.price = price;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public Long getPrice() {
+            return price;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.stupdit1t.jackson.expand.benchmark;
+
+import com.github.stupdit1t.jackson.expand.benchmark.BenchmarkModel.ProductDto;
+import com.github.stupdit1t.jackson.expand.benchmark.BenchmarkModel.UserDto;
+import com.github.stupdit1t.jackson.expand.cache.ExpandCache;
+import com.github.stupdit1t.jackson.expand.config.JacksonExpandConfigure;
+import com.github.stupdit1t.jackson.expand.config.JacksonExpandProperties;
+import com.github.stupdit1t.jackson.expand.domain.ExpandStrategy;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 基准测试的 Spring 环境和内存展开服务
+ *
+ * @author 625
+ */
+public final class BenchmarkServices {
+
+    private BenchmarkServices() {
+    }
+
+    /**
+     * 创建 Spring 环境
+     *
+     * @param noStoreCache 是否使用不存储的缓存, 每次都未命中
+     * @param strategy     展开策略
+     * @param dynamic      是否动态展开
+     * @return
+     */
+    public static AnnotationConfigApplicationContext start(boolean noStoreCache, ExpandStrategy strategy, boolean dynamic) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        if (noStoreCache) {
+            context.registerBean(ExpandCache.class, NoStoreCache::new);
+        }
+        context.registerBean("userService", UserService.class);
+        context.registerBean("productService", ProductService.class);
+        context.register(JacksonExpandConfigure.class);
+        context.refresh();
+        JacksonExpandProperties properties = context.getBean(JacksonExpandProperties.class);
+        properties.setExpandStrategy(strategy);
+        properties.setDynamicExpand(dynamic);
+        return context;
+    }
+
+    /**
+     * 用户服务, 内存查询
+     */
+    public static class UserService {
+
+        private final Map<Long, UserDto> users = new HashMap<>();
+
+        public UserService() {
+            for (long i = 0; i < BenchmarkModel.USER_COUNT; i++) {
+                users.put(i, new UserDto(i, "user-" + i, "dept-" + (i % 10)));
+            }
+        }
+
+        public UserDto expand(Long id) {
+            return users.get(id);
+        }
+
+        public String name(Long id) {
+            UserDto user = users.get(id);
+            return user == null ? null : user.getName();
+        }
+    }
+
+    /**
+     * 商品服务, 内存查询
+     */
+    public static class ProductService {
+
+        private final Map<Long, ProductDto> products = new HashMap<>();
+
+        public ProductService() {
+            for (long i = 0; i < BenchmarkModel.PRODUCT_COUNT; i++) {
+                products.put(i, new ProductDto(i, "product-" + i, i * 10));
+            }
+        }
+
+        public ProductDto expand(Long id) {
+            return products.get(id);
+        }
+    }
+
+    /**
+     * 不存储的缓存, 每次展开都调用展开方法
+     */
+    public static class NoStoreCache implements ExpandCache {
+
+        @Override
+        public <T> void put(String key, T value, Duration timeout) {
+        }
+
+        @Override
+        public <T> T get(String key) {
+            return null;
+        }
+
+        @Override
+        public Set<String> keys(String pattern) {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public void clear() {
+        }
+
+        @Override
+        public void delete(String key) {
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.stupdit1t.jackson.expand.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.stupdit1t.jackson.expand.cache.ExpandCache;
+import com.github.stupdit1t.jackson.expand.cache.ExpandEntry;
+import com.github.stupdit1t.jackson.expand.cache.ExpandKey;
+import com.github.stupdit1t.jackson.expand.cache.JsonExpandCodec;
+import com.github.stupdit1t.jackson.expand.cache.LocalCache;
+import com.github.stupdit1t.jackson.expand.cache.OffHeapCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存命中读取基准测试
+ * <p>
+ * cache: LOCAL 本地缓存, OFF_HEAP 堆外缓存(每次读取都要解码)。
+ * value: STRING 字符串值, OBJECT 对象值(堆外缓存按记录的类名反序列化)
+ *
+ * @author 625
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheBenchmark {
+
+    /**
+     * 命名空间
+     */
+    private static final String NAMESPACE = "Expand:userService:expand";
+
+    @Param({"LOCAL", "OFF_HEAP"})
+    public String cache;
+
+    @Param({"STRING", "OBJECT"})
+    public String value;
+
+    private ExpandCache expandCache;
+
+    private ExpandKey[] keys;
+
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        if ("OFF_HEAP".equals(cache)) {
+            expandCache = new OffHeapCache(64L * 1024 * 1024, new JsonExpandCodec(new ObjectMapper()));
+        } else {
+            expandCache = new LocalCache();
+        }
+        keys = new ExpandKey[BenchmarkModel.USER_COUNT];
+        for (int i = 0; i < keys.length; i++) {
+            // 字符串KEY, 不走本地缓存的整数KEY表
+            keys[i] = ExpandKey.of(NAMESPACE, "U" + i);
+            Object cached = "STRING".equals(value) ? "用户" + i : new UserLabel((long) i, "用户" + i, "部门" + i % 10);
+            expandCache.put(keys[i], ExpandEntry.ok(cached), Duration.ofHours(1));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        expandCache.clear();
+    }
+
+    @Benchmark
+    public Object get() {
+        ExpandKey key = keys[index];
+        index = index + 1 == keys.length ? 0 : index + 1;
+        return expandCache.get(key).getValue();
+    }
+
+    /**
+     * 缓存的对象值, 有默认构造方法可以反序列化
+     */
+    public static class UserLabel {
+
+        private Long id;
+
+        private String name;
+
+        private String dept;
+
+        public UserLabel() {
+        }
+
+        UserLabel(Long id, String name, String dept) {
+            this.id = id;
+            this.name = name;
+            this.dept = dept;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getDept() {
+            return dept;
+        }
+
+        public void setDept(String dept) {
+            this.dept = dept;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.stupdit1t.jackson.expand.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.stupdit1t.jackson.expand.domain.ExpandStrategy;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多线程序列化相同KEY的竞争
+ * <p>
+ * HIT 全部命中缓存, 测试缓存读取的并发。MISS 每次调用展开方法, 测试相同KEY合并加载的竞争
+ *
+ * @author 625
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class ContentionBenchmark {
+
+    @Param({"HIT", "MISS"})
+    public String mode;
+
+    private AnnotationConfigApplicationContext context;
+
+    private ObjectWriter writer;
+
+    private Object data;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        context = BenchmarkServices.start("MISS".equals(mode), ExpandStrategy.COVER, false);
+        writer = new ObjectMapper().writer();
+        data = BenchmarkModel.Shape.SINGLE.create();
+        writer.writeValueAsBytes(data);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return writer.writeValueAsBytes(data);
+    }
+}
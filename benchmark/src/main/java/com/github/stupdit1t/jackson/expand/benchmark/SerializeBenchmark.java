@@ -0,0 +1,79 @@
+package com.github.stupdit1t.jackson.expand.benchmark;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.stupdit1t.jackson.expand.domain.ExpandStrategy;
+import com.github.stupdit1t.jackson.expand.serializer.ExpandContext;
+import com.github.stupdit1t.jackson.expand.serializer.ExpandSelector;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 序列化热路径基准测试
+ * <p>
+ * mode: NONE 不展开(关闭注解), HIT 全部命中缓存, MISS 每次调用内存展开方法。
+ * dynamic 开启时按选择器匹配 path, 所有展开字段都被选中
+ *
+ * @author 625
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializeBenchmark {
+
+    /**
+     * 动态展开选中所有展开字段
+     */
+    static final String[] EXPAND_ALL = {"userId", "creater", "items.productId", "parent.**"};
+
+    @Param({"SINGLE", "LIST", "NESTED"})
+    public BenchmarkModel.Shape shape;
+
+    @Param({"NONE", "HIT", "MISS"})
+    public String mode;
+
+    @Param({"false", "true"})
+    public boolean dynamic;
+
+    @Param({"COVER", "COPY"})
+    public ExpandStrategy strategy;
+
+    private AnnotationConfigApplicationContext context;
+
+    private ObjectWriter writer;
+
+    private Object data;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        context = BenchmarkServices.start("MISS".equals(mode), strategy, dynamic);
+        ObjectMapper objectMapper = new ObjectMapper();
+        if ("NONE".equals(mode)) {
+            objectMapper.configure(MapperFeature.USE_ANNOTATIONS, false);
+        }
+        writer = objectMapper.writer();
+        if (dynamic) {
+            writer = new ExpandContext(ExpandSelector.compile(Arrays.asList(EXPAND_ALL), null)).bindTo(writer);
+        }
+        data = shape.create();
+        // 预热缓存
+        writer.writeValueAsBytes(data);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return writer.writeValueAsBytes(data);
+    }
+}
@@ -36,6 +36,16 @@ public @interface Expand {
      */
     String method() default "expand";
 
+    /**
+     * 批量展开方法, 第一个参数为注解字段值的集合(Collection), 后续为额外参数, 返回 Map&lt;字段值, 展开结果&gt;,
+     * 或者与字段值集合顺序一一对应的 List
+     * <p>
+     * 配置后同一个响应中相同 bean/方法/额外参数 的字段只调用一次批量方法, 未配置则逐个调用 {@link #method()}
+     *
+     * @return
+     */
+    String batchMethod() default "";
+
     /**
      * 回显到字段, 填写了已填写的为准, 否则自动填充当前字段
      *
@@ -50,6 +60,27 @@ public @interface Expand {
      */
     int cacheTime() default -1;
 
+    /**
+     * 提前刷新阈值，占缓存时间的比例(0~1)，超过后返回缓存值并后台刷新，0不刷新，默认取全局配置
+     *
+     * @return
+     */
+    double refreshAhead() default -1;
+
+    /**
+     * 展开异常时继续使用过期值的时间，单位秒，0不使用，默认取全局配置
+     *
+     * @return
+     */
+    int staleIfError() default -1;
+
+    /**
+     * 缓存时间随机减少的最大比例(0~1)，避免同时加载的值同时过期，默认取全局配置
+     *
+     * @return
+     */
+    double cacheTimeJitter() default -1;
+
     /**
      * 是否要展开
      *
@@ -0,0 +1,50 @@
+package com.github.stupdit1t.jackson.expand.annotation;
+
+import com.github.stupdit1t.jackson.expand.handler.rsp.DefaultResponseHandler;
+import com.github.stupdit1t.jackson.expand.handler.rsp.ResponseHandler;
+
+import java.lang.annotation.*;
+
+/**
+ * 启动预加载
+ * <p>
+ * 标注在展开服务 bean 的无参方法上，返回 Map&lt;字段值, 展开结果&gt;(也可以是 CompletableFuture 或 Mono)。
+ * 应用启动时并发调用所有预加载方法，结果批量写入对应 {@link Expand#method()} 的缓存，适合状态、地区、字典等可以全部枚举的展开服务
+ * <p>
+ * 预加载的结果按 {@link #responseHandler()} 处理后写入缓存，字段使用自定义 ResponseHandler 时需要配置相同的处理器
+ *
+ * @author 625
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+@Documented
+public @interface ExpandPreload {
+
+    /**
+     * 写入缓存的展开方法，与 {@link Expand#method()} 相同
+     *
+     * @return
+     */
+    String method() default "expand";
+
+    /**
+     * 缓存时间，单位秒，默认取全局配置，开启定时刷新时默认为刷新间隔的2倍
+     *
+     * @return
+     */
+    int cacheTime() default -1;
+
+    /**
+     * 定时刷新间隔，单位秒，0不刷新
+     *
+     * @return
+     */
+    int refreshInterval() default 0;
+
+    /**
+     * 预加载结果的处理器，与 {@link Expand#responseHandler()} 相同，处理时要填充字段的类型为null，参数为Map的key
+     *
+     * @return
+     */
+    Class<? extends ResponseHandler> responseHandler() default DefaultResponseHandler.class;
+}
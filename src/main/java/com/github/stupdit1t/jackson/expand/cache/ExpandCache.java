@@ -6,8 +6,12 @@ import com.github.stupdit1t.jackson.expand.serializer.ExpandSerializer;
 import org.springframework.util.AntPathMatcher;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
-import java.util.StringJoiner;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 
 /**
  * 缓存抽象
@@ -31,6 +35,92 @@ public interface ExpandCache {
      */
     <T> T get(String key);
 
+    /**
+     * 放入展开结果
+     * <p>
+     * 默认按 前缀:bean:方法:状态:值 生成字符串KEY，本地缓存可直接使用 {@link ExpandKey}
+     *
+     * @param key     展开KEY
+     * @param entry   展开结果
+     * @param timeout 过期时间
+     */
+    default void put(ExpandKey key, ExpandEntry entry, Duration timeout) {
+        put(key.render(entry.getStatus()), entry.getValue(), timeout);
+    }
+
+    /**
+     * 获取展开结果
+     *
+     * @param key 展开KEY
+     * @return 不存在返回null
+     */
+    default ExpandEntry get(ExpandKey key) {
+        Object value = get(key.render(ExpandSerializer.OK));
+        if (value != null) {
+            return ExpandEntry.ok(value);
+        }
+        value = get(key.render(ExpandSerializer.FAIL));
+        if (value != null) {
+            return ExpandEntry.fail(value);
+        }
+        return null;
+    }
+
+    /**
+     * 是否保存展开结果的刷新时间和过期时间
+     * <p>
+     * 默认的 {@link #put(ExpandKey, ExpandEntry, Duration)} 只保存值，读到的结果没有这两个时间，按缓存时间过期，
+     * 不提前刷新，过期后也不继续使用。重写 put/get(ExpandKey) 保存了这两个时间的缓存返回true，缓存保存时间才会加上 stale-if-error
+     *
+     * @return
+     */
+    default boolean storesEntryTime() {
+        return false;
+    }
+
+    /**
+     * 删除展开结果
+     *
+     * @param key 展开KEY
+     */
+    default void delete(ExpandKey key) {
+        delete(key.render(ExpandSerializer.OK));
+        delete(key.render(ExpandSerializer.FAIL));
+    }
+
+    /**
+     * 批量获取展开结果
+     * <p>
+     * 默认逐个调用 {@link #get(ExpandKey)}，Redis 等远程缓存可重写为一次 MGET，批量展开和预加载时一次往返
+     *
+     * @param keys 展开KEY
+     * @return 存在的展开结果
+     */
+    default Map<ExpandKey, ExpandEntry> multiGet(Collection<ExpandKey> keys) {
+        Map<ExpandKey, ExpandEntry> entries = new HashMap<>();
+        for (ExpandKey key : keys) {
+            ExpandEntry entry = get(key);
+            if (entry != null) {
+                entries.put(key, entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * 批量放入展开结果
+     * <p>
+     * 默认逐个调用 {@link #put(ExpandKey, ExpandEntry, Duration)}，Redis 等远程缓存可重写为一次 pipeline
+     *
+     * @param entries 展开KEY和结果
+     * @param timeout 过期时间
+     */
+    default void multiPut(Map<ExpandKey, ExpandEntry> entries, Duration timeout) {
+        for (Map.Entry<ExpandKey, ExpandEntry> entry : entries.entrySet()) {
+            put(entry.getKey(), entry.getValue(), timeout);
+        }
+    }
+
     /**
      * 列出匹配的的key
      *
@@ -56,14 +146,43 @@ public interface ExpandCache {
      */
     default void delete(String beanName, String method, Object bindData, Object... annotationVal) {
         JacksonExpandProperties properties = SpringUtil.getBean(JacksonExpandProperties.class);
-        StringJoiner key = new StringJoiner("-");
-        key.add(String.valueOf(bindData));
-        for (Object subVal : annotationVal) {
-            key.add(String.valueOf(subVal));
+        String namespace = properties.getCachePrefix() + ":" + beanName + ":" + method;
+        delete(new ExpandKey(namespace, ExpandKey.paramsSuffix(annotationVal), bindData, ExpandGenerations.of(beanName, method).get()));
+    }
+
+    /**
+     * 失效 bean 所有方法的缓存
+     * <p>
+     * 默认按 前缀:bean:* 列出KEY逐个删除，Redis 等共享缓存在所有节点立即生效，重启后也不会再读到。
+     * 本地缓存重写为增加 {@link ExpandGenerations} 的代数，不遍历缓存
+     *
+     * @param beanName bean名称
+     */
+    default void invalidate(String beanName) {
+        JacksonExpandProperties properties = SpringUtil.getBean(JacksonExpandProperties.class);
+        for (String key : keys(properties.getCachePrefix() + ":" + beanName + ":*")) {
+            delete(key);
+        }
+    }
+
+    /**
+     * 失效 bean 一个方法的缓存
+     * <p>
+     * 默认按 前缀:bean:方法:* 和 前缀:bean:方法#* 列出KEY逐个删除，Redis 等共享缓存在所有节点立即生效，重启后也不会再读到。
+     * 本地缓存重写为增加 {@link ExpandGenerations} 的代数，不遍历缓存
+     *
+     * @param beanName bean名称
+     * @param method   方法
+     */
+    default void invalidate(String beanName, String method) {
+        JacksonExpandProperties properties = SpringUtil.getBean(JacksonExpandProperties.class);
+        String namespace = properties.getCachePrefix() + ":" + beanName + ":" + method;
+        for (String key : keys(namespace + ":*")) {
+            delete(key);
+        }
+        for (String key : keys(namespace + "#*")) {
+            delete(key);
         }
-        String cacheKey = properties.getCachePrefix() + ":" + beanName + ":" + method + ":%s:" + key.toString();
-        delete(String.format(cacheKey, ExpandSerializer.OK));
-        delete(String.format(cacheKey, ExpandSerializer.FAIL));
     }
 
 
@@ -74,28 +193,27 @@ public interface ExpandCache {
      * @param key
      */
     default boolean matchKey(String pattern, String key) {
-        AntPathMatcher antPathMatcher = new AntPathMatcher();
+        return matcher(pattern).test(key);
+    }
+
+    /**
+     * 创建匹配器, 同一个pattern匹配多个key时只解析一次
+     * <p>
+     * 支持 *、h?llo、h*llo(AntPath) 和 h[ae]llo(正则)
+     *
+     * @param pattern
+     * @return
+     */
+    default Predicate<String> matcher(String pattern) {
         // *
         if ("*".equals(pattern)) {
-            return true;
-        }
-        // h?llo
-        if (pattern.contains("?")) {
-            if (antPathMatcher.match(pattern, key)) {
-                return true;
-            }
-        }
-        // h*llo
-        if (pattern.contains("*")) {
-            if (antPathMatcher.match(pattern, key)) {
-                return true;
-            }
+            return (key) -> true;
         }
+        // h?llo h*llo
+        AntPathMatcher antPathMatcher = pattern.contains("?") || pattern.contains("*") ? new AntPathMatcher() : null;
         // h[ae]llo
-        if (pattern.contains("[") && pattern.contains("]")) {
-            return key.matches(pattern);
-        }
-        return false;
+        Pattern regex = pattern.contains("[") && pattern.contains("]") ? Pattern.compile(pattern) : null;
+        return (key) -> (antPathMatcher != null && antPathMatcher.match(pattern, key)) || (regex != null && regex.matcher(key).matches());
     }
 
 }
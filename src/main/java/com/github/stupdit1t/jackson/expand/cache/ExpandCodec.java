@@ -0,0 +1,29 @@
+package com.github.stupdit1t.jackson.expand.cache;
+
+import java.io.IOException;
+
+/**
+ * 缓存值编解码，堆外缓存使用
+ *
+ * @author 625
+ */
+public interface ExpandCodec {
+
+    /**
+     * 编码
+     *
+     * @param value 缓存值
+     * @return 字节
+     * @throws IOException 无法编码, 不写入缓存
+     */
+    byte[] encode(Object value) throws IOException;
+
+    /**
+     * 解码
+     *
+     * @param bytes 字节
+     * @return 缓存值
+     * @throws IOException 无法解码, 视为未命中
+     */
+    Object decode(byte[] bytes) throws IOException;
+}
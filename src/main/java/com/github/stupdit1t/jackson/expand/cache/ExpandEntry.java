@@ -0,0 +1,105 @@
+package com.github.stupdit1t.jackson.expand.cache;
+
+import com.github.stupdit1t.jackson.expand.serializer.ExpandSerializer;
+
+/**
+ * 展开缓存值，带成功/失败状态
+ * <p>
+ * 开启提前刷新或过期后继续使用时带刷新时间和逻辑过期时间(毫秒时间戳)，缓存实际保存时间包含继续使用的时间
+ *
+ * @author 625
+ */
+public final class ExpandEntry {
+
+    /**
+     * 是否展开成功
+     */
+    private final boolean ok;
+
+    /**
+     * 成功为展开结果，失败为字段原始值
+     */
+    private final Object value;
+
+    /**
+     * 需要刷新的时间, 0不刷新
+     */
+    private final long refreshAt;
+
+    /**
+     * 逻辑过期时间, 之后只在展开异常时使用, 0以缓存过期为准
+     */
+    private final long expireAt;
+
+    private ExpandEntry(boolean ok, Object value, long refreshAt, long expireAt) {
+        this.ok = ok;
+        this.value = value;
+        this.refreshAt = refreshAt;
+        this.expireAt = expireAt;
+    }
+
+    public static ExpandEntry ok(Object value) {
+        return new ExpandEntry(true, value, 0, 0);
+    }
+
+    /**
+     * 带刷新时间的成功结果
+     *
+     * @param value     展开结果
+     * @param refreshAt 需要刷新的时间, 0不刷新
+     * @param expireAt  逻辑过期时间, 0以缓存过期为准
+     * @return
+     */
+    public static ExpandEntry ok(Object value, long refreshAt, long expireAt) {
+        return new ExpandEntry(true, value, refreshAt, expireAt);
+    }
+
+    public static ExpandEntry fail(Object value) {
+        return new ExpandEntry(false, value, 0, 0);
+    }
+
+    public boolean isOk() {
+        return ok;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public long getRefreshAt() {
+        return refreshAt;
+    }
+
+    public long getExpireAt() {
+        return expireAt;
+    }
+
+    /**
+     * 是否需要刷新
+     *
+     * @param now 当前时间
+     * @return
+     */
+    public boolean isRefreshable(long now) {
+        return refreshAt != 0 && now >= refreshAt;
+    }
+
+    /**
+     * 是否已逻辑过期
+     *
+     * @param now 当前时间
+     * @return
+     */
+    public boolean isExpired(long now) {
+        return expireAt != 0 && now >= expireAt;
+    }
+
+    /**
+     * 状态
+     *
+     * @return OK or FAIL
+     */
+    public String getStatus() {
+        return ok ? ExpandSerializer.OK : ExpandSerializer.FAIL;
+    }
+}
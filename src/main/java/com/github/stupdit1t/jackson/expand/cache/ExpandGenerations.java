@@ -0,0 +1,96 @@
+package com.github.stupdit1t.jackson.expand.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 缓存代数
+ * <p>
+ * 每个 bean 和 bean:方法 各有一个只增不减的计数，bean 计数在高32位、方法计数在低32位组成代数写入 {@link ExpandKey}，
+ * 不同的失效历史不会得到相同的代数。按 bean 或方法失效时只需增加计数，旧代数的缓存不会再被读到，之后按过期时间或容量淘汰，不需要遍历缓存
+ * <p>
+ * 计数只在当前JVM内，重启后从0开始，只适合本地缓存；共享缓存按KEY删除，见 {@link ExpandCache#invalidate(String)}
+ *
+ * @author 625
+ */
+public final class ExpandGenerations {
+
+    /**
+     * 计数, key: bean 或 bean:方法
+     */
+    private static final Map<String, AtomicLong> COUNTERS = new ConcurrentHashMap<>();
+
+    private ExpandGenerations() {
+    }
+
+    /**
+     * 获取 bean/方法 的代数，序列化器创建时获取一次，之后每次只读取计数
+     *
+     * @param beanName bean名称
+     * @param method   方法
+     * @return
+     */
+    public static Generation of(String beanName, String method) {
+        return new Generation(counter(beanName), counter(beanName + ":" + method));
+    }
+
+    /**
+     * 失效 bean 的所有方法
+     *
+     * @param beanName bean名称
+     * @return 新的计数
+     */
+    public static long increment(String beanName) {
+        return counter(beanName).incrementAndGet();
+    }
+
+    /**
+     * 失效 bean 的一个方法
+     *
+     * @param beanName bean名称
+     * @param method   方法
+     * @return 新的计数
+     */
+    public static long increment(String beanName, String method) {
+        return counter(beanName + ":" + method).incrementAndGet();
+    }
+
+    /**
+     * 计数至少推进到指定值，收到其他节点的失效消息时使用
+     *
+     * @param key   bean 或 bean:方法
+     * @param value 其他节点的计数
+     */
+    public static void advance(String key, long value) {
+        counter(key).accumulateAndGet(value, Math::max);
+    }
+
+    private static AtomicLong counter(String key) {
+        return COUNTERS.computeIfAbsent(key, (k) -> new AtomicLong());
+    }
+
+    /**
+     * bean/方法 的代数
+     */
+    public static final class Generation {
+
+        private final AtomicLong bean;
+
+        private final AtomicLong method;
+
+        private Generation(AtomicLong bean, AtomicLong method) {
+            this.bean = bean;
+            this.method = method;
+        }
+
+        /**
+         * 当前代数, 任一计数增加都会变大, 不会回到旧值
+         *
+         * @return 高32位为 bean 计数, 低32位为方法计数
+         */
+        public long get() {
+            return bean.get() << 32 | (method.get() & 0xFFFFFFFFL);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.github.stupdit1t.jackson.expand.cache;
+
+import java.io.Serializable;
+
+/**
+ * 缓存失效消息
+ * <p>
+ * 一个节点删除缓存后通过 {@link ExpandInvalidationBus} 通知其他节点删除本地缓存(L1)，字段都是简单类型，方便序列化传输
+ *
+ * @author 625
+ */
+public class ExpandInvalidation implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 删除展开结果
+     */
+    public static final String KEY = "KEY";
+
+    /**
+     * 按字符串KEY删除
+     */
+    public static final String STRING_KEY = "STRING_KEY";
+
+    /**
+     * 清空
+     */
+    public static final String CLEAR = "CLEAR";
+
+    /**
+     * 按 bean/方法 失效, 推进代数
+     */
+    public static final String GENERATION = "GENERATION";
+
+    /**
+     * 发送节点, 收到自己发送的消息时忽略
+     */
+    private String source;
+
+    /**
+     * 类型, KEY / STRING_KEY / CLEAR / GENERATION
+     */
+    private String type;
+
+    /**
+     * 命名空间(KEY), 字符串KEY(STRING_KEY), 或 bean、bean:方法(GENERATION)
+     */
+    private String key;
+
+    /**
+     * 额外参数拼接(KEY)
+     */
+    private String paramsSuffix;
+
+    /**
+     * 字段值(KEY)
+     */
+    private Object id;
+
+    /**
+     * 代数(KEY), 或新的计数(GENERATION)
+     */
+    private long generation;
+
+    public ExpandInvalidation() {
+    }
+
+    private ExpandInvalidation(String source, String type, String key, String paramsSuffix, Object id, long generation) {
+        this.source = source;
+        this.type = type;
+        this.key = key;
+        this.paramsSuffix = paramsSuffix;
+        this.id = id;
+        this.generation = generation;
+    }
+
+    public static ExpandInvalidation key(String source, ExpandKey key) {
+        return new ExpandInvalidation(source, KEY, key.getNamespace(), key.getParamsSuffix(), key.getId(), key.getGeneration());
+    }
+
+    public static ExpandInvalidation stringKey(String source, String key) {
+        return new ExpandInvalidation(source, STRING_KEY, key, null, null, 0);
+    }
+
+    public static ExpandInvalidation clear(String source) {
+        return new ExpandInvalidation(source, CLEAR, null, null, null, 0);
+    }
+
+    /**
+     * 推进代数
+     *
+     * @param source     发送节点
+     * @param counter    bean 或 bean:方法
+     * @param generation 新的计数
+     * @return
+     */
+    public static ExpandInvalidation generation(String source, String counter, long generation) {
+        return new ExpandInvalidation(source, GENERATION, counter, null, null, generation);
+    }
+
+    /**
+     * 还原展开KEY
+     *
+     * @return
+     */
+    public ExpandKey toExpandKey() {
+        return new ExpandKey(key, paramsSuffix == null ? "" : paramsSuffix, id, generation);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getParamsSuffix() {
+        return paramsSuffix;
+    }
+
+    public void setParamsSuffix(String paramsSuffix) {
+        this.paramsSuffix = paramsSuffix;
+    }
+
+    public Object getId() {
+        return id;
+    }
+
+    public void setId(Object id) {
+        this.id = id;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public void setGeneration(long generation) {
+        this.generation = generation;
+    }
+
+    @Override
+    public String toString() {
+        if (GENERATION.equals(type)) {
+            return type + ":" + key + "#" + generation;
+        }
+        return type + ":" + key + (id == null ? "" : ":" + id + paramsSuffix);
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.stupdit1t.jackson.expand.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * 缓存失效消息总线
+ * <p>
+ * 两级缓存删除时发布消息，所有节点(包括自己)的订阅者收到后删除本地缓存。
+ * 默认 {@link InMemoryInvalidationBus} 只在当前JVM内传递，集群部署时实现此接口接入 Redis pub/sub、MQ 等，注册为Spring的Bean即可
+ *
+ * @author 625
+ */
+public interface ExpandInvalidationBus {
+
+    /**
+     * 发布失效消息
+     *
+     * @param invalidation 失效消息
+     */
+    void publish(ExpandInvalidation invalidation);
+
+    /**
+     * 订阅失效消息
+     *
+     * @param listener 订阅者
+     */
+    void subscribe(Consumer<ExpandInvalidation> listener);
+}
@@ -0,0 +1,163 @@
+package com.github.stupdit1t.jackson.expand.cache;
+
+/**
+ * 展开缓存KEY
+ * <p>
+ * 由命名空间(前缀:bean:方法)、额外参数、字段值和代数组成，hash预先计算。本地缓存直接使用，
+ * 其他缓存实现需要字符串KEY时才按 前缀:bean:方法:状态:值-额外参数 的格式生成
+ *
+ * @author 625
+ */
+public final class ExpandKey {
+
+    /**
+     * 命名空间, 前缀:bean:方法
+     */
+    private final String namespace;
+
+    /**
+     * 额外参数拼接, 格式 -参数1-参数2, 没有额外参数为空字符串
+     */
+    private final String paramsSuffix;
+
+    /**
+     * 字段值
+     */
+    private final Object id;
+
+    /**
+     * 代数, 按 bean/方法 失效后变大, 0不写入字符串KEY
+     */
+    private final long generation;
+
+    private final int hash;
+
+    public ExpandKey(String namespace, String paramsSuffix, Object id) {
+        this(namespace, paramsSuffix, id, 0);
+    }
+
+    public ExpandKey(String namespace, String paramsSuffix, Object id, long generation) {
+        this.namespace = namespace;
+        this.paramsSuffix = paramsSuffix;
+        this.id = normalizeId(id);
+        this.generation = generation;
+        this.hash = 31 * (31 * (31 * namespace.hashCode() + paramsSuffix.hashCode()) + this.id.hashCode()) + Long.hashCode(generation);
+    }
+
+    /**
+     * 字段值不是不可变的简单类型时，使用字符串形式比较。Integer/Short/Byte 统一为 Long，预加载和批量结果的 Map key 类型与字段类型不同时也能命中
+     *
+     * @param id 字段值
+     * @return
+     */
+    private static Object normalizeId(Object id) {
+        if (id instanceof Integer || id instanceof Short || id instanceof Byte) {
+            return ((Number) id).longValue();
+        }
+        if (id instanceof String || id instanceof Number || id instanceof Boolean || id instanceof Character || id instanceof Enum) {
+            return id;
+        }
+        return String.valueOf(id);
+    }
+
+    /**
+     * 构建KEY
+     *
+     * @param namespace 前缀:bean:方法
+     * @param id        字段值
+     * @param params    额外参数
+     * @return
+     */
+    public static ExpandKey of(String namespace, Object id, Object... params) {
+        return new ExpandKey(namespace, paramsSuffix(params), id);
+    }
+
+    /**
+     * 额外参数拼接
+     *
+     * @param params 额外参数
+     * @return -参数1-参数2
+     */
+    public static String paramsSuffix(Object[] params) {
+        if (params == null || params.length == 0) {
+            return "";
+        }
+        StringBuilder suffix = new StringBuilder();
+        for (Object param : params) {
+            suffix.append('-').append(param);
+        }
+        return suffix.toString();
+    }
+
+    /**
+     * 生成字符串KEY
+     *
+     * @param status OK or FAIL
+     * @return 前缀:bean:方法:状态:值-额外参数, 代数不为0时为 前缀:bean:方法#代数:状态:值-额外参数
+     */
+    public String render(String status) {
+        return renderNamespace() + ":" + status + ":" + id + paramsSuffix;
+    }
+
+    /**
+     * 字符串KEY的命名空间部分
+     *
+     * @return 前缀:bean:方法, 代数不为0时为 前缀:bean:方法#代数
+     */
+    public String renderNamespace() {
+        return renderNamespace(namespace, generation);
+    }
+
+    /**
+     * 字符串KEY的命名空间部分
+     *
+     * @param namespace  前缀:bean:方法
+     * @param generation 代数
+     * @return 前缀:bean:方法, 代数不为0时为 前缀:bean:方法#bean计数.方法计数
+     */
+    public static String renderNamespace(String namespace, long generation) {
+        return generation == 0 ? namespace : namespace + "#" + (generation >>> 32) + "." + (generation & 0xFFFFFFFFL);
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public Object getId() {
+        return id;
+    }
+
+    public String getParamsSuffix() {
+        return paramsSuffix;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ExpandKey)) {
+            return false;
+        }
+        ExpandKey other = (ExpandKey) o;
+        return hash == other.hash
+                && generation == other.generation
+                && id.equals(other.id)
+                && namespace.equals(other.namespace)
+                && paramsSuffix.equals(other.paramsSuffix);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return renderNamespace() + ":" + id + paramsSuffix;
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.stupdit1t.jackson.expand.cache;
+
+/**
+ * 访问频率统计, Count-Min Sketch
+ * <p>
+ * 4行计数器, 每个计数器最大15, 累计次数达到阈值后全部减半, 让旧的热点逐渐冷却。并发下允许少量计数丢失
+ *
+ * @author 625
+ */
+class FrequencySketch {
+
+    /**
+     * 每行的hash种子
+     */
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    /**
+     * 计数器最大值
+     */
+    private static final int MAX_COUNT = 15;
+
+    /**
+     * 计数器, 4行连续存放
+     */
+    private final byte[] table;
+
+    /**
+     * 每行宽度-1
+     */
+    private final int mask;
+
+    /**
+     * 减半阈值
+     */
+    private final int sampleSize;
+
+    /**
+     * 累计次数
+     */
+    private int size;
+
+    FrequencySketch(long expectedSize) {
+        int width = Integer.highestOneBit((int) Math.min(Math.max(expectedSize, 16), 1 << 22) - 1) << 1;
+        this.table = new byte[width * SEEDS.length];
+        this.mask = width - 1;
+        this.sampleSize = width * 10;
+    }
+
+    /**
+     * 增加一次访问
+     *
+     * @param hashCode key的hash
+     */
+    void increment(int hashCode) {
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = indexOf(hashCode, i);
+            if (table[index] < MAX_COUNT) {
+                table[index]++;
+                added = true;
+            }
+        }
+        if (added && ++size >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * 估算访问频率
+     *
+     * @param hashCode key的hash
+     * @return 0-15
+     */
+    int frequency(int hashCode) {
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++) {
+            frequency = Math.min(frequency, table[indexOf(hashCode, i)]);
+        }
+        return frequency;
+    }
+
+    /**
+     * 所有计数器减半
+     */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (byte) (table[i] >>> 1);
+        }
+        size = size >>> 1;
+    }
+
+    /**
+     * 计数器下标
+     *
+     * @param hashCode key的hash
+     * @param row      行
+     * @return
+     */
+    private int indexOf(int hashCode, int row) {
+        int hash = (hashCode + SEEDS[row]) * SEEDS[row];
+        hash ^= hash >>> 16;
+        return row * (mask + 1) + (hash & mask);
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.stupdit1t.jackson.expand.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * JVM内的失效消息总线，发布时同步通知所有订阅者
+ * <p>
+ * 适合单机部署和测试，多个 {@link TieredCache} 共用一个总线即可模拟多个节点
+ *
+ * @author 625
+ */
+public class InMemoryInvalidationBus implements ExpandInvalidationBus {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InMemoryInvalidationBus.class);
+
+    private final List<Consumer<ExpandInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(ExpandInvalidation invalidation) {
+        for (Consumer<ExpandInvalidation> listener : listeners) {
+            try {
+                listener.accept(invalidation);
+            } catch (Exception e) {
+                LOG.error("缓存失效消息处理异常：{}", invalidation, e);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<ExpandInvalidation> listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,140 @@
+package com.github.stupdit1t.jackson.expand.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JSON 编解码
+ * <p>
+ * 字符串直接保存UTF-8字节，其他值用应用的 ObjectMapper 序列化为JSON，头部记录值的类名，读取时反序列化为原来的类型。
+ * 不能反序列化的类型(如没有默认构造方法)还原为 JsonNode(简单值还原为 String/Number/Boolean)，之后同一个类型直接还原为 JsonNode，
+ * 再次序列化输出的JSON与原对象相同。缓存值中嵌套的 @Expand 字段在写入缓存时就已展开
+ * <p>
+ * 编码格式: 字符串为 [0][UTF-8字节]，其他值为 [1][类名长度, 2字节][类名][JSON]
+ *
+ * @author 625
+ */
+public class JsonExpandCodec implements ExpandCodec {
+
+    /**
+     * 字符串
+     */
+    private static final byte STRING = 0;
+
+    /**
+     * JSON
+     */
+    private static final byte JSON = 1;
+
+    /**
+     * 类名最大长度, 超出时不记录类名, 读取时还原为 JsonNode
+     */
+    private static final int MAX_CLASS_NAME_LENGTH = 0xFFFF;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 编码后的类名
+     */
+    private final Map<Class<?>, byte[]> classNames = new ConcurrentHashMap<>();
+
+    /**
+     * 类名对应的类型, 找不到或不能反序列化的为空
+     */
+    private final Map<String, Optional<Class<?>>> classes = new ConcurrentHashMap<>();
+
+    public JsonExpandCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public byte[] encode(Object value) throws IOException {
+        if (value instanceof String) {
+            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            byte[] encoded = new byte[bytes.length + 1];
+            encoded[0] = STRING;
+            System.arraycopy(bytes, 0, encoded, 1, bytes.length);
+            return encoded;
+        }
+        byte[] className = classNames.computeIfAbsent(value.getClass(), (key) -> {
+            byte[] name = key.getName().getBytes(StandardCharsets.UTF_8);
+            return name.length > MAX_CLASS_NAME_LENGTH ? new byte[0] : name;
+        });
+        byte[] bytes = objectMapper.writeValueAsBytes(value);
+        byte[] encoded = new byte[bytes.length + className.length + 3];
+        encoded[0] = JSON;
+        encoded[1] = (byte) (className.length >>> 8);
+        encoded[2] = (byte) className.length;
+        System.arraycopy(className, 0, encoded, 3, className.length);
+        System.arraycopy(bytes, 0, encoded, className.length + 3, bytes.length);
+        return encoded;
+    }
+
+    @Override
+    public Object decode(byte[] bytes) throws IOException {
+        if (bytes[0] == STRING) {
+            return new String(bytes, 1, bytes.length - 1, StandardCharsets.UTF_8);
+        }
+        int classNameLength = (bytes[1] & 0xFF) << 8 | bytes[2] & 0xFF;
+        int offset = classNameLength + 3;
+        if (classNameLength > 0) {
+            String className = new String(bytes, 3, classNameLength, StandardCharsets.UTF_8);
+            Optional<Class<?>> type = classes.computeIfAbsent(className, JsonExpandCodec::resolve);
+            if (type.isPresent()) {
+                try {
+                    return objectMapper.readValue(bytes, offset, bytes.length - offset, type.get());
+                } catch (IOException | RuntimeException e) {
+                    // 不能反序列化的类型之后直接还原为 JsonNode
+                    classes.put(className, Optional.empty());
+                }
+            }
+        }
+        return readTree(bytes, offset);
+    }
+
+    /**
+     * 还原为 JsonNode, 简单值还原为 String/Number/Boolean
+     *
+     * @param bytes  编码后的值
+     * @param offset JSON开始位置
+     * @return
+     * @throws IOException
+     */
+    private Object readTree(byte[] bytes, int offset) throws IOException {
+        JsonNode node = objectMapper.readTree(bytes, offset, bytes.length - offset);
+        if (node.isTextual()) {
+            return node.textValue();
+        }
+        if (node.isNumber()) {
+            return node.numberValue();
+        }
+        if (node.isBoolean()) {
+            return node.booleanValue();
+        }
+        if (node.isNull()) {
+            return null;
+        }
+        return node;
+    }
+
+    /**
+     * 加载类
+     *
+     * @param className 类名
+     * @return 找不到为空
+     */
+    private static Optional<Class<?>> resolve(String className) {
+        try {
+            return Optional.of(ClassUtils.forName(className, null));
+        } catch (ClassNotFoundException | LinkageError e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -1,84 +1,886 @@
 package com.github.stupdit1t.jackson.expand.cache;
 
-import com.github.stupdit1t.jackson.expand.serializer.ExpandSerializer;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.util.AntPathMatcher;
-
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.ToIntBiFunction;
 
 /**
  * 简单的本地缓存实现
+ * <p>
+ * 有界缓存, 超过最大数量或最大权重(近似字节数)时淘汰。淘汰使用 CLOCK 二次机会, 并按访问频率决定新值是否准入,
+ * 偶发的冷数据不会挤掉热点数据。
+ * <p>
+ * 过期不依赖定时器线程: 读取时惰性判断, 写入和部分读取时顺带推进时间轮清理到期的值
+ * <p>
+ * 展开结果直接以 {@link ExpandKey} 为KEY存放, 不生成字符串KEY。按命名空间建立前缀索引, keys() 不遍历全部缓存
+ * <p>
+ * 没有额外参数的整数字段值保存在命名空间对应的 {@link LongKeyStore} 中, 与其他值共用最大数量和最大权重。
+ * 超过上限时从数量(限制权重时按权重)较多的一方淘汰: 其他值按 CLOCK 淘汰, 整数字段值从最大的存储中按各自的 CLOCK 淘汰
  */
 public class LocalCache implements ExpandCache {
 
-    private static final Logger LOG = LoggerFactory.getLogger(ExpandSerializer.class);
+    /**
+     * 默认最大数量
+     */
+    public static final long DEFAULT_MAXIMUM_SIZE = 100_000;
+
+    /**
+     * 时间轮刻度, 1秒
+     */
+    private static final long TICK_NANOS = 1_000_000_000L;
+
+    /**
+     * 时间轮槽数
+     */
+    private static final int WHEEL_SIZE = 512;
+
+    /**
+     * 读取时每多少次尝试推进一次时间轮
+     */
+    private static final int READ_MAINTAIN_MASK = 0x3F;
+
+    private final Map<Object, Node> cacheMap = new ConcurrentHashMap<>();
+
+    /**
+     * 前缀索引, key: 命名空间(展开结果)或最后一个冒号之前的部分(字符串KEY), keys() 和按字符串KEY删除时只遍历前缀匹配的部分
+     */
+    private final Map<String, Set<Node>> index = new ConcurrentHashMap<>();
+
+    /**
+     * 整数字段值的存储, key: 命名空间, 只保留最新代数
+     */
+    private final Map<String, LongKeyStore> longStores = new ConcurrentHashMap<>();
+
+    /**
+     * 整数字段值存储的总数量
+     */
+    private final AtomicLong longSize = new AtomicLong();
+
+    /**
+     * 整数字段值存储的总权重
+     */
+    private final AtomicLong longWeight = new AtomicLong();
+
+    /**
+     * 最大数量
+     */
+    private final long maximumSize;
+
+    /**
+     * 最大权重, 小于等于0不限制
+     */
+    private final long maximumWeight;
+
+    /**
+     * 权重计算
+     */
+    private final ToIntBiFunction<Object, Object> weigher;
+
+    /**
+     * 访问频率
+     */
+    private final FrequencySketch sketch;
+
+    /**
+     * 写入、淘汰、过期的锁, 读取无锁
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * 时间轮
+     */
+    private final Node[] wheel = new Node[WHEEL_SIZE];
 
-    private static final Timer timer = new Timer();
+    /**
+     * 淘汰队列头, 最早写入
+     */
+    private Node head;
 
-    private final Map<String, Object> cacheMap;
+    /**
+     * 淘汰队列尾
+     */
+    private Node tail;
+
+    /**
+     * 当前权重
+     */
+    private long weightedSize;
+
+    /**
+     * 时间轮已推进到的刻度
+     */
+    private long currentTick;
+
+    /**
+     * 读取次数
+     */
+    private int reads;
+
+    /**
+     * 超过上限的淘汰次数, 不含过期
+     */
+    private volatile long evictionCount;
 
     public LocalCache() {
-        this.cacheMap = new ConcurrentHashMap<>();
+        this(DEFAULT_MAXIMUM_SIZE, 0);
     }
 
-    public LocalCache(Map<String, Object> cacheMap) {
-        this.cacheMap = cacheMap;
+    /**
+     * @param maximumSize   最大数量
+     * @param maximumWeight 最大权重(近似字节数), 小于等于0不限制
+     */
+    public LocalCache(long maximumSize, long maximumWeight) {
+        this(maximumSize, maximumWeight, LocalCache::estimateWeight);
+    }
+
+    /**
+     * @param maximumSize   最大数量
+     * @param maximumWeight 最大权重, 小于等于0不限制
+     * @param weigher       权重计算, 参数为key(String或ExpandKey)和value
+     */
+    public LocalCache(long maximumSize, long maximumWeight, ToIntBiFunction<Object, Object> weigher) {
+        this.maximumSize = maximumSize > 0 ? maximumSize : DEFAULT_MAXIMUM_SIZE;
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.sketch = new FrequencySketch(this.maximumSize);
+        this.currentTick = Math.floorDiv(System.nanoTime(), TICK_NANOS);
     }
 
     @Override
     public <T> void put(String key, T value, Duration timeout) {
-        cacheMap.put(key, value);
-        scheduleExpiration(key, timeout.toMillis());
+        lock.lock();
+        try {
+            putNode(key, value, timeout);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(ExpandKey key, ExpandEntry entry, Duration timeout) {
+        if (isLongKey(key)) {
+            putLong(key, entry, timeout);
+            return;
+        }
+        lock.lock();
+        try {
+            putNode(key, entry, timeout);
+        } finally {
+            lock.unlock();
+        }
     }
 
+    @SuppressWarnings("unchecked")
     @Override
     public <T> T get(String key) {
-        return (T) cacheMap.get(key);
+        return (T) getValue(key);
+    }
+
+    @Override
+    public boolean storesEntryTime() {
+        return true;
+    }
+
+    @Override
+    public ExpandEntry get(ExpandKey key) {
+        if (isLongKey(key)) {
+            LongKeyStore store = longStores.get(key.getNamespace());
+            return store == null || store.getGeneration() != key.getGeneration() ? null : store.get((Long) key.getId());
+        }
+        return (ExpandEntry) getValue(key);
+    }
+
+    @Override
+    public Map<ExpandKey, ExpandEntry> multiGet(Collection<ExpandKey> keys) {
+        Map<ExpandKey, ExpandEntry> entries = new HashMap<>();
+        for (ExpandKey key : keys) {
+            ExpandEntry entry = get(key);
+            if (entry != null) {
+                entries.put(key, entry);
+            }
+        }
+        return entries;
     }
 
+    @Override
+    public void multiPut(Map<ExpandKey, ExpandEntry> entries, Duration timeout) {
+        lock.lock();
+        try {
+            for (Map.Entry<ExpandKey, ExpandEntry> entry : entries.entrySet()) {
+                if (isLongKey(entry.getKey())) {
+                    putLong(entry.getKey(), entry.getValue(), timeout);
+                } else {
+                    putNode(entry.getKey(), entry.getValue(), timeout);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取命名空间的整数字段值存储, 代数变大时丢弃旧代数的存储
+     *
+     * @param namespace  命名空间, 前缀:bean:方法
+     * @param generation 代数
+     * @return 已有更新代数的存储时返回null
+     */
+    public LongKeyStore longStore(String namespace, long generation) {
+        LongKeyStore store = longStores.get(namespace);
+        if (store != null && store.getGeneration() == generation) {
+            return store;
+        }
+        store = longStores.compute(namespace, (key, current) -> {
+            if (current != null && current.getGeneration() >= generation) {
+                return current;
+            }
+            if (current != null) {
+                current.retire();
+            }
+            return new LongKeyStore(namespace, generation, maximumSize, longSize, longWeight);
+        });
+        return store.getGeneration() == generation ? store : null;
+    }
+
+    /**
+     * 写入整数字段值存储
+     */
+    private void putLong(ExpandKey key, ExpandEntry entry, Duration timeout) {
+        LongKeyStore store = longStore(key.getNamespace(), key.getGeneration());
+        if (store == null) {
+            return;
+        }
+        store.put((Long) key.getId(), entry, weigher.applyAsInt(key, entry), System.nanoTime() + toNanos(timeout));
+        if (isOverflow()) {
+            lock.lock();
+            try {
+                evict(null);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 是否保存到整数字段值存储
+     *
+     * @param key 展开KEY
+     * @return
+     */
+    private static boolean isLongKey(ExpandKey key) {
+        return key.getId() instanceof Long && key.getParamsSuffix().isEmpty();
+    }
+
+    /**
+     * 读取, 无锁
+     *
+     * @param key String或ExpandKey
+     * @return
+     */
+    private Object getValue(Object key) {
+        sketch.increment(key.hashCode());
+        Node node = cacheMap.get(key);
+        if ((++reads & READ_MAINTAIN_MASK) == 0) {
+            tryExpire();
+        }
+        if (node == null) {
+            return null;
+        }
+        if (node.isExpired(System.nanoTime())) {
+            if (lock.tryLock()) {
+                try {
+                    removeNode(node);
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return null;
+        }
+        node.accessed = true;
+        return node.value;
+    }
+
+    /**
+     * 获取缓存, 不存在则放入
+     *
+     * @param cacheKey
+     * @param value
+     * @param timeout
+     * @return 已存在的值或放入的值
+     */
     public <T> T get(String cacheKey, T value, Duration timeout) {
-        T val = (T) cacheMap.computeIfAbsent(cacheKey, (key) -> {
-            scheduleExpiration(cacheKey, timeout.toMillis());
+        T val = get(cacheKey);
+        if (val != null) {
+            return val;
+        }
+        lock.lock();
+        try {
+            Node node = cacheMap.get(cacheKey);
+            if (node != null && !node.isExpired(System.nanoTime())) {
+                @SuppressWarnings("unchecked")
+                T existing = (T) node.value;
+                return existing;
+            }
+            putNode(cacheKey, value, timeout);
             return value;
-        });
-        return val;
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
     public Set<String> keys(String pattern) {
-        return cacheMap.keySet().stream()
-                .filter(key -> matchKey(pattern, key))
-                .collect(Collectors.toSet());
+        Predicate<String> matcher = matcher(pattern);
+        String prefix = literalPrefix(pattern);
+        long now = System.nanoTime();
+        Set<String> keys = new HashSet<>();
+        for (Map.Entry<String, Set<Node>> entry : index.entrySet()) {
+            // 匹配的KEY以 prefix 开头, 也以所在的索引KEY开头, 两者必然有一个是另一个的前缀
+            String indexKey = entry.getKey();
+            if (!indexKey.startsWith(prefix) && !prefix.startsWith(indexKey)) {
+                continue;
+            }
+            for (Node node : entry.getValue()) {
+                if (node.isExpired(now)) {
+                    continue;
+                }
+                String key = node.renderKey();
+                if (matcher.test(key)) {
+                    keys.add(key);
+                }
+            }
+        }
+        for (LongKeyStore store : longStores.values()) {
+            String namespace = ExpandKey.renderNamespace(store.getNamespace(), store.getGeneration());
+            if (!namespace.startsWith(prefix) && !prefix.startsWith(namespace)) {
+                continue;
+            }
+            store.forEach((id, expandEntry) -> {
+                String key = namespace + ":" + expandEntry.getStatus() + ":" + id;
+                if (matcher.test(key)) {
+                    keys.add(key);
+                }
+            });
+        }
+        return keys;
+    }
+
+    /**
+     * pattern 中第一个通配符或正则符号之前的部分
+     *
+     * @param pattern
+     * @return
+     */
+    private static String literalPrefix(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if ("*?[]{}()\\.+^$|".indexOf(pattern.charAt(i)) >= 0) {
+                return pattern.substring(0, i);
+            }
+        }
+        return pattern;
+    }
+
+    /**
+     * 增加代数，旧的缓存不会再被读到，之后自然过期或被淘汰
+     */
+    @Override
+    public void invalidate(String beanName) {
+        ExpandGenerations.increment(beanName);
+    }
+
+    /**
+     * 增加代数，旧的缓存不会再被读到，之后自然过期或被淘汰
+     */
+    @Override
+    public void invalidate(String beanName, String method) {
+        ExpandGenerations.increment(beanName, method);
     }
 
     @Override
     public void clear() {
-        this.cacheMap.clear();
-        timer.purge();
+        lock.lock();
+        try {
+            cacheMap.clear();
+            index.clear();
+            for (LongKeyStore store : longStores.values()) {
+                store.retire();
+            }
+            longStores.clear();
+            Arrays.fill(wheel, null);
+            head = null;
+            tail = null;
+            weightedSize = 0;
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
     public void delete(String key) {
-        this.cacheMap.remove(key);
+        Node node = cacheMap.get(key);
+        if (node == null) {
+            // 按字符串KEY删除展开结果, 在命名空间匹配的索引中逐个比较
+            for (Map.Entry<String, Set<Node>> entry : index.entrySet()) {
+                if (node != null || !key.startsWith(entry.getKey() + ":")) {
+                    continue;
+                }
+                for (Node expandNode : entry.getValue()) {
+                    if (expandNode.key instanceof ExpandKey && key.equals(expandNode.renderKey())) {
+                        node = expandNode;
+                        break;
+                    }
+                }
+            }
+        }
+        if (node == null) {
+            deleteLong(key);
+            return;
+        }
+        lock.lock();
+        try {
+            removeNode(node);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 按字符串KEY删除整数字段值存储中的展开结果
+     *
+     * @param key 前缀:bean:方法[#代数]:状态:值
+     */
+    private void deleteLong(String key) {
+        for (LongKeyStore store : longStores.values()) {
+            String namespace = ExpandKey.renderNamespace(store.getNamespace(), store.getGeneration()) + ":";
+            if (!key.startsWith(namespace)) {
+                continue;
+            }
+            String rest = key.substring(namespace.length());
+            int split = rest.indexOf(':');
+            if (split < 0) {
+                continue;
+            }
+            long id;
+            try {
+                id = Long.parseLong(rest.substring(split + 1));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            ExpandEntry entry = store.get(id);
+            if (entry != null && entry.getStatus().equals(rest.substring(0, split))) {
+                store.remove(id);
+            }
+        }
+    }
+
+    @Override
+    public void delete(ExpandKey key) {
+        if (isLongKey(key)) {
+            LongKeyStore store = longStores.get(key.getNamespace());
+            if (store != null && store.getGeneration() == key.getGeneration()) {
+                store.remove((Long) key.getId());
+            }
+            return;
+        }
+        Node node = cacheMap.get(key);
+        if (node == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            removeNode(node);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 当前数量
+     *
+     * @return
+     */
+    public long size() {
+        return cacheMap.size() + longSize.get();
+    }
+
+    /**
+     * 当前权重
+     *
+     * @return
+     */
+    public long weightedSize() {
+        return weightedSize + longWeight.get();
+    }
+
+    /**
+     * 超过上限的淘汰次数, 不含过期
+     *
+     * @return
+     */
+    public long evictionCount() {
+        long count = evictionCount;
+        for (LongKeyStore store : longStores.values()) {
+            count += store.evictionCount();
+        }
+        return count;
+    }
+
+    /**
+     * 写入, 需持有锁
+     */
+    private void putNode(Object key, Object value, Duration timeout) {
+        long now = System.nanoTime();
+        expire(now);
+        sketch.increment(key.hashCode());
+        int weight = weigher.applyAsInt(key, value);
+        long expireAt = now + toNanos(timeout);
+        Node node = cacheMap.get(key);
+        if (node != null) {
+            weightedSize += weight - node.weight;
+            node.value = value;
+            node.weight = weight;
+            node.expireAt = expireAt;
+            node.accessed = true;
+            evict(null);
+            return;
+        }
+        node = new Node(key, value, weight, expireAt);
+        cacheMap.put(key, node);
+        index.computeIfAbsent(node.indexKey, (k) -> ConcurrentHashMap.newKeySet()).add(node);
+        weightedSize += weight;
+        linkLast(node);
+        schedule(node);
+        evict(node);
     }
 
     /**
-     * 计时到期
+     * 超过上限时淘汰, 需持有锁
+     *
+     * @param candidate 刚写入的值, 访问频率比淘汰对象低时不准入
+     */
+    private void evict(Node candidate) {
+        while (isOverflow()) {
+            if (isLongLarger() && evictLong()) {
+                continue;
+            }
+            Node victim = head;
+            if (victim == null) {
+                if (evictLong()) {
+                    continue;
+                }
+                return;
+            }
+            // 二次机会, 访问过的移到队尾
+            if (victim.accessed && victim != candidate) {
+                victim.accessed = false;
+                unlink(victim);
+                linkLast(victim);
+                continue;
+            }
+            if (candidate != null && candidate.alive && victim != candidate
+                    && sketch.frequency(victim.key.hashCode()) > sketch.frequency(candidate.key.hashCode())) {
+                victim = candidate;
+            }
+            removeNode(victim);
+            evictionCount++;
+        }
+    }
+
+    /**
+     * 是否超过上限
+     *
+     * @return
+     */
+    private boolean isOverflow() {
+        return cacheMap.size() + longSize.get() > maximumSize
+                || (maximumWeight > 0 && weightedSize + longWeight.get() > maximumWeight);
+    }
+
+    /**
+     * 整数字段值是否比其他值多, 超过最大权重时比较权重, 否则比较数量
+     *
+     * @return
+     */
+    private boolean isLongLarger() {
+        if (maximumWeight > 0 && weightedSize + longWeight.get() > maximumWeight) {
+            return longWeight.get() > weightedSize;
+        }
+        return longSize.get() > cacheMap.size();
+    }
+
+    /**
+     * 从最大的整数字段值存储中淘汰一个值, 需持有锁
+     *
+     * @return 是否删除了值
+     */
+    private boolean evictLong() {
+        LongKeyStore largest = null;
+        for (LongKeyStore store : longStores.values()) {
+            if (largest == null || store.size() > largest.size()) {
+                largest = store;
+            }
+        }
+        return largest != null && largest.evictOne();
+    }
+
+    /**
+     * 尝试推进时间轮, 其他线程持有锁时跳过
+     */
+    private void tryExpire() {
+        if (lock.tryLock()) {
+            try {
+                expire(System.nanoTime());
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 推进时间轮, 删除到期的值, 需持有锁
+     *
+     * @param now 当前时间
+     */
+    private void expire(long now) {
+        long tick = Math.floorDiv(now, TICK_NANOS);
+        if (tick <= currentTick) {
+            return;
+        }
+        // 间隔超过一圈只需处理一圈
+        long from = Math.max(currentTick + 1, tick - WHEEL_SIZE + 1);
+        currentTick = tick;
+        for (long t = from; t <= tick; t++) {
+            int index = (int) (t & (WHEEL_SIZE - 1));
+            Node node = wheel[index];
+            wheel[index] = null;
+            while (node != null) {
+                Node next = node.wheelNext;
+                node.wheelPrev = null;
+                node.wheelNext = null;
+                node.scheduled = false;
+                if (node.isExpired(now)) {
+                    removeNode(node);
+                } else {
+                    // 未到期(多圈或已续期)重新放入
+                    schedule(node);
+                }
+                node = next;
+            }
+        }
+    }
+
+    /**
+     * 按到期时间放入时间轮, 需持有锁
+     *
+     * @param node
+     */
+    private void schedule(Node node) {
+        long tick = Math.max(Math.floorDiv(node.expireAt, TICK_NANOS), currentTick + 1);
+        int index = (int) (tick & (WHEEL_SIZE - 1));
+        Node first = wheel[index];
+        node.wheelNext = first;
+        node.wheelPrev = null;
+        if (first != null) {
+            first.wheelPrev = node;
+        }
+        wheel[index] = node;
+        node.scheduled = true;
+        node.wheelIndex = index;
+    }
+
+    /**
+     * 删除, 需持有锁
+     *
+     * @param node
+     */
+    private void removeNode(Node node) {
+        if (!node.alive) {
+            return;
+        }
+        node.alive = false;
+        cacheMap.remove(node.key, node);
+        Set<Node> indexed = index.get(node.indexKey);
+        if (indexed != null) {
+            indexed.remove(node);
+            if (indexed.isEmpty()) {
+                index.remove(node.indexKey, indexed);
+            }
+        }
+        weightedSize -= node.weight;
+        unlink(node);
+        if (node.scheduled) {
+            if (node.wheelPrev != null) {
+                node.wheelPrev.wheelNext = node.wheelNext;
+            } else {
+                wheel[node.wheelIndex] = node.wheelNext;
+            }
+            if (node.wheelNext != null) {
+                node.wheelNext.wheelPrev = node.wheelPrev;
+            }
+            node.wheelPrev = null;
+            node.wheelNext = null;
+            node.scheduled = false;
+        }
+    }
+
+    private void linkLast(Node node) {
+        node.prev = tail;
+        node.next = null;
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+        }
+        tail = node;
+    }
+
+    private void unlink(Node node) {
+        if (node.prev == null) {
+            if (head == node) {
+                head = node.next;
+            }
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            if (tail == node) {
+                tail = node.prev;
+            }
+        } else {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+    }
+
+    /**
+     * 过期时长转纳秒, 超长的视为不过期
+     *
+     * @param timeout
+     * @return
+     */
+    private static long toNanos(Duration timeout) {
+        if (timeout.getSeconds() >= Integer.MAX_VALUE) {
+            return Long.MAX_VALUE >> 2;
+        }
+        return timeout.toNanos();
+    }
+
+    /**
+     * 估算占用字节数
      *
      * @param key
-     * @param expirationTimeMillis
+     * @param value
+     * @return
      */
-    private void scheduleExpiration(String key, long expirationTimeMillis) {
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                LOG.info("缓存KEY失效:{}", key);
-                cacheMap.remove(key);
+    static int estimateWeight(Object key, Object value) {
+        // 节点、Map条目和前缀索引的固定开销
+        int weight = 128;
+        if (key instanceof String) {
+            weight += 40 + ((String) key).length() * 2;
+        } else {
+            // 命名空间共享, 只计算KEY对象和字段值
+            weight += 32 + 24;
+        }
+        if (value instanceof ExpandEntry) {
+            weight += 16;
+            value = ((ExpandEntry) value).getValue();
+        }
+        if (value instanceof CharSequence) {
+            weight += 40 + ((CharSequence) value).length() * 2;
+        } else if (value instanceof Number || value instanceof Boolean) {
+            weight += 16;
+        } else if (value instanceof Collection) {
+            weight += 32 + ((Collection<?>) value).size() * 64;
+        } else if (value instanceof Map) {
+            weight += 48 + ((Map<?, ?>) value).size() * 128;
+        } else if (value != null) {
+            weight += 128;
+        }
+        return weight;
+    }
+
+    /**
+     * 缓存节点
+     */
+    private static final class Node {
+
+        final Object key;
+
+        /**
+         * 前缀索引KEY
+         */
+        final String indexKey;
+
+        volatile Object value;
+
+        volatile long expireAt;
+
+        volatile boolean accessed;
+
+        int weight;
+
+        boolean alive = true;
+
+        /**
+         * 淘汰队列
+         */
+        Node prev;
+
+        Node next;
+
+        /**
+         * 时间轮
+         */
+        Node wheelPrev;
+
+        Node wheelNext;
+
+        int wheelIndex;
+
+        boolean scheduled;
+
+        Node(Object key, Object value, int weight, long expireAt) {
+            this.key = key;
+            this.indexKey = indexKey(key);
+            this.value = value;
+            this.weight = weight;
+            this.expireAt = expireAt;
+        }
+
+        /**
+         * 前缀索引KEY, 展开结果为命名空间, 字符串KEY为最后一个冒号之前的部分
+         *
+         * @param key String或ExpandKey
+         * @return
+         */
+        static String indexKey(Object key) {
+            if (key instanceof ExpandKey) {
+                return ((ExpandKey) key).renderNamespace();
+            }
+            String stringKey = (String) key;
+            int index = stringKey.lastIndexOf(':');
+            return index < 0 ? "" : stringKey.substring(0, index);
+        }
+
+        boolean isExpired(long now) {
+            return now - expireAt >= 0;
+        }
+
+        /**
+         * 字符串KEY
+         *
+         * @return
+         */
+        String renderKey() {
+            if (key instanceof ExpandKey) {
+                return ((ExpandKey) key).render(((ExpandEntry) value).getStatus());
             }
-        }, expirationTimeMillis);
+            return (String) key;
+        }
     }
 }
@@ -0,0 +1,456 @@
+package com.github.stupdit1t.jackson.expand.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+
+/**
+ * 整数字段值的展开结果存储
+ * <p>
+ * 一个命名空间(前缀:bean:方法 + 代数)一个，开放寻址的 long -> {@link ExpandEntry} 表，KEY、值、过期时间分别保存在数组中，
+ * 查询不装箱、不创建KEY对象。读取使用乐观读不加锁，写入加写锁；满了以后按 CLOCK 二次机会淘汰，优先淘汰已过期的值
+ * <p>
+ * 由 {@link LocalCache} 创建和管理，没有额外参数的整数字段值自动使用。数量和权重同时累加到 {@link LocalCache} 的总量中，
+ * 与其他缓存共用最大数量和最大权重，超出时由 {@link LocalCache} 调用 {@link #evictOne()} 淘汰
+ *
+ * @author 625
+ */
+public final class LongKeyStore {
+
+    /**
+     * 最小容量
+     */
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * 命名空间, 前缀:bean:方法
+     */
+    private final String namespace;
+
+    /**
+     * 代数
+     */
+    private final long generation;
+
+    /**
+     * 最大数量
+     */
+    private final int maximumSize;
+
+    private final StampedLock lock = new StampedLock();
+
+    private volatile Table table = new Table(MIN_CAPACITY);
+
+    private volatile int size;
+
+    /**
+     * CLOCK 指针
+     */
+    private int hand;
+
+    private volatile long evictionCount;
+
+    /**
+     * 当前权重
+     */
+    private volatile long weightedSize;
+
+    /**
+     * 所属缓存的整数存储总数量
+     */
+    private final AtomicLong sharedSize;
+
+    /**
+     * 所属缓存的整数存储总权重
+     */
+    private final AtomicLong sharedWeight;
+
+    /**
+     * 是否已废弃, 代数变大或清空缓存后不再读写
+     */
+    private volatile boolean retired;
+
+    LongKeyStore(String namespace, long generation, long maximumSize, AtomicLong sharedSize, AtomicLong sharedWeight) {
+        this.namespace = namespace;
+        this.generation = generation;
+        this.maximumSize = (int) Math.min(maximumSize, 1 << 29);
+        this.sharedSize = sharedSize;
+        this.sharedWeight = sharedWeight;
+    }
+
+    /**
+     * 获取展开结果
+     *
+     * @param id 字段值
+     * @return 不存在或已过期返回null
+     */
+    public ExpandEntry get(long id) {
+        long stamp = lock.tryOptimisticRead();
+        ExpandEntry entry = find(table, id);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                entry = find(table, id);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * 查找, 乐观读时可能读到写入中的数据, 由调用方校验
+     */
+    private static ExpandEntry find(Table table, long id) {
+        int mask = table.mask;
+        int index = index(id, mask);
+        for (int i = 0; i <= mask; i++) {
+            Object value = table.values[index];
+            if (value == null) {
+                return null;
+            }
+            if (table.keys[index] == id) {
+                if (System.nanoTime() - table.expireAt[index] >= 0) {
+                    return null;
+                }
+                table.accessed[index] = true;
+                return (ExpandEntry) value;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * 写入
+     *
+     * @param id       字段值
+     * @param entry    展开结果
+     * @param weight   权重
+     * @param expireAt 过期时间, System.nanoTime()
+     * @return 是否淘汰了其他值
+     */
+    boolean put(long id, ExpandEntry entry, int weight, long expireAt) {
+        long stamp = lock.writeLock();
+        try {
+            if (retired) {
+                return false;
+            }
+            Table table = this.table;
+            int index = slot(table, id);
+            if (table.values[index] != null) {
+                addWeight(weight - table.weights[index]);
+                table.values[index] = entry;
+                table.weights[index] = weight;
+                table.expireAt[index] = expireAt;
+                table.accessed[index] = true;
+                return false;
+            }
+            boolean evicted = false;
+            if (size >= maximumSize) {
+                evicted = evict(table);
+            } else if ((size + 1) * 2 > table.values.length) {
+                purgeExpired(table);
+                if ((size + 1) * 2 > table.values.length) {
+                    table = resize(table);
+                }
+            }
+            index = slot(table, id);
+            table.keys[index] = id;
+            table.values[index] = entry;
+            table.weights[index] = weight;
+            table.expireAt[index] = expireAt;
+            table.accessed[index] = false;
+            size++;
+            sharedSize.incrementAndGet();
+            addWeight(weight);
+            return evicted;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 删除
+     *
+     * @param id 字段值
+     * @return 是否存在
+     */
+    boolean remove(long id) {
+        long stamp = lock.writeLock();
+        try {
+            Table table = this.table;
+            int index = slot(table, id);
+            if (table.values[index] == null) {
+                return false;
+            }
+            removeAt(table, index);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 淘汰一个值, 优先淘汰已过期的, 所属缓存超过上限时调用
+     *
+     * @return 是否删除了值
+     */
+    boolean evictOne() {
+        long stamp = lock.writeLock();
+        try {
+            int before = size;
+            if (!retired && before > 0) {
+                evict(table);
+            }
+            return size < before;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 废弃, 清空并从所属缓存的总量中扣除, 之后的写入被忽略
+     */
+    void retire() {
+        long stamp = lock.writeLock();
+        try {
+            if (retired) {
+                return;
+            }
+            retired = true;
+            sharedSize.addAndGet(-size);
+            addWeight(-weightedSize);
+            table = new Table(MIN_CAPACITY);
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 遍历未过期的值
+     *
+     * @param consumer 字段值和展开结果
+     */
+    void forEach(BiConsumer<Long, ExpandEntry> consumer) {
+        long stamp = lock.readLock();
+        try {
+            Table table = this.table;
+            long now = System.nanoTime();
+            for (int i = 0; i < table.values.length; i++) {
+                if (table.values[i] != null && now - table.expireAt[i] < 0) {
+                    consumer.accept(table.keys[i], (ExpandEntry) table.values[i]);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * KEY所在位置或应插入的空位置, 需持有写锁
+     */
+    private static int slot(Table table, long id) {
+        int mask = table.mask;
+        int index = index(id, mask);
+        while (table.values[index] != null && table.keys[index] != id) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    /**
+     * CLOCK 淘汰一个值, 需持有写锁
+     *
+     * @return 是否淘汰了未过期的值
+     */
+    private boolean evict(Table table) {
+        int mask = table.mask;
+        long now = System.nanoTime();
+        for (int i = 0; i <= mask * 2 + 1; i++) {
+            int index = hand;
+            hand = (hand + 1) & mask;
+            if (table.values[index] == null) {
+                continue;
+            }
+            if (now - table.expireAt[index] >= 0) {
+                removeAt(table, index);
+                return false;
+            }
+            if (table.accessed[index]) {
+                table.accessed[index] = false;
+                continue;
+            }
+            removeAt(table, index);
+            evictionCount++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 删除所有过期的值, 需持有写锁
+     */
+    private void purgeExpired(Table table) {
+        long now = System.nanoTime();
+        int index = 0;
+        while (index < table.values.length) {
+            // 删除后会把后面的值移到当前位置, 当前位置需要再检查一次
+            if (table.values[index] != null && now - table.expireAt[index] >= 0) {
+                removeAt(table, index);
+            } else {
+                index++;
+            }
+        }
+    }
+
+    /**
+     * 扩容, 需持有写锁
+     */
+    private Table resize(Table old) {
+        Table table = new Table(old.values.length * 2);
+        for (int i = 0; i < old.values.length; i++) {
+            if (old.values[i] != null) {
+                int index = slot(table, old.keys[i]);
+                table.keys[index] = old.keys[i];
+                table.values[index] = old.values[i];
+                table.weights[index] = old.weights[i];
+                table.expireAt[index] = old.expireAt[i];
+                table.accessed[index] = old.accessed[i];
+            }
+        }
+        this.table = table;
+        hand = 0;
+        return table;
+    }
+
+    /**
+     * 删除并把后面同一探测链上的值前移, 不留删除标记, 需持有写锁
+     */
+    private void removeAt(Table table, int index) {
+        addWeight(-table.weights[index]);
+        sharedSize.decrementAndGet();
+        int mask = table.mask;
+        int empty = index;
+        int next = index;
+        while (true) {
+            table.values[empty] = null;
+            while (true) {
+                next = (next + 1) & mask;
+                if (table.values[next] == null) {
+                    size--;
+                    return;
+                }
+                int ideal = index(table.keys[next], mask);
+                // ideal 不在 (empty, next] 之间的可以前移
+                boolean movable = empty < next ? (ideal <= empty || ideal > next) : (ideal <= empty && ideal > next);
+                if (movable) {
+                    break;
+                }
+            }
+            table.keys[empty] = table.keys[next];
+            table.values[empty] = table.values[next];
+            table.weights[empty] = table.weights[next];
+            table.expireAt[empty] = table.expireAt[next];
+            table.accessed[empty] = table.accessed[next];
+            empty = next;
+        }
+    }
+
+    /**
+     * 调整权重, 需持有写锁
+     */
+    private void addWeight(long delta) {
+        weightedSize += delta;
+        sharedWeight.addAndGet(delta);
+    }
+
+    private static int index(long id, int mask) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * 当前数量, 含未清理的过期值
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 当前权重, 含未清理的过期值
+     *
+     * @return
+     */
+    public long weightedSize() {
+        return weightedSize;
+    }
+
+    /**
+     * 超过上限的淘汰次数, 不含过期
+     *
+     * @return
+     */
+    public long evictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * 是否已废弃, 废弃后读取不到任何值, 需要重新从 {@link LocalCache#longStore(String, long)} 获取
+     *
+     * @return
+     */
+    public boolean isRetired() {
+        return retired;
+    }
+
+    /**
+     * 数组表
+     */
+    private static final class Table {
+
+        final long[] keys;
+
+        /**
+         * 展开结果, null为空位置
+         */
+        final Object[] values;
+
+        /**
+         * 权重
+         */
+        final int[] weights;
+
+        /**
+         * 过期时间, System.nanoTime()
+         */
+        final long[] expireAt;
+
+        /**
+         * 写入后是否读取过
+         */
+        final boolean[] accessed;
+
+        final int mask;
+
+        Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+            this.weights = new int[capacity];
+            this.expireAt = new long[capacity];
+            this.accessed = new boolean[capacity];
+            this.mask = capacity - 1;
+        }
+    }
+}
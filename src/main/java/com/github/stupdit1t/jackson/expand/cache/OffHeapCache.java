@@ -0,0 +1,510 @@
+package com.github.stupdit1t.jackson.expand.cache;
+
+import com.github.stupdit1t.jackson.expand.serializer.ExpandSerializer;
+import com.github.stupdit1t.jackson.expand.util.LogLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * 堆外缓存
+ * <p>
+ * 缓存值通过 {@link ExpandCodec} 编码后保存在固定大小的直接内存中，堆上只保留KEY和位置索引，大量缓存值不增加GC压力。
+ * <p>
+ * 内存按KEY的hash分段，每段是一个环形日志: 新值追加写入，写满后从头覆盖最早写入的值；被覆盖的值如果写入后被读取过，
+ * 重新追加到末尾(二次机会)，近似LRU。过期读取时惰性判断
+ * <p>
+ * 单个值超过分段大小的 1/4 时不缓存
+ *
+ * @author 625
+ */
+public class OffHeapCache implements ExpandCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OffHeapCache.class);
+
+    /**
+     * 默认分段数
+     */
+    public static final int DEFAULT_SEGMENTS = 16;
+
+    /**
+     * 值的头部: 刷新时间、逻辑过期时间
+     */
+    private static final int HEADER = 16;
+
+    private final ExpandCodec codec;
+
+    private final Segment[] segments;
+
+    /**
+     * 编解码异常日志限流
+     */
+    private final LogLimiter logLimiter = new LogLimiter(Duration.ofSeconds(60));
+
+    /**
+     * @param capacity 内存大小, 字节
+     * @param codec    编解码
+     */
+    public OffHeapCache(long capacity, ExpandCodec codec) {
+        this(capacity, DEFAULT_SEGMENTS, codec);
+    }
+
+    /**
+     * @param capacity 内存大小, 字节
+     * @param segments 分段数, 2的幂
+     * @param codec    编解码
+     */
+    public OffHeapCache(long capacity, int segments, ExpandCodec codec) {
+        if (Integer.bitCount(segments) != 1) {
+            throw new IllegalArgumentException("segments must be a power of two: " + segments);
+        }
+        long segmentCapacity = capacity / segments;
+        if (segmentCapacity < HEADER * 64 || segmentCapacity > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("capacity / segments must be between " + HEADER * 64 + " and " + Integer.MAX_VALUE + ": " + segmentCapacity);
+        }
+        this.codec = codec;
+        this.segments = new Segment[segments];
+        for (int i = 0; i < segments; i++) {
+            this.segments[i] = new Segment((int) segmentCapacity);
+        }
+    }
+
+    @Override
+    public <T> void put(String key, T value, Duration timeout) {
+        write(key, true, 0, 0, value, timeout);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T get(String key) {
+        ExpandEntry entry = read(key);
+        return entry == null ? null : (T) entry.getValue();
+    }
+
+    @Override
+    public void put(ExpandKey key, ExpandEntry entry, Duration timeout) {
+        write(key, entry.isOk(), entry.getRefreshAt(), entry.getExpireAt(), entry.getValue(), timeout);
+    }
+
+    @Override
+    public boolean storesEntryTime() {
+        return true;
+    }
+
+    @Override
+    public ExpandEntry get(ExpandKey key) {
+        return read(key);
+    }
+
+    @Override
+    public Set<String> keys(String pattern) {
+        Predicate<String> matcher = matcher(pattern);
+        long now = System.nanoTime();
+        Set<String> keys = new HashSet<>();
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                for (Slot slot : segment.index.values()) {
+                    if (slot.isExpired(now)) {
+                        continue;
+                    }
+                    String key = slot.renderKey();
+                    if (matcher.test(key)) {
+                        keys.add(key);
+                    }
+                }
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * 增加代数，旧的缓存不会再被读到，之后自然过期或被淘汰
+     */
+    @Override
+    public void invalidate(String beanName) {
+        ExpandGenerations.increment(beanName);
+    }
+
+    /**
+     * 增加代数，旧的缓存不会再被读到，之后自然过期或被淘汰
+     */
+    @Override
+    public void invalidate(String beanName, String method) {
+        ExpandGenerations.increment(beanName, method);
+    }
+
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.clear();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        if (segmentFor(key).remove(key)) {
+            return;
+        }
+        // 按字符串KEY删除展开结果, 需要逐个比较
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                Iterator<Slot> iterator = segment.index.values().iterator();
+                while (iterator.hasNext()) {
+                    Slot slot = iterator.next();
+                    if (slot.key instanceof ExpandKey && key.equals(slot.renderKey())) {
+                        iterator.remove();
+                        return;
+                    }
+                }
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void delete(ExpandKey key) {
+        segmentFor(key).remove(key);
+    }
+
+    /**
+     * 当前数量
+     *
+     * @return
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.index.size();
+        }
+        return size;
+    }
+
+    /**
+     * 被覆盖淘汰的次数, 不含过期
+     *
+     * @return
+     */
+    public long evictionCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            count += segment.evictionCount;
+        }
+        return count;
+    }
+
+    /**
+     * 编码后写入
+     */
+    private void write(Object key, boolean ok, long refreshAt, long expireAt, Object value, Duration timeout) {
+        byte[] payload;
+        try {
+            payload = codec.encode(value);
+        } catch (IOException | RuntimeException e) {
+            logError("编码", key, e);
+            return;
+        }
+        segmentFor(key).put(key, ok, refreshAt, expireAt, payload, System.nanoTime() + toNanos(timeout));
+    }
+
+    /**
+     * 读取后解码
+     */
+    private ExpandEntry read(Object key) {
+        Segment segment = segmentFor(key);
+        long[] header = new long[2];
+        boolean[] ok = new boolean[1];
+        byte[] payload = segment.get(key, header, ok);
+        if (payload == null) {
+            return null;
+        }
+        Object value;
+        try {
+            value = codec.decode(payload);
+        } catch (IOException | RuntimeException e) {
+            logError("解码", key, e);
+            segment.remove(key);
+            return null;
+        }
+        if (value == null) {
+            return null;
+        }
+        if (!ok[0]) {
+            return ExpandEntry.fail(value);
+        }
+        return header[0] == 0 && header[1] == 0 ? ExpandEntry.ok(value) : ExpandEntry.ok(value, header[0], header[1]);
+    }
+
+    private Segment segmentFor(Object key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return segments[hash & (segments.length - 1)];
+    }
+
+    /**
+     * 限流输出编解码异常
+     *
+     * @param type 编码 or 解码
+     * @param key  KEY
+     * @param e    异常
+     */
+    private void logError(String type, Object key, Exception e) {
+        long suppressed = logLimiter.tryAcquire(type);
+        if (suppressed >= 0) {
+            LOG.warn("堆外缓存{}失败{}：{}", type, suppressed > 0 ? "(期间忽略" + suppressed + "次)" : "", key, e);
+        }
+    }
+
+    /**
+     * 过期时长转纳秒, 超长的视为不过期
+     *
+     * @param timeout
+     * @return
+     */
+    private static long toNanos(Duration timeout) {
+        if (timeout.getSeconds() >= Integer.MAX_VALUE) {
+            return Long.MAX_VALUE >> 2;
+        }
+        return timeout.toNanos();
+    }
+
+    /**
+     * 分段, 一块直接内存组成的环形日志
+     */
+    private static final class Segment {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final ByteBuffer buffer;
+
+        private final int capacity;
+
+        /**
+         * 位置索引
+         */
+        private final Map<Object, Slot> index = new HashMap<>();
+
+        /**
+         * 按写入顺序排列, 包含已删除或已覆盖的旧位置
+         */
+        private final ArrayDeque<Slot> queue = new ArrayDeque<>();
+
+        /**
+         * 逻辑写入位置, 只增不减, 物理位置为对容量取余
+         */
+        private long writePos;
+
+        private volatile long evictionCount;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+            this.buffer = ByteBuffer.allocateDirect(capacity);
+        }
+
+        /**
+         * 读取
+         *
+         * @param key    KEY
+         * @param header 输出刷新时间、逻辑过期时间
+         * @param ok     输出是否成功
+         * @return 编码后的值, 不存在或已过期返回null
+         */
+        byte[] get(Object key, long[] header, boolean[] ok) {
+            lock.lock();
+            try {
+                Slot slot = index.get(key);
+                if (slot == null) {
+                    return null;
+                }
+                if (slot.isExpired(System.nanoTime())) {
+                    index.remove(key);
+                    return null;
+                }
+                slot.accessed = true;
+                int position = (int) (slot.offset % capacity);
+                header[0] = buffer.getLong(position);
+                header[1] = buffer.getLong(position + 8);
+                ok[0] = slot.ok;
+                byte[] payload = new byte[slot.length - HEADER];
+                ByteBuffer view = buffer.duplicate();
+                view.position(position + HEADER);
+                view.get(payload);
+                return payload;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 写入, 超过分段 1/4 的值不写入
+         */
+        void put(Object key, boolean ok, long refreshAt, long expireAt, byte[] payload, long expireNanos) {
+            int length = HEADER + payload.length;
+            if (length > capacity / 4) {
+                remove(key);
+                return;
+            }
+            ByteBuffer record = ByteBuffer.allocate(length);
+            record.putLong(refreshAt).putLong(expireAt).put(payload);
+            lock.lock();
+            try {
+                index.remove(key);
+                Deque<Slot> rescued = new ArrayDeque<>();
+                append(new Slot(key, ok, length, expireNanos), record.array(), rescued);
+                // 被覆盖但读取过的值重新追加, 重新追加时可能再覆盖其他读取过的值
+                while (!rescued.isEmpty()) {
+                    Slot slot = rescued.pollFirst();
+                    if (!index.containsKey(slot.key)) {
+                        append(slot, slot.rescuedRecord, rescued);
+                    }
+                    slot.rescuedRecord = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 追加写入, 需持有锁
+         *
+         * @param slot    位置
+         * @param record  头部和编码后的值
+         * @param rescued 被覆盖但读取过的值
+         */
+        private void append(Slot slot, byte[] record, Deque<Slot> rescued) {
+            long position = writePos;
+            int physical = (int) (position % capacity);
+            // 剩余空间不够时跳到开头
+            if (physical + slot.length > capacity) {
+                position += capacity - physical;
+            }
+            long end = position + slot.length;
+            long now = System.nanoTime();
+            while (!queue.isEmpty() && queue.peekFirst().offset < end - capacity) {
+                Slot head = queue.pollFirst();
+                if (index.get(head.key) != head) {
+                    continue;
+                }
+                index.remove(head.key);
+                if (head.isExpired(now)) {
+                    continue;
+                }
+                if (head.accessed) {
+                    byte[] copy = new byte[head.length];
+                    ByteBuffer view = buffer.duplicate();
+                    view.position((int) (head.offset % capacity));
+                    view.get(copy);
+                    Slot again = new Slot(head.key, head.ok, head.length, head.expireNanos);
+                    again.rescuedRecord = copy;
+                    rescued.addLast(again);
+                    continue;
+                }
+                evictionCount++;
+            }
+            ByteBuffer view = buffer.duplicate();
+            view.position((int) (position % capacity));
+            view.put(record, 0, slot.length);
+            writePos = end;
+            slot.offset = position;
+            index.put(slot.key, slot);
+            queue.addLast(slot);
+        }
+
+        /**
+         * 删除
+         *
+         * @param key
+         * @return 是否存在
+         */
+        boolean remove(Object key) {
+            lock.lock();
+            try {
+                return index.remove(key) != null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 清空, 需持有锁
+         */
+        void clear() {
+            index.clear();
+            queue.clear();
+            writePos = 0;
+        }
+    }
+
+    /**
+     * 值在分段中的位置
+     */
+    private static final class Slot {
+
+        /**
+         * String或ExpandKey
+         */
+        final Object key;
+
+        final boolean ok;
+
+        /**
+         * 头部和编码后的值的长度
+         */
+        final int length;
+
+        final long expireNanos;
+
+        /**
+         * 逻辑位置
+         */
+        long offset;
+
+        /**
+         * 写入后是否读取过
+         */
+        boolean accessed;
+
+        /**
+         * 被覆盖前复制出的内容, 重新追加后清空
+         */
+        byte[] rescuedRecord;
+
+        Slot(Object key, boolean ok, int length, long expireNanos) {
+            this.key = key;
+            this.ok = ok;
+            this.length = length;
+            this.expireNanos = expireNanos;
+        }
+
+        boolean isExpired(long now) {
+            return now - expireNanos >= 0;
+        }
+
+        /**
+         * 字符串KEY
+         *
+         * @return
+         */
+        String renderKey() {
+            if (key instanceof ExpandKey) {
+                return ((ExpandKey) key).render(ok ? ExpandSerializer.OK : ExpandSerializer.FAIL);
+            }
+            return (String) key;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.github.stupdit1t.jackson.expand.cache;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.UUID;
+
+/**
+ * 两级缓存
+ * <p>
+ * 本地有界缓存(L1)在前，共享缓存(L2，如Redis)在后。读取先查L1，未命中查L2并回填L1；写入同时写两级，L1保存时间不超过 {@code localTimeout}。
+ * 删除和清空时先删L2再删L1，并通过 {@link ExpandInvalidationBus} 通知其他节点删除L1；
+ * 按 bean/方法 失效时先按KEY删除L2，再推进L1的代数并通知其他节点推进
+ * <p>
+ * 写入不发布失效消息，其他节点L1中的旧值最多保留 {@code localTimeout}
+ *
+ * @author 625
+ */
+public class TieredCache implements ExpandCache {
+
+    /**
+     * 本地缓存
+     */
+    private final LocalCache local;
+
+    /**
+     * 共享缓存
+     */
+    private final ExpandCache remote;
+
+    /**
+     * 本地缓存最长保存时间
+     */
+    private final Duration localTimeout;
+
+    /**
+     * 失效消息总线
+     */
+    private final ExpandInvalidationBus bus;
+
+    /**
+     * 节点标识
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * @param local        本地缓存
+     * @param remote       共享缓存
+     * @param localTimeout 本地缓存最长保存时间
+     * @param bus          失效消息总线
+     */
+    public TieredCache(LocalCache local, ExpandCache remote, Duration localTimeout, ExpandInvalidationBus bus) {
+        this.local = local;
+        this.remote = remote;
+        this.localTimeout = localTimeout;
+        this.bus = bus;
+        bus.subscribe(this::onInvalidation);
+    }
+
+    @Override
+    public <T> void put(String key, T value, Duration timeout) {
+        remote.put(key, value, timeout);
+        local.put(key, value, localTimeout(timeout));
+    }
+
+    @Override
+    public <T> T get(String key) {
+        T value = local.get(key);
+        if (value == null) {
+            value = remote.get(key);
+            if (value != null) {
+                local.put(key, value, localTimeout);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public void put(ExpandKey key, ExpandEntry entry, Duration timeout) {
+        remote.put(key, entry, timeout);
+        local.put(key, entry, localTimeout(timeout));
+    }
+
+    /**
+     * 共享缓存保存时间时才加上 stale-if-error, 否则共享缓存中的值会在缓存时间之后被读到
+     */
+    @Override
+    public boolean storesEntryTime() {
+        return remote.storesEntryTime();
+    }
+
+    @Override
+    public ExpandEntry get(ExpandKey key) {
+        ExpandEntry entry = local.get(key);
+        if (entry == null) {
+            entry = remote.get(key);
+            if (entry != null) {
+                local.put(key, entry, localTimeout);
+            }
+        }
+        return entry;
+    }
+
+    @Override
+    public Map<ExpandKey, ExpandEntry> multiGet(Collection<ExpandKey> keys) {
+        Map<ExpandKey, ExpandEntry> entries = local.multiGet(keys);
+        if (entries.size() == keys.size()) {
+            return entries;
+        }
+        List<ExpandKey> misses = new ArrayList<>(keys.size() - entries.size());
+        for (ExpandKey key : keys) {
+            if (!entries.containsKey(key)) {
+                misses.add(key);
+            }
+        }
+        Map<ExpandKey, ExpandEntry> remoteEntries = remote.multiGet(misses);
+        if (!remoteEntries.isEmpty()) {
+            local.multiPut(remoteEntries, localTimeout);
+            entries.putAll(remoteEntries);
+        }
+        return entries;
+    }
+
+    @Override
+    public void multiPut(Map<ExpandKey, ExpandEntry> entries, Duration timeout) {
+        remote.multiPut(entries, timeout);
+        local.multiPut(entries, localTimeout(timeout));
+    }
+
+    @Override
+    public void delete(ExpandKey key) {
+        remote.delete(key);
+        local.delete(key);
+        bus.publish(ExpandInvalidation.key(nodeId, key));
+    }
+
+    @Override
+    public void delete(String key) {
+        remote.delete(key);
+        local.delete(key);
+        bus.publish(ExpandInvalidation.stringKey(nodeId, key));
+    }
+
+    @Override
+    public void invalidate(String beanName) {
+        remote.invalidate(beanName);
+        bus.publish(ExpandInvalidation.generation(nodeId, beanName, ExpandGenerations.increment(beanName)));
+    }
+
+    @Override
+    public void invalidate(String beanName, String method) {
+        remote.invalidate(beanName, method);
+        bus.publish(ExpandInvalidation.generation(nodeId, beanName + ":" + method, ExpandGenerations.increment(beanName, method)));
+    }
+
+    @Override
+    public Set<String> keys(String pattern) {
+        return remote.keys(pattern);
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        local.clear();
+        bus.publish(ExpandInvalidation.clear(nodeId));
+    }
+
+    /**
+     * 收到其他节点的失效消息，删除本地缓存
+     *
+     * @param invalidation 失效消息
+     */
+    private void onInvalidation(ExpandInvalidation invalidation) {
+        if (nodeId.equals(invalidation.getSource())) {
+            return;
+        }
+        switch (invalidation.getType()) {
+            case ExpandInvalidation.KEY:
+                local.delete(invalidation.toExpandKey());
+                break;
+            case ExpandInvalidation.STRING_KEY:
+                local.delete(invalidation.getKey());
+                break;
+            case ExpandInvalidation.CLEAR:
+                local.clear();
+                break;
+            case ExpandInvalidation.GENERATION:
+                ExpandGenerations.advance(invalidation.getKey(), invalidation.getGeneration());
+                break;
+            default:
+        }
+    }
+
+    /**
+     * 本地缓存保存时间, 不超过共享缓存
+     *
+     * @param timeout 共享缓存保存时间
+     * @return
+     */
+    private Duration localTimeout(Duration timeout) {
+        return timeout.compareTo(localTimeout) < 0 ? timeout : localTimeout;
+    }
+
+    public LocalCache getLocal() {
+        return local;
+    }
+
+    public ExpandCache getRemote() {
+        return remote;
+    }
+}
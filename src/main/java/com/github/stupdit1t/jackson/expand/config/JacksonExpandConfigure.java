@@ -1,15 +1,53 @@
 package com.github.stupdit1t.jackson.expand.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.stupdit1t.jackson.expand.cache.ExpandCache;
+import com.github.stupdit1t.jackson.expand.cache.ExpandInvalidationBus;
+import com.github.stupdit1t.jackson.expand.cache.InMemoryInvalidationBus;
+import com.github.stupdit1t.jackson.expand.cache.JsonExpandCodec;
 import com.github.stupdit1t.jackson.expand.cache.LocalCache;
+import com.github.stupdit1t.jackson.expand.cache.OffHeapCache;
+import com.github.stupdit1t.jackson.expand.metrics.ExpandMetrics;
+import com.github.stupdit1t.jackson.expand.metrics.MicrometerExpandMetrics;
+import com.github.stupdit1t.jackson.expand.preload.ExpandPreloadProcessor;
+import com.github.stupdit1t.jackson.expand.preload.ExpandWarmUp;
+import com.github.stupdit1t.jackson.expand.serializer.ExpandCollector;
+import com.github.stupdit1t.jackson.expand.serializer.ExpandDispatcher;
+import com.github.stupdit1t.jackson.expand.serializer.ExpandPathModule;
+import com.github.stupdit1t.jackson.expand.serializer.ExpandWindowModule;
 import com.github.stupdit1t.jackson.expand.util.SpringUtil;
+import com.github.stupdit1t.jackson.expand.web.ExpandJackson2JsonEncoder;
+import com.github.stupdit1t.jackson.expand.web.ExpandResponseBodyAdvice;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.codec.CodecCustomizer;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
 public class JacksonExpandConfigure {
 
+    private static final Logger LOG = LoggerFactory.getLogger(JacksonExpandConfigure.class);
+
     @Bean
-    public SpringUtil springUtil() {
+    public static SpringUtil springUtil() {
         return new SpringUtil();
     }
 
@@ -24,13 +62,203 @@ public class JacksonExpandConfigure {
     }
 
     /**
-     * 默认缓存机制， 本地缓存
+     * 默认缓存机制， 本地缓存，开启 off-heap-cache 时使用堆外缓存
+     *
+     * @param properties
+     * @param objectMapper
+     * @return
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public ExpandCache coverCache(JacksonExpandProperties properties, ObjectProvider<ObjectMapper> objectMapper) {
+        if (properties.isOffHeapCache()) {
+            return new OffHeapCache(properties.getOffHeapCacheSize().toBytes(), new JsonExpandCodec(objectMapper.getIfAvailable(ObjectMapper::new)));
+        }
+        return new LocalCache(properties.getLocalCacheMaximumSize(), properties.getLocalCacheMaximumWeight());
+    }
+
+    /**
+     * 两级缓存的失效消息总线，默认只在当前JVM内传递
+     *
+     * @return
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public ExpandInvalidationBus expandInvalidationBus() {
+        return new InMemoryInvalidationBus();
+    }
+
+    /**
+     * 开启 near-cache 时自定义缓存前加一层本地缓存
+     *
+     * @return
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public static NearCachePostProcessor nearCachePostProcessor() {
+        return new NearCachePostProcessor();
+    }
+
+    /**
+     * 展开线程池，预加载等并发加载使用，队列满时由提交任务的线程直接执行
+     *
+     * @param properties
+     * @return
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean(name = "expandExecutor")
+    public ExecutorService expandExecutor(JacksonExpandProperties properties) {
+        if (properties.isExecutorVirtualThreads()) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                LOG.warn("当前JDK不支持虚拟线程，展开线程池使用平台线程");
+            }
+        }
+        AtomicInteger index = new AtomicInteger();
+        int threads = Math.max(1, properties.getExecutorThreads());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(Math.max(1, properties.getExecutorQueueCapacity())), (runnable) -> {
+            Thread thread = new Thread(runnable, "expand-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 展开值收集器，批量展开和预加载使用
+     *
+     * @param objectMapper
+     * @param properties
+     * @param expandExecutor
+     * @return
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public ExpandCollector expandCollector(ObjectProvider<ObjectMapper> objectMapper, JacksonExpandProperties properties, @Qualifier("expandExecutor") ExecutorService expandExecutor) {
+        return new ExpandCollector(objectMapper.getIfAvailable(ObjectMapper::new), properties, expandExecutor);
+    }
+
+    /**
+     * 流式展开，Spring Boot 自动注册到 ObjectMapper，配置 stream-window-size 后生效
+     *
+     * @param properties
+     * @return
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public ExpandWindowModule expandWindowModule(JacksonExpandProperties properties) {
+        return new ExpandWindowModule(properties.getStreamWindowSize());
+    }
+
+    /**
+     * 动态展开的字段path，Spring Boot 自动注册到 ObjectMapper，配置 dynamic-expand 后生效
+     *
+     * @param properties
+     * @return
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public ExpandPathModule expandPathModule(JacksonExpandProperties properties) {
+        return new ExpandPathModule(properties.isDynamicExpand());
+    }
+
+    /**
+     * 开启 dispatch 时跨请求合并批量调用
+     *
+     * @param properties
+     * @param expandExecutor
+     * @return
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "spring.jackson.expand", name = "dispatch", havingValue = "true")
+    public ExpandDispatcher expandDispatcher(JacksonExpandProperties properties, @Qualifier("expandExecutor") ExecutorService expandExecutor) {
+        return new ExpandDispatcher(expandExecutor, properties.getDispatchWindow(), properties.getDispatchMaxBatchSize(), properties.getLoadTimeout());
+    }
+
+    /**
+     * 启动预加载 @ExpandPreload 标注的方法
      *
      * @return
      */
     @Bean
     @ConditionalOnMissingBean
-    public ExpandCache coverCache() {
-        return new LocalCache();
+    public static ExpandPreloadProcessor expandPreloadProcessor() {
+        return new ExpandPreloadProcessor();
+    }
+
+    /**
+     * 开启 warm-up 时启动预热 @Expand 类的序列化器
+     *
+     * @param properties
+     * @param objectMapper
+     * @param expandCollector
+     * @return
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public ExpandWarmUp expandWarmUp(JacksonExpandProperties properties, ObjectProvider<ObjectMapper> objectMapper, ObjectProvider<ExpandCollector> expandCollector) {
+        return new ExpandWarmUp(properties, objectMapper, expandCollector);
+    }
+
+    /**
+     * 存在 MeterRegistry 时记录展开指标
+     */
+    @Configuration
+    @ConditionalOnClass(MeterRegistry.class)
+    static class MetricsExpandConfigure {
+
+        /**
+         * 没有 MeterRegistry 的 Bean 时不记录
+         *
+         * @param meterRegistry
+         * @param cache
+         * @return
+         */
+        @Bean
+        @ConditionalOnMissingBean
+        public ExpandMetrics expandMetrics(ObjectProvider<MeterRegistry> meterRegistry, ExpandCache cache) {
+            MeterRegistry registry = meterRegistry.getIfAvailable();
+            return registry == null ? ExpandMetrics.NONE : new MicrometerExpandMetrics(registry, cache);
+        }
+    }
+
+    /**
+     * Servlet 环境下响应写出前批量展开
+     */
+    @Configuration
+    @ConditionalOnClass(ResponseBodyAdvice.class)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    static class WebMvcExpandConfigure {
+
+        @Bean
+        public ExpandResponseBodyAdvice expandResponseBodyAdvice(ExpandCollector expandCollector) {
+            return new ExpandResponseBodyAdvice(expandCollector);
+        }
+    }
+
+    /**
+     * WebFlux 环境下编码前异步展开
+     */
+    @Configuration
+    @ConditionalOnClass({Jackson2JsonEncoder.class, CodecCustomizer.class})
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    static class WebFluxExpandConfigure {
+
+        /**
+         * 在 Spring Boot 默认的 Jackson 编解码配置之后替换编码器
+         *
+         * @param objectMapper
+         * @param expandCollector
+         * @param properties
+         * @return
+         */
+        @Bean
+        @Order(1)
+        public CodecCustomizer expandCodecCustomizer(ObjectProvider<ObjectMapper> objectMapper, ExpandCollector expandCollector, JacksonExpandProperties properties) {
+            return (configurer) -> configurer.defaultCodecs().jackson2JsonEncoder(new ExpandJackson2JsonEncoder(objectMapper.getIfAvailable(ObjectMapper::new), expandCollector, properties));
+        }
     }
 }
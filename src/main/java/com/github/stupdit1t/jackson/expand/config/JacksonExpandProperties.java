@@ -3,6 +3,13 @@ package com.github.stupdit1t.jackson.expand.config;
 import com.github.stupdit1t.jackson.expand.domain.ExpandStrategy;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @EnableConfigurationProperties(JacksonExpandProperties.class)
 @ConfigurationProperties(
@@ -22,6 +29,26 @@ public class JacksonExpandProperties {
      */
     private Integer cacheTimeout = 300;
 
+    /**
+     * 本地缓存最大数量，默认100000
+     */
+    private long localCacheMaximumSize = 100_000;
+
+    /**
+     * 本地缓存最大权重，即近似占用字节数，小于等于0不限制，默认不限制
+     */
+    private long localCacheMaximumWeight;
+
+    /**
+     * 默认缓存是否使用堆外内存，缓存值用 ObjectMapper 编码后保存在直接内存中，减少大量缓存值的GC压力，默认false
+     */
+    private boolean offHeapCache;
+
+    /**
+     * 堆外缓存大小，默认256MB
+     */
+    private DataSize offHeapCacheSize = DataSize.ofMegabytes(256);
+
     /**
      * 是否要动态展开，如果true。则通过接口url传参进行展开，默认不展开。
      * 如果代码里设置不展开，动态展开也不生效
@@ -58,6 +85,152 @@ public class JacksonExpandProperties {
      */
     private boolean canExpandToNotExistField = true;
 
+    /**
+     * 是否开启预加载，响应写出前遍历返回值，并发加载所有需要展开的值，默认false
+     * <p>
+     * 配置了批量方法的字段不受此开关影响, 始终批量加载
+     */
+    private boolean prefetch;
+
+    /**
+     * 展开线程池大小，默认CPU核数*2，最少8
+     */
+    private int executorThreads = Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
+
+    /**
+     * 展开线程池等待队列长度，队列满时由提交任务的线程直接执行，默认1024，使用虚拟线程时不生效
+     */
+    private int executorQueueCapacity = 1024;
+
+    /**
+     * 展开线程池是否使用虚拟线程，需要JDK21+，默认false
+     */
+    private boolean executorVirtualThreads;
+
+    /**
+     * 是否开启跨请求合并批量调用，配置了批量方法的字段，不同线程同一时间窗口内的展开合并为一次批量调用，默认false
+     */
+    private boolean dispatch;
+
+    /**
+     * 合并批量调用的时间窗口，默认2ms
+     */
+    private Duration dispatchWindow = Duration.ofMillis(2);
+
+    /**
+     * 合并批量调用的最大数量，达到后立即调用，默认100
+     */
+    private int dispatchMaxBatchSize = 100;
+
+    /**
+     * 未找到结果的缓存时间，单位秒，默认与缓存时间相同，0不缓存
+     */
+    private Integer cacheNotFoundTimeout;
+
+    /**
+     * 展开异常的缓存时间，单位秒，默认10秒，0不缓存
+     */
+    private Integer cacheErrorTimeout = 10;
+
+    /**
+     * 是否开启熔断，同一 bean/方法 连续异常达到阈值后直接返回原值不再调用，打开时间结束后放行一次探测调用，默认false
+     */
+    private boolean circuitBreaker;
+
+    /**
+     * 熔断的连续异常阈值，默认20
+     */
+    private int circuitBreakerFailureThreshold = 20;
+
+    /**
+     * 熔断打开时间，默认30s
+     */
+    private Duration circuitBreakerOpenDuration = Duration.ofSeconds(30);
+
+    /**
+     * 同一 bean 展开异常/未找到日志的输出间隔，期间的日志忽略只记录次数，小于等于0不限制，默认10s
+     */
+    private Duration errorLogInterval = Duration.ofSeconds(10);
+
+    /**
+     * 提前刷新阈值，占缓存时间的比例(0~1)，如0.8，超过后返回缓存值并后台刷新，0不刷新，默认0
+     * <p>
+     * 需要缓存支持 ExpandEntry 读写，如默认的本地缓存
+     */
+    private double refreshAhead;
+
+    /**
+     * 展开异常时继续使用过期值的时间，单位秒，0不使用，默认0
+     * <p>
+     * 需要缓存支持 ExpandEntry 读写，如默认的本地缓存
+     */
+    private int staleIfError;
+
+    /**
+     * 缓存时间随机减少的最大比例(0~1)，如0.1，避免同时加载的值同时过期，默认0
+     */
+    private double cacheTimeoutJitter;
+
+    /**
+     * 启动时是否等待 @ExpandPreload 预加载完成，默认false，不等待时预加载完成前就绪状态为 REFUSING_TRAFFIC
+     */
+    private boolean preloadAwait;
+
+    /**
+     * 启动时等待预加载的最长时间，默认60s
+     */
+    private Duration preloadTimeout = Duration.ofSeconds(60);
+
+    /**
+     * 是否在自定义缓存(如Redis)前加一层本地缓存，删除时通过 ExpandInvalidationBus 通知其他节点，默认false
+     */
+    private boolean nearCache;
+
+    /**
+     * 两级缓存的本地缓存最大数量，默认10000
+     */
+    private long nearCacheMaximumSize = 10_000;
+
+    /**
+     * 两级缓存的本地缓存保存时间，其他节点写入的新值最多延迟这么久可见，默认5s
+     */
+    private Duration nearCacheTimeout = Duration.ofSeconds(5);
+
+    /**
+     * 单次响应展开的时间预算，超过后未命中缓存的字段不再调用展开方法，直接输出降级值，默认不限制
+     */
+    private Duration timeBudget;
+
+    /**
+     * 按 bean 配置的时间预算，key: bean名称，与 time-budget 同时配置时取较小的
+     */
+    private Map<String, Duration> beanTimeBudget = new HashMap<>();
+
+    /**
+     * 单次展开方法调用的最长等待时间，超时后输出降级值，展开方法在后台继续执行并写入缓存，默认不限制
+     */
+    private Duration loadTimeout;
+
+    /**
+     * 超出时间预算时输出的值，默认输出字段原值
+     */
+    private String degradedValue;
+
+    /**
+     * 流式展开的窗口大小，大于0时超过该数量的集合以及 Iterator、Stream 序列化时每次预读一个窗口的元素批量展开后再写出，默认0不开启
+     */
+    private int streamWindowSize;
+
+    /**
+     * 启动时是否预热，扫描包含 @Expand 字段的类，提前创建序列化器并检查展开 bean 和方法，配置错误时启动失败，默认false
+     */
+    private boolean warmUp;
+
+    /**
+     * 预热扫描的包，默认 Spring Boot 应用所在的包
+     */
+    private List<String> warmUpPackages = new ArrayList<>();
+
     public String getCachePrefix() {
         return cachePrefix;
     }
@@ -74,6 +247,22 @@ public class JacksonExpandProperties {
         this.cacheTimeout = cacheTimeout;
     }
 
+    public long getLocalCacheMaximumSize() {
+        return localCacheMaximumSize;
+    }
+
+    public void setLocalCacheMaximumSize(long localCacheMaximumSize) {
+        this.localCacheMaximumSize = localCacheMaximumSize;
+    }
+
+    public long getLocalCacheMaximumWeight() {
+        return localCacheMaximumWeight;
+    }
+
+    public void setLocalCacheMaximumWeight(long localCacheMaximumWeight) {
+        this.localCacheMaximumWeight = localCacheMaximumWeight;
+    }
+
     public boolean isDynamicExpand() {
         return dynamicExpand;
     }
@@ -121,4 +310,244 @@ public class JacksonExpandProperties {
     public void setDynamicExpandCommonPrefix(String dynamicExpandCommonPrefix) {
         this.dynamicExpandCommonPrefix = dynamicExpandCommonPrefix;
     }
+
+    public boolean isPrefetch() {
+        return prefetch;
+    }
+
+    public void setPrefetch(boolean prefetch) {
+        this.prefetch = prefetch;
+    }
+
+    public int getExecutorThreads() {
+        return executorThreads;
+    }
+
+    public void setExecutorThreads(int executorThreads) {
+        this.executorThreads = executorThreads;
+    }
+
+    public int getExecutorQueueCapacity() {
+        return executorQueueCapacity;
+    }
+
+    public void setExecutorQueueCapacity(int executorQueueCapacity) {
+        this.executorQueueCapacity = executorQueueCapacity;
+    }
+
+    public boolean isExecutorVirtualThreads() {
+        return executorVirtualThreads;
+    }
+
+    public void setExecutorVirtualThreads(boolean executorVirtualThreads) {
+        this.executorVirtualThreads = executorVirtualThreads;
+    }
+
+    public boolean isDispatch() {
+        return dispatch;
+    }
+
+    public void setDispatch(boolean dispatch) {
+        this.dispatch = dispatch;
+    }
+
+    public Duration getDispatchWindow() {
+        return dispatchWindow;
+    }
+
+    public void setDispatchWindow(Duration dispatchWindow) {
+        this.dispatchWindow = dispatchWindow;
+    }
+
+    public int getDispatchMaxBatchSize() {
+        return dispatchMaxBatchSize;
+    }
+
+    public void setDispatchMaxBatchSize(int dispatchMaxBatchSize) {
+        this.dispatchMaxBatchSize = dispatchMaxBatchSize;
+    }
+
+    public Integer getCacheNotFoundTimeout() {
+        return cacheNotFoundTimeout;
+    }
+
+    public void setCacheNotFoundTimeout(Integer cacheNotFoundTimeout) {
+        this.cacheNotFoundTimeout = cacheNotFoundTimeout;
+    }
+
+    public Integer getCacheErrorTimeout() {
+        return cacheErrorTimeout;
+    }
+
+    public void setCacheErrorTimeout(Integer cacheErrorTimeout) {
+        this.cacheErrorTimeout = cacheErrorTimeout;
+    }
+
+    public boolean isCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public void setCircuitBreaker(boolean circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public int getCircuitBreakerFailureThreshold() {
+        return circuitBreakerFailureThreshold;
+    }
+
+    public void setCircuitBreakerFailureThreshold(int circuitBreakerFailureThreshold) {
+        this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+    }
+
+    public Duration getCircuitBreakerOpenDuration() {
+        return circuitBreakerOpenDuration;
+    }
+
+    public void setCircuitBreakerOpenDuration(Duration circuitBreakerOpenDuration) {
+        this.circuitBreakerOpenDuration = circuitBreakerOpenDuration;
+    }
+
+    public Duration getErrorLogInterval() {
+        return errorLogInterval;
+    }
+
+    public void setErrorLogInterval(Duration errorLogInterval) {
+        this.errorLogInterval = errorLogInterval;
+    }
+
+    public double getRefreshAhead() {
+        return refreshAhead;
+    }
+
+    public void setRefreshAhead(double refreshAhead) {
+        this.refreshAhead = refreshAhead;
+    }
+
+    public int getStaleIfError() {
+        return staleIfError;
+    }
+
+    public void setStaleIfError(int staleIfError) {
+        this.staleIfError = staleIfError;
+    }
+
+    public double getCacheTimeoutJitter() {
+        return cacheTimeoutJitter;
+    }
+
+    public void setCacheTimeoutJitter(double cacheTimeoutJitter) {
+        this.cacheTimeoutJitter = cacheTimeoutJitter;
+    }
+
+    public boolean isPreloadAwait() {
+        return preloadAwait;
+    }
+
+    public void setPreloadAwait(boolean preloadAwait) {
+        this.preloadAwait = preloadAwait;
+    }
+
+    public Duration getPreloadTimeout() {
+        return preloadTimeout;
+    }
+
+    public void setPreloadTimeout(Duration preloadTimeout) {
+        this.preloadTimeout = preloadTimeout;
+    }
+
+    public boolean isNearCache() {
+        return nearCache;
+    }
+
+    public void setNearCache(boolean nearCache) {
+        this.nearCache = nearCache;
+    }
+
+    public long getNearCacheMaximumSize() {
+        return nearCacheMaximumSize;
+    }
+
+    public void setNearCacheMaximumSize(long nearCacheMaximumSize) {
+        this.nearCacheMaximumSize = nearCacheMaximumSize;
+    }
+
+    public Duration getNearCacheTimeout() {
+        return nearCacheTimeout;
+    }
+
+    public void setNearCacheTimeout(Duration nearCacheTimeout) {
+        this.nearCacheTimeout = nearCacheTimeout;
+    }
+
+    public boolean isOffHeapCache() {
+        return offHeapCache;
+    }
+
+    public void setOffHeapCache(boolean offHeapCache) {
+        this.offHeapCache = offHeapCache;
+    }
+
+    public DataSize getOffHeapCacheSize() {
+        return offHeapCacheSize;
+    }
+
+    public void setOffHeapCacheSize(DataSize offHeapCacheSize) {
+        this.offHeapCacheSize = offHeapCacheSize;
+    }
+
+    public Duration getTimeBudget() {
+        return timeBudget;
+    }
+
+    public void setTimeBudget(Duration timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
+    public Map<String, Duration> getBeanTimeBudget() {
+        return beanTimeBudget;
+    }
+
+    public void setBeanTimeBudget(Map<String, Duration> beanTimeBudget) {
+        this.beanTimeBudget = beanTimeBudget;
+    }
+
+    public Duration getLoadTimeout() {
+        return loadTimeout;
+    }
+
+    public void setLoadTimeout(Duration loadTimeout) {
+        this.loadTimeout = loadTimeout;
+    }
+
+    public String getDegradedValue() {
+        return degradedValue;
+    }
+
+    public void setDegradedValue(String degradedValue) {
+        this.degradedValue = degradedValue;
+    }
+
+    public int getStreamWindowSize() {
+        return streamWindowSize;
+    }
+
+    public void setStreamWindowSize(int streamWindowSize) {
+        this.streamWindowSize = streamWindowSize;
+    }
+
+    public boolean isWarmUp() {
+        return warmUp;
+    }
+
+    public void setWarmUp(boolean warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    public List<String> getWarmUpPackages() {
+        return warmUpPackages;
+    }
+
+    public void setWarmUpPackages(List<String> warmUpPackages) {
+        this.warmUpPackages = warmUpPackages;
+    }
 }
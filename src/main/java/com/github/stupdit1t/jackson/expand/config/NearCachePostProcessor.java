@@ -0,0 +1,42 @@
+package com.github.stupdit1t.jackson.expand.config;
+
+import com.github.stupdit1t.jackson.expand.cache.ExpandCache;
+import com.github.stupdit1t.jackson.expand.cache.ExpandInvalidationBus;
+import com.github.stupdit1t.jackson.expand.cache.InMemoryInvalidationBus;
+import com.github.stupdit1t.jackson.expand.cache.LocalCache;
+import com.github.stupdit1t.jackson.expand.cache.TieredCache;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+/**
+ * 开启 near-cache 时，在自定义缓存(L2)前面加一层本地缓存(L1)，替换为 {@link TieredCache}
+ * <p>
+ * 默认的本地缓存和已经是两级缓存的不处理
+ *
+ * @author 625
+ */
+public class NearCachePostProcessor implements BeanPostProcessor, BeanFactoryAware {
+
+    private BeanFactory beanFactory;
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (!(bean instanceof ExpandCache) || bean instanceof LocalCache || bean instanceof TieredCache) {
+            return bean;
+        }
+        JacksonExpandProperties properties = beanFactory.getBean(JacksonExpandProperties.class);
+        if (!properties.isNearCache()) {
+            return bean;
+        }
+        ExpandInvalidationBus bus = beanFactory.getBeanProvider(ExpandInvalidationBus.class).getIfAvailable(InMemoryInvalidationBus::new);
+        LocalCache local = new LocalCache(properties.getNearCacheMaximumSize(), 0);
+        return new TieredCache(local, (ExpandCache) bean, properties.getNearCacheTimeout(), bus);
+    }
+}
@@ -25,6 +25,21 @@ public class SerializerParam {
      */
     private Boolean expand;
 
+    /**
+     * 提前刷新阈值, 占缓存时间的比例
+     */
+    private Double refreshAhead;
+
+    /**
+     * 展开异常时继续使用过期值的时间, 单位秒
+     */
+    private Integer staleIfError;
+
+    /**
+     * 缓存时间随机减少的最大比例
+     */
+    private Double cacheTimeJitter;
+
     public Object[] getRemoteParams() {
         return remoteParams;
     }
@@ -56,4 +71,28 @@ public class SerializerParam {
     public void setExpand(Boolean expand) {
         this.expand = expand;
     }
+
+    public Double getRefreshAhead() {
+        return refreshAhead;
+    }
+
+    public void setRefreshAhead(Double refreshAhead) {
+        this.refreshAhead = refreshAhead;
+    }
+
+    public Integer getStaleIfError() {
+        return staleIfError;
+    }
+
+    public void setStaleIfError(Integer staleIfError) {
+        this.staleIfError = staleIfError;
+    }
+
+    public Double getCacheTimeJitter() {
+        return cacheTimeJitter;
+    }
+
+    public void setCacheTimeJitter(Double cacheTimeJitter) {
+        this.cacheTimeJitter = cacheTimeJitter;
+    }
 }
@@ -0,0 +1,87 @@
+package com.github.stupdit1t.jackson.expand.metrics;
+
+/**
+ * 展开指标
+ * <p>
+ * 按 bean/方法 获取记录器，序列化器创建时获取一次。未开启指标时使用 {@link #NONE}，记录方法都是空实现
+ *
+ * @author 625
+ */
+public interface ExpandMetrics {
+
+    /**
+     * 不记录
+     */
+    ExpandMetrics NONE = (beanName, method) -> Recorder.NONE;
+
+    /**
+     * 获取 bean/方法 的记录器
+     *
+     * @param beanName bean名称
+     * @param method   方法
+     * @return
+     */
+    Recorder recorder(String beanName, String method);
+
+    /**
+     * bean/方法 的指标记录器
+     */
+    interface Recorder {
+
+        /**
+         * 不记录
+         */
+        Recorder NONE = new Recorder() {
+        };
+
+        /**
+         * 缓存命中
+         */
+        default void hit() {
+        }
+
+        /**
+         * 缓存命中失败结果(未找到或异常)
+         */
+        default void negativeHit() {
+        }
+
+        /**
+         * 缓存未命中
+         */
+        default void miss() {
+        }
+
+        /**
+         * 开始调用展开方法
+         *
+         * @return 开始时间, 传给 {@link #loadFinished}
+         */
+        default long loadStarted() {
+            return 0;
+        }
+
+        /**
+         * 展开方法调用结束
+         *
+         * @param startTime 开始时间
+         * @param success   是否成功
+         */
+        default void loadFinished(long startTime, boolean success) {
+        }
+
+        /**
+         * 等待其他线程加载相同KEY的时间
+         *
+         * @param nanos 纳秒
+         */
+        default void waited(long nanos) {
+        }
+
+        /**
+         * 超出时间预算, 没有调用展开方法或没有等到结果
+         */
+        default void degraded() {
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.github.stupdit1t.jackson.expand.metrics;
+
+import com.github.stupdit1t.jackson.expand.cache.ExpandCache;
+import com.github.stupdit1t.jackson.expand.cache.LocalCache;
+import com.github.stupdit1t.jackson.expand.cache.OffHeapCache;
+import com.github.stupdit1t.jackson.expand.cache.TieredCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Micrometer 展开指标
+ * <ul>
+ *     <li>expand.cache: 缓存查询次数, result=hit/negative/miss</li>
+ *     <li>expand.load: 展开方法调用耗时, outcome=success/error, 带 0.5/0.95/0.99 分位</li>
+ *     <li>expand.load.active: 调用中的数量</li>
+ *     <li>expand.wait: 等待其他线程加载相同KEY的时间</li>
+ *     <li>expand.degraded: 超出时间预算降级输出的字段数量</li>
+ *     <li>expand.local.cache.size / expand.local.cache.evictions: 本地缓存数量和淘汰次数</li>
+ * </ul>
+ * 都带 bean、method 标签(本地缓存除外)，两级缓存记录的是本地缓存
+ *
+ * @author 625
+ */
+public class MicrometerExpandMetrics implements ExpandMetrics {
+
+    private final MeterRegistry registry;
+
+    /**
+     * 记录器, key: bean:方法
+     */
+    private final Map<String, Recorder> recorders = new ConcurrentHashMap<>();
+
+    public MicrometerExpandMetrics(MeterRegistry registry, ExpandCache cache) {
+        this.registry = registry;
+        if (cache instanceof TieredCache) {
+            cache = ((TieredCache) cache).getLocal();
+        }
+        if (cache instanceof LocalCache) {
+            LocalCache localCache = (LocalCache) cache;
+            Gauge.builder("expand.local.cache.size", localCache, LocalCache::size)
+                    .description("本地缓存数量")
+                    .register(registry);
+            FunctionCounter.builder("expand.local.cache.evictions", localCache, LocalCache::evictionCount)
+                    .description("本地缓存淘汰次数")
+                    .register(registry);
+        } else if (cache instanceof OffHeapCache) {
+            OffHeapCache offHeapCache = (OffHeapCache) cache;
+            Gauge.builder("expand.local.cache.size", offHeapCache, OffHeapCache::size)
+                    .description("本地缓存数量")
+                    .register(registry);
+            FunctionCounter.builder("expand.local.cache.evictions", offHeapCache, OffHeapCache::evictionCount)
+                    .description("本地缓存淘汰次数")
+                    .register(registry);
+        }
+    }
+
+    @Override
+    public Recorder recorder(String beanName, String method) {
+        return recorders.computeIfAbsent(beanName + ":" + method, (key) -> new MicrometerRecorder(Tags.of("bean", beanName, "method", method)));
+    }
+
+    /**
+     * bean/方法 的记录器
+     */
+    private class MicrometerRecorder implements Recorder {
+
+        private final Counter hit;
+
+        private final Counter negativeHit;
+
+        private final Counter miss;
+
+        private final Timer success;
+
+        private final Timer error;
+
+        private final Timer wait;
+
+        private final Counter degraded;
+
+        private final AtomicInteger active = new AtomicInteger();
+
+        MicrometerRecorder(Tags tags) {
+            this.hit = cacheCounter(tags, "hit");
+            this.negativeHit = cacheCounter(tags, "negative");
+            this.miss = cacheCounter(tags, "miss");
+            this.success = loadTimer(tags, "success");
+            this.error = loadTimer(tags, "error");
+            this.wait = Timer.builder("expand.wait")
+                    .description("等待其他线程加载相同KEY的时间")
+                    .tags(tags)
+                    .register(registry);
+            this.degraded = Counter.builder("expand.degraded")
+                    .description("超出时间预算降级输出的字段数量")
+                    .tags(tags)
+                    .register(registry);
+            Gauge.builder("expand.load.active", active, AtomicInteger::get)
+                    .description("调用中的展开方法数量")
+                    .tags(tags)
+                    .register(registry);
+        }
+
+        private Counter cacheCounter(Tags tags, String result) {
+            return Counter.builder("expand.cache")
+                    .description("展开缓存查询次数")
+                    .tags(tags)
+                    .tag("result", result)
+                    .register(registry);
+        }
+
+        private Timer loadTimer(Tags tags, String outcome) {
+            return Timer.builder("expand.load")
+                    .description("展开方法调用耗时")
+                    .tags(tags)
+                    .tag("outcome", outcome)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(registry);
+        }
+
+        @Override
+        public void hit() {
+            hit.increment();
+        }
+
+        @Override
+        public void negativeHit() {
+            negativeHit.increment();
+        }
+
+        @Override
+        public void miss() {
+            miss.increment();
+        }
+
+        @Override
+        public long loadStarted() {
+            active.incrementAndGet();
+            return System.nanoTime();
+        }
+
+        @Override
+        public void loadFinished(long startTime, boolean success) {
+            active.decrementAndGet();
+            (success ? this.success : this.error).record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void waited(long nanos) {
+            wait.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void degraded() {
+            degraded.increment();
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.github.stupdit1t.jackson.expand.preload;
+
+import com.github.stupdit1t.jackson.expand.annotation.ExpandPreload;
+import com.github.stupdit1t.jackson.expand.cache.ExpandCache;
+import com.github.stupdit1t.jackson.expand.cache.ExpandEntry;
+import com.github.stupdit1t.jackson.expand.cache.ExpandGenerations;
+import com.github.stupdit1t.jackson.expand.cache.ExpandKey;
+import com.github.stupdit1t.jackson.expand.config.JacksonExpandProperties;
+import com.github.stupdit1t.jackson.expand.handler.rsp.ResponseHandler;
+import com.github.stupdit1t.jackson.expand.util.AsyncUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 启动预加载
+ * <p>
+ * 收集所有 bean 上 {@link ExpandPreload} 标注的方法，容器刷新完成后在展开线程池并发调用，结果批量写入缓存，按需定时刷新。
+ * 预加载完成前就绪状态为 REFUSING_TRAFFIC，开启 preload-await 时直接等待完成再继续启动
+ *
+ * @author 625
+ */
+public class ExpandPreloadProcessor implements BeanPostProcessor, ApplicationContextAware, ApplicationListener<ApplicationEvent>, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExpandPreloadProcessor.class);
+
+    /**
+     * 预加载任务
+     */
+    private final List<PreloadTask> tasks = new CopyOnWriteArrayList<>();
+
+    private ApplicationContext applicationContext;
+
+    /**
+     * 全部预加载完成
+     */
+    private volatile CompletableFuture<Void> preloading;
+
+    /**
+     * 是否全部完成
+     */
+    private volatile boolean preloaded;
+
+    /**
+     * 是否因为预加载未完成拒绝了就绪
+     */
+    private boolean refused;
+
+    /**
+     * 定时刷新
+     */
+    private ScheduledExecutorService scheduler;
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        Class<?> targetClass = AopUtils.getTargetClass(bean);
+        if (!AnnotationUtils.isCandidateClass(targetClass, ExpandPreload.class)) {
+            return bean;
+        }
+        Map<Method, ExpandPreload> methods = MethodIntrospector.selectMethods(targetClass,
+                (MethodIntrospector.MetadataLookup<ExpandPreload>) (method) -> AnnotatedElementUtils.findMergedAnnotation(method, ExpandPreload.class));
+        methods.forEach((method, preload) -> {
+            if (method.getParameterCount() != 0) {
+                throw new IllegalStateException("@ExpandPreload method must have no parameters: " + method);
+            }
+            Method invocableMethod = AopUtils.selectInvocableMethod(method, bean.getClass());
+            ReflectionUtils.makeAccessible(invocableMethod);
+            tasks.add(new PreloadTask(beanName, bean, invocableMethod, preload));
+        });
+        return bean;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof ContextRefreshedEvent && ((ContextRefreshedEvent) event).getApplicationContext() == applicationContext) {
+            JacksonExpandProperties properties = applicationContext.getBean(JacksonExpandProperties.class);
+            CompletableFuture<Void> future = start(properties);
+            if (properties.isPreloadAwait()) {
+                await(future, properties.getPreloadTimeout());
+            }
+        } else if (event instanceof AvailabilityChangeEvent && ((AvailabilityChangeEvent<?>) event).getState() == ReadinessState.ACCEPTING_TRAFFIC) {
+            refuseUntilPreloaded();
+        }
+    }
+
+    /**
+     * 并发执行所有预加载
+     *
+     * @param properties 配置
+     * @return 全部完成
+     */
+    private synchronized CompletableFuture<Void> start(JacksonExpandProperties properties) {
+        if (preloading != null) {
+            return preloading;
+        }
+        if (tasks.isEmpty()) {
+            preloaded = true;
+            preloading = CompletableFuture.completedFuture(null);
+            return preloading;
+        }
+        ExpandCache cache = applicationContext.getBean(ExpandCache.class);
+        Executor executor = applicationContext.getBean("expandExecutor", Executor.class);
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[tasks.size()];
+        for (int i = 0; i < futures.length; i++) {
+            PreloadTask task = tasks.get(i);
+            futures[i] = CompletableFuture.runAsync(() -> task.load(cache, properties), executor);
+            if (task.preload.refreshInterval() > 0) {
+                long interval = task.preload.refreshInterval();
+                scheduler().scheduleWithFixedDelay(() -> executor.execute(() -> task.load(cache, properties)), interval, interval, TimeUnit.SECONDS);
+            }
+        }
+        preloading = CompletableFuture.allOf(futures).whenComplete((result, error) -> preloaded());
+        return preloading;
+    }
+
+    /**
+     * 等待预加载完成
+     *
+     * @param future  全部完成
+     * @param timeout 最长等待时间
+     */
+    private void await(CompletableFuture<Void> future, Duration timeout) {
+        try {
+            future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            LOG.warn("Expand预加载超过 {} 未完成，继续启动", timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // 每个任务自己记录异常
+        }
+    }
+
+    /**
+     * 应用就绪时预加载还未完成，先拒绝流量
+     */
+    private synchronized void refuseUntilPreloaded() {
+        if (preloading == null || preloaded || refused) {
+            return;
+        }
+        refused = true;
+        LOG.info("Expand预加载未完成，就绪状态改为 REFUSING_TRAFFIC");
+        AvailabilityChangeEvent.publish(applicationContext, ReadinessState.REFUSING_TRAFFIC);
+    }
+
+    /**
+     * 预加载完成，恢复就绪
+     */
+    private synchronized void preloaded() {
+        preloaded = true;
+        if (refused) {
+            refused = false;
+            AvailabilityChangeEvent.publish(applicationContext, ReadinessState.ACCEPTING_TRAFFIC);
+        }
+    }
+
+    /**
+     * 预加载是否全部完成
+     *
+     * @return
+     */
+    public boolean isPreloaded() {
+        return preloaded;
+    }
+
+    private ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            AtomicInteger index = new AtomicInteger();
+            scheduler = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+                Thread thread = new Thread(runnable, "expand-preload-" + index.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 预加载任务
+     */
+    private static class PreloadTask {
+
+        private final String beanName;
+
+        private final Object bean;
+
+        private final Method method;
+
+        private final ExpandPreload preload;
+
+        private final ResponseHandler responseHandler;
+
+        PreloadTask(String beanName, Object bean, Method method, ExpandPreload preload) {
+            this.beanName = beanName;
+            this.bean = bean;
+            this.method = method;
+            this.preload = preload;
+            try {
+                this.responseHandler = preload.responseHandler().getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("@ExpandPreload responseHandler can not be created: " + preload.responseHandler(), e);
+            }
+        }
+
+        /**
+         * 调用预加载方法，结果写入缓存。异常只记录日志，序列化时按原方式逐个展开
+         *
+         * @param cache      缓存
+         * @param properties 配置
+         */
+        void load(ExpandCache cache, JacksonExpandProperties properties) {
+            long start = System.currentTimeMillis();
+            Object result;
+            try {
+                result = AsyncUtil.await(method.invoke(bean));
+            } catch (InvocationTargetException e) {
+                LOG.error("【{}】 Expand预加载异常：", beanName, e.getTargetException());
+                return;
+            } catch (Exception e) {
+                LOG.error("【{}】 Expand预加载异常：", beanName, e);
+                return;
+            }
+            if (!(result instanceof Map)) {
+                LOG.error("【{}】 Expand预加载方法 {} 返回值不是Map", beanName, method.getName());
+                return;
+            }
+            String namespace = properties.getCachePrefix() + ":" + beanName + ":" + preload.method();
+            long generation = ExpandGenerations.of(beanName, preload.method()).get();
+            Duration timeout = Duration.ofSeconds(getCacheTime(properties));
+            Map<?, ?> values = (Map<?, ?>) result;
+            Map<ExpandKey, ExpandEntry> entries = new LinkedHashMap<>(values.size() * 2);
+            for (Map.Entry<?, ?> entry : values.entrySet()) {
+                if (entry.getKey() == null || entry.getValue() == null) {
+                    continue;
+                }
+                // 与序列化时展开方法的结果一样经过处理器, 处理失败的值不写入缓存, 序列化时按原方式展开
+                Object value;
+                try {
+                    value = responseHandler.handle(beanName, preload.method(), entry.getValue(), null, entry.getKey());
+                } catch (Exception e) {
+                    LOG.error("【{}】 Expand预加载处理 {} 异常：", beanName, entry.getKey(), e);
+                    continue;
+                }
+                if (value != null) {
+                    entries.put(new ExpandKey(namespace, "", entry.getKey(), generation), ExpandEntry.ok(value));
+                }
+            }
+            cache.multiPut(entries, timeout);
+            LOG.info("【{}】 Expand预加载 {} 条，耗时 {}ms", beanName, values.size(), System.currentTimeMillis() - start);
+        }
+
+        /**
+         * 缓存时间，开启定时刷新时默认为刷新间隔的2倍，刷新失败一次不会立即过期
+         *
+         * @param properties 配置
+         * @return
+         */
+        private long getCacheTime(JacksonExpandProperties properties) {
+            if (preload.cacheTime() > 0) {
+                return preload.cacheTime();
+            }
+            if (preload.refreshInterval() > 0) {
+                return preload.refreshInterval() * 2L;
+            }
+            return properties.getCacheTimeout();
+        }
+    }
+}
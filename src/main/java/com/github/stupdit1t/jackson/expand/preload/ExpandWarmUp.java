@@ -0,0 +1,184 @@
+package com.github.stupdit1t.jackson.expand.preload;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.github.stupdit1t.jackson.expand.annotation.Expand;
+import com.github.stupdit1t.jackson.expand.config.JacksonExpandProperties;
+import com.github.stupdit1t.jackson.expand.serializer.ExpandCollector;
+import com.github.stupdit1t.jackson.expand.serializer.ExpandSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackages;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.ClassMetadata;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 启动预热
+ * <p>
+ * 所有单例创建完成后扫描包含 {@link Expand} 字段的类，在应用的 ObjectMapper 上提前创建并缓存序列化器，
+ * 同时完成处理器实例化、展开 bean 和方法的解析，第一次请求不再承担这些开销。
+ * 展开方法不存在、bean 不存在等配置错误汇总后抛出，应用启动失败
+ *
+ * @author 625
+ */
+public class ExpandWarmUp implements SmartInitializingSingleton, BeanFactoryAware {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExpandWarmUp.class);
+
+    private final JacksonExpandProperties properties;
+
+    private final ObjectProvider<ObjectMapper> objectMapper;
+
+    private final ObjectProvider<ExpandCollector> expandCollector;
+
+    private BeanFactory beanFactory;
+
+    public ExpandWarmUp(JacksonExpandProperties properties, ObjectProvider<ObjectMapper> objectMapper, ObjectProvider<ExpandCollector> expandCollector) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.expandCollector = expandCollector;
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!properties.isWarmUp()) {
+            return;
+        }
+        List<String> packages = getPackages();
+        if (packages.isEmpty()) {
+            LOG.warn("Expand预热未找到扫描的包，请配置 warm-up-packages");
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Set<Class<?>> classes = scan(packages);
+        SerializerProvider provider = objectMapper.getIfAvailable(ObjectMapper::new).getSerializerProviderInstance();
+        ExpandCollector collector = expandCollector.getIfAvailable();
+        List<String> errors = new ArrayList<>();
+        for (Class<?> clazz : classes) {
+            warmUp(clazz, provider, collector, errors);
+        }
+        if (!errors.isEmpty()) {
+            throw new IllegalStateException("Expand预热失败:\n" + String.join("\n", errors));
+        }
+        LOG.info("Expand预热 {} 个类，耗时 {}ms", classes.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 预热一个类
+     *
+     * @param clazz     类
+     * @param provider  应用 ObjectMapper 的序列化上下文, 创建的序列化器缓存在 ObjectMapper 上
+     * @param collector 展开值收集器, 可能为null
+     * @param errors    配置错误
+     */
+    private void warmUp(Class<?> clazz, SerializerProvider provider, ExpandCollector collector, List<String> errors) {
+        JsonSerializer<Object> serializer;
+        try {
+            serializer = provider.findTypedValueSerializer(clazz, true, null);
+        } catch (JsonMappingException e) {
+            errors.add(clazz.getName() + ": " + e.getOriginalMessage());
+            return;
+        }
+        // 构建失败的字段不会展开, 序列化器是空值序列化器
+        Iterator<PropertyWriter> writers = serializer.properties();
+        while (writers.hasNext()) {
+            PropertyWriter writer = writers.next();
+            if (writer instanceof BeanPropertyWriter && writer.getAnnotation(Expand.class) != null
+                    && !(((BeanPropertyWriter) writer).getSerializer() instanceof ExpandSerializer)) {
+                errors.add(clazz.getName() + "." + writer.getName() + ": @Expand 序列化器创建失败，见上方异常日志");
+            }
+        }
+        if (collector != null) {
+            try {
+                collector.prepare(clazz);
+            } catch (RuntimeException e) {
+                errors.add(clazz.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 扫描的包
+     *
+     * @return
+     */
+    private List<String> getPackages() {
+        if (!properties.getWarmUpPackages().isEmpty()) {
+            return properties.getWarmUpPackages();
+        }
+        if (beanFactory != null && AutoConfigurationPackages.has(beanFactory)) {
+            return AutoConfigurationPackages.get(beanFactory);
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * 扫描包含 @Expand 字段或方法的类
+     *
+     * @param packages 包
+     * @return
+     */
+    private Set<Class<?>> scan(List<String> packages) {
+        ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter((metadataReader, metadataReaderFactory) -> {
+            ClassMetadata metadata = metadataReader.getClassMetadata();
+            if (metadata.isInterface() || metadata.isAnnotation()) {
+                return false;
+            }
+            try {
+                return hasExpand(ClassUtils.forName(metadata.getClassName(), classLoader));
+            } catch (Throwable e) {
+                LOG.debug("Expand预热跳过 {}: {}", metadata.getClassName(), e.toString());
+                return false;
+            }
+        });
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        for (String basePackage : packages) {
+            for (BeanDefinition definition : scanner.findCandidateComponents(basePackage)) {
+                classes.add(ClassUtils.resolveClassName(definition.getBeanClassName(), classLoader));
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * 类或父类是否有 @Expand 字段或方法
+     *
+     * @param clazz 类
+     * @return
+     */
+    private static boolean hasExpand(Class<?> clazz) {
+        AtomicBoolean found = new AtomicBoolean();
+        ReflectionUtils.doWithFields(clazz, (field) -> found.set(true), (field) -> !found.get() && field.isAnnotationPresent(Expand.class));
+        if (!found.get()) {
+            ReflectionUtils.doWithMethods(clazz, (method) -> found.set(true), (method) -> !found.get() && method.isAnnotationPresent(Expand.class));
+        }
+        return found.get();
+    }
+}
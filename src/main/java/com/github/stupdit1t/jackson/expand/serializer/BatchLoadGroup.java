@@ -0,0 +1,210 @@
+package com.github.stupdit1t.jackson.expand.serializer;
+
+import com.github.stupdit1t.jackson.expand.cache.ExpandKey;
+import com.github.stupdit1t.jackson.expand.util.AsyncUtil;
+import com.github.stupdit1t.jackson.expand.util.CircuitBreaker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+
+/**
+ * 同一个 bean/批量方法/额外参数/处理器/缓存配置 的待加载分组，只调用一次批量方法，结果一次批量写入缓存
+ *
+ * @author 625
+ */
+class BatchLoadGroup extends LoadGroup {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchLoadGroup.class);
+
+    BatchLoadGroup(ExpandSerializer serializer) {
+        super(serializer);
+    }
+
+    /**
+     * 调用批量方法，结果写入缓存并回调。批量调用失败时分组内的值都按失败处理，不再逐个展开
+     *
+     * @param consumer 结果回调, 参数为缓存KEY和展开结果
+     */
+    @Override
+    void load(BiConsumer<ExpandKey, Object> consumer) {
+        Object[] batchParams = getBatchParams();
+        if (batchParams == null) {
+            return;
+        }
+        Object loadResult;
+        try {
+            loadResult = serializer.getBatchLoadMethod().invokeAwait(batchParams);
+        } catch (Exception e) {
+            fail(e, consumer);
+            return;
+        }
+        accept((List<?>) batchParams[0], loadResult, consumer);
+    }
+
+    /**
+     * 异步调用批量方法，结果写入缓存并回调。批量调用失败时分组内的值都按失败处理，不再逐个展开
+     *
+     * @param consumer 结果回调, 参数为缓存KEY和展开结果
+     * @param executor 同步展开方法的线程池
+     * @return 全部加载完成
+     */
+    @Override
+    CompletableFuture<Void> loadAsync(BiConsumer<ExpandKey, Object> consumer, Executor executor) {
+        Object[] batchParams = getBatchParams();
+        if (batchParams == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return serializer.getBatchLoadMethod().invokeAsync(batchParams, executor)
+                .handle((loadResult, error) -> {
+                    if (error != null) {
+                        fail(AsyncUtil.unwrap(error), consumer);
+                    } else {
+                        accept((List<?>) batchParams[0], loadResult, consumer);
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * 批量调用失败, 分组内的值按失败结果回调并写入缓存, 避免一次批量失败放大成逐个调用
+     *
+     * @param error    异常
+     * @param consumer 结果回调
+     */
+    private void fail(Exception error, BiConsumer<ExpandKey, Object> consumer) {
+        logError(error);
+        Map<ExpandKey, Object> bindDatas = new LinkedHashMap<>();
+        for (Map.Entry<ExpandKey, Item> entry : items.entrySet()) {
+            if (entry.getValue().val != null) {
+                bindDatas.put(entry.getKey(), entry.getValue().bindData);
+            }
+        }
+        serializer.failAll(bindDatas, error).forEach(consumer);
+    }
+
+    /**
+     * 限流输出批量调用异常, 熔断打开时不输出
+     *
+     * @param error 异常
+     */
+    private void logError(Exception error) {
+        if (error instanceof CircuitBreaker.OpenException) {
+            return;
+        }
+        long suppressed = serializer.acquireLog("batch");
+        if (suppressed >= 0) {
+            LOG.error("【{}】 Expand批量异常{}：", serializer.getBeanName(), ExpandSerializer.suppressed(suppressed), error);
+        }
+    }
+
+    /**
+     * 组装批量方法参数
+     *
+     * @return 没有要加载的值返回null
+     */
+    private Object[] getBatchParams() {
+        Object[] args = serializer.getParams().getRemoteParams();
+        int argsLength = args == null ? 0 : args.length;
+        Set<Object> values = new LinkedHashSet<>();
+        for (Item item : items.values()) {
+            item.val = serializer.getParamsHandler().handleVal(item.bindData);
+            if (item.val != null) {
+                values.add(item.val);
+            }
+        }
+        if (values.isEmpty()) {
+            return null;
+        }
+        Object[] batchParams = new Object[argsLength + 1];
+        batchParams[0] = new ArrayList<>(values);
+        if (argsLength > 0) {
+            System.arraycopy(args, 0, batchParams, 1, argsLength);
+        }
+        return batchParams;
+    }
+
+    /**
+     * 处理批量方法结果, 写入缓存并回调
+     *
+     * @param values     传给批量方法的字段值
+     * @param loadResult 批量方法结果
+     * @param consumer   结果回调
+     */
+    private void accept(List<?> values, Object loadResult, BiConsumer<ExpandKey, Object> consumer) {
+        Map<?, ?> resultMap = toResultMap(values, loadResult);
+        if (resultMap == null) {
+            fail(new IllegalStateException("Expand批量方法 " + serializer.getBatchMethod() + " 返回值不是Map或与字段值数量相同的List"), consumer);
+            return;
+        }
+        Object[] args = serializer.getParams().getRemoteParams();
+        int argsLength = args == null ? 0 : args.length;
+        Map<String, Object> stringKeyMap = null;
+        Map<ExpandKey, Object> results = new LinkedHashMap<>();
+        Map<ExpandKey, Object> notFound = new LinkedHashMap<>();
+        for (Map.Entry<ExpandKey, Item> entry : items.entrySet()) {
+            Item item = entry.getValue();
+            if (item.val == null) {
+                continue;
+            }
+            Object result = resultMap.get(item.val);
+            // 返回Map的key类型和字段值类型不一致时，按字符串匹配，比如 Integer 和 Long
+            if (result == null && !resultMap.isEmpty()) {
+                if (stringKeyMap == null) {
+                    stringKeyMap = new HashMap<>(resultMap.size());
+                    for (Map.Entry<?, ?> resultEntry : resultMap.entrySet()) {
+                        stringKeyMap.put(String.valueOf(resultEntry.getKey()), resultEntry.getValue());
+                    }
+                }
+                result = stringKeyMap.get(String.valueOf(item.val));
+            }
+            Object[] objectParams = new Object[argsLength + 1];
+            objectParams[0] = item.val;
+            if (argsLength > 0) {
+                System.arraycopy(args, 0, objectParams, 1, argsLength);
+            }
+            try {
+                if (result != null) {
+                    result = serializer.getResponseHandler().handle(serializer.getBeanName(), serializer.getMethod(), result, item.writeClass, objectParams);
+                    results.put(entry.getKey(), result);
+                } else {
+                    result = item.bindData;
+                    notFound.put(entry.getKey(), result);
+                }
+            } catch (Exception e) {
+                result = serializer.fail(entry.getKey(), item.bindData, e);
+            }
+            consumer.accept(entry.getKey(), result);
+        }
+        // 成功和未找到的结果各一次批量写入缓存
+        serializer.putCacheInfos(results);
+        serializer.notFound(notFound);
+    }
+
+    /**
+     * 批量方法结果转为 字段值-展开结果 的Map
+     *
+     * @param values     传给批量方法的字段值
+     * @param loadResult 批量方法结果, Map 或者按字段值顺序一一对应的 List, List 中为null的视为未找到
+     * @return 其他类型或 List 数量不一致返回null
+     */
+    private static Map<?, ?> toResultMap(List<?> values, Object loadResult) {
+        if (loadResult instanceof Map) {
+            return (Map<?, ?>) loadResult;
+        }
+        if (!(loadResult instanceof List) || ((List<?>) loadResult).size() != values.size()) {
+            return null;
+        }
+        List<?> list = (List<?>) loadResult;
+        Map<Object, Object> resultMap = new HashMap<>(list.size() * 2);
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) != null) {
+                resultMap.put(values.get(i), list.get(i));
+            }
+        }
+        return resultMap;
+    }
+}
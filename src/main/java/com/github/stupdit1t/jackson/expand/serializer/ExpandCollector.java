@@ -0,0 +1,523 @@
+package com.github.stupdit1t.jackson.expand.serializer;
+
+import com.github.stupdit1t.jackson.expand.cache.ExpandEntry;
+import com.github.stupdit1t.jackson.expand.cache.ExpandKey;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.github.stupdit1t.jackson.expand.annotation.Expand;
+import com.github.stupdit1t.jackson.expand.config.JacksonExpandProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Array;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 展开值收集器
+ * <p>
+ * 序列化之前遍历一次返回值，收集 @Expand 字段值，一次批量读取缓存，未命中的按 bean/方法/额外参数/处理器/缓存配置 分组，各分组并发加载，
+ * 配置了批量方法的分组只调用一次批量方法。结果写入缓存和当前请求的 {@link ExpandContext}，序列化时直接命中
+ * <p>
+ * 未开启预加载时只收集配置了批量方法的字段
+ *
+ * @author 625
+ */
+public class ExpandCollector {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExpandCollector.class);
+
+    /**
+     * 序列化配置
+     */
+    private final SerializationConfig config;
+
+    /**
+     * 配置
+     */
+    private final JacksonExpandProperties properties;
+
+    /**
+     * 分组并发加载的线程池, 为null时在当前线程加载
+     */
+    private final Executor executor;
+
+    /**
+     * 类的属性缓存
+     */
+    private final Map<Class<?>, List<PropertyMeta>> propertyCache = new ConcurrentHashMap<>();
+
+    public ExpandCollector(ObjectMapper objectMapper, JacksonExpandProperties properties, Executor executor) {
+        this.config = objectMapper.getSerializationConfig();
+        this.properties = properties;
+        this.executor = executor;
+    }
+
+    /**
+     * 收集并批量加载，结果保存到当前请求的上下文
+     *
+     * @param value 待序列化的对象
+     */
+    public void collect(Object value) {
+        if (value == null) {
+            return;
+        }
+        Collector collector = newCollector(value, ExpandContext.currentOrCreate(), properties.isPrefetch());
+        if (collector != null) {
+            collector.load();
+        }
+    }
+
+    /**
+     * 收集并异步加载所有展开字段，不阻塞当前线程，用于 WebFlux 等非阻塞环境
+     * <p>
+     * 返回异步结果的展开方法在当前线程调用，同步展开方法提交线程池调用。完成后用 {@link ExpandContext#bindTo} 绑定上下文再序列化
+     *
+     * @param value   待序列化的对象
+     * @param context 本次响应的上下文
+     * @return 全部加载完成
+     */
+    public CompletableFuture<Void> collectAsync(Object value, ExpandContext context) {
+        if (value == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Collector collector = newCollector(value, context, true);
+        if (collector == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return collector.loadAsync();
+    }
+
+    /**
+     * 收集流式展开一个窗口的元素并批量加载，结果保存到窗口的上下文
+     *
+     * @param window        窗口内的元素
+     * @param context       窗口的上下文
+     * @param outputContext 集合在输出中的位置, 用于匹配动态展开的path
+     */
+    public void collectWindow(List<?> window, ExpandContext context, JsonStreamContext outputContext) {
+        Collector collector = newCollector(window, context, true, outputContext);
+        if (collector != null) {
+            collector.load();
+        }
+    }
+
+    /**
+     * 遍历对象收集要展开的值
+     *
+     * @param value    待序列化的对象
+     * @param context  本次响应的上下文
+     * @param prefetch 是否收集未配置批量方法的字段
+     * @return 没有要展开的字段返回null
+     */
+    private Collector newCollector(Object value, ExpandContext context, boolean prefetch) {
+        return newCollector(value, context, prefetch, null);
+    }
+
+    /**
+     * 遍历对象收集要展开的值
+     *
+     * @param value         待序列化的对象
+     * @param context       本次响应的上下文
+     * @param prefetch      是否收集未配置批量方法的字段
+     * @param outputContext 对象在输出中的位置, 根对象为null
+     * @return 没有要展开的字段返回null
+     */
+    private Collector newCollector(Object value, ExpandContext context, boolean prefetch, JsonStreamContext outputContext) {
+        // 动态展开时按选择器匹配path, 不可能匹配的子树直接跳过
+        ExpandSelector.State state = null;
+        if (properties.isDynamicExpand()) {
+            ExpandSelector selector = context.getSelector();
+            if (selector == null) {
+                selector = ExpandSelector.current(properties.getDynamicExpandParameterName(), properties.getDynamicExpandCommonPrefix());
+            }
+            state = next(selector.start(), outputContext);
+            if (state.isDead()) {
+                return null;
+            }
+        }
+        Collector collector = new Collector(context, prefetch);
+        collector.collect(value, state);
+        collector.lookup();
+        return collector;
+    }
+
+    /**
+     * 提前解析类的属性和展开序列化器, 启动预热使用
+     *
+     * @param clazz 类
+     */
+    public void prepare(Class<?> clazz) {
+        getProperties(clazz);
+    }
+
+    /**
+     * 获取类的属性
+     *
+     * @param clazz 类
+     * @return
+     */
+    private List<PropertyMeta> getProperties(Class<?> clazz) {
+        return propertyCache.computeIfAbsent(clazz, (key) -> {
+            BeanDescription beanDesc = config.introspect(config.constructType(key));
+            List<PropertyMeta> properties = new ArrayList<>();
+            for (BeanPropertyDefinition definition : beanDesc.findProperties()) {
+                AnnotatedMember accessor = definition.getAccessor();
+                if (accessor == null || !definition.couldSerialize()) {
+                    continue;
+                }
+                accessor.fixAccess(true);
+                ExpandSerializer serializer = null;
+                if (accessor.getAnnotation(Expand.class) != null) {
+                    BeanProperty property = new BeanProperty.Std(definition.getFullName(), definition.getPrimaryType(), definition.getWrapperName(), accessor, definition.getMetadata());
+                    serializer = ExpandSerializer.build(property);
+                    // 构建失败的字段序列化时也不会展开
+                    if (serializer == null) {
+                        continue;
+                    }
+                }
+                properties.add(new PropertyMeta(definition.getName(), accessor, serializer));
+            }
+            return properties;
+        });
+    }
+
+    /**
+     * 是否是不需要遍历的类型
+     *
+     * @param clazz 类
+     * @return
+     */
+    private static boolean isSimpleType(Class<?> clazz) {
+        return clazz.isPrimitive()
+                || clazz.isEnum()
+                || clazz.getName().startsWith("java.")
+                || clazz.getName().startsWith("javax.")
+                || JsonNode.class.isAssignableFrom(clazz);
+    }
+
+    /**
+     * 进入下一级字段
+     *
+     * @param state 当前匹配状态, 未开启动态展开时为null
+     * @param name  字段名
+     * @return
+     */
+    private static ExpandSelector.State next(ExpandSelector.State state, String name) {
+        return state == null ? null : state.next(name);
+    }
+
+    /**
+     * 按输出位置逐级进入字段, 数组下标忽略
+     *
+     * @param state         根对象的匹配状态
+     * @param outputContext 输出位置
+     * @return
+     */
+    private static ExpandSelector.State next(ExpandSelector.State state, JsonStreamContext outputContext) {
+        if (outputContext == null) {
+            return state;
+        }
+        state = next(state, outputContext.getParent());
+        String name = outputContext.getCurrentName();
+        return name == null || name.isEmpty() ? state : next(state, name);
+    }
+
+    /**
+     * 类属性信息
+     */
+    private static class PropertyMeta {
+
+        /**
+         * 序列化名称
+         */
+        private final String name;
+
+        /**
+         * 取值方法
+         */
+        private final AnnotatedMember accessor;
+
+        /**
+         * 展开序列化器, 非展开字段为null
+         */
+        private final ExpandSerializer serializer;
+
+        PropertyMeta(String name, AnnotatedMember accessor, ExpandSerializer serializer) {
+            this.name = name;
+            this.accessor = accessor;
+            this.serializer = serializer;
+        }
+    }
+
+    /**
+     * 待查询缓存的值
+     */
+    private static class Pending {
+
+        /**
+         * 字段的序列化器
+         */
+        private final ExpandSerializer serializer;
+
+        /**
+         * 字段值
+         */
+        private final Object bindData;
+
+        /**
+         * 要写入字段的类型
+         */
+        private final Class<?> writeClass;
+
+        /**
+         * 是否配置了批量方法
+         */
+        private final boolean batch;
+
+        Pending(ExpandSerializer serializer, Object bindData, Class<?> writeClass, boolean batch) {
+            this.serializer = serializer;
+            this.bindData = bindData;
+            this.writeClass = writeClass;
+            this.batch = batch;
+        }
+    }
+
+    /**
+     * 单次收集过程
+     */
+    private class Collector {
+
+        /**
+         * 已访问对象，防止循环引用
+         */
+        private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        /**
+         * 分组, key: bean:方法:额外参数
+         */
+        private final Map<String, LoadGroup> groups = new LinkedHashMap<>();
+
+        /**
+         * 待查询缓存的值, 遍历完成后一次批量读取
+         */
+        private final Map<ExpandKey, Pending> pending = new LinkedHashMap<>();
+
+        /**
+         * 本次响应的展开上下文
+         */
+        private final ExpandContext context;
+
+        /**
+         * 是否收集未配置批量方法的字段
+         */
+        private final boolean prefetch;
+
+        Collector(ExpandContext context, boolean prefetch) {
+            this.context = context;
+            this.prefetch = prefetch;
+        }
+
+        /**
+         * 递归收集
+         *
+         * @param value 当前对象
+         * @param state 当前对象path的匹配状态, 未开启动态展开时为null
+         */
+        private void collect(Object value, ExpandSelector.State state) {
+            if (value == null || (state != null && state.isDead())) {
+                return;
+            }
+            Class<?> clazz = value.getClass();
+            if (value instanceof Collection) {
+                // 大集合序列化时按窗口展开, 不在这里收集
+                int windowSize = properties.getStreamWindowSize();
+                if (windowSize > 0 && ((Collection<?>) value).size() > windowSize) {
+                    return;
+                }
+                for (Object item : (Collection<?>) value) {
+                    collect(item, state);
+                }
+                return;
+            }
+            if (value instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    collect(entry.getValue(), next(state, String.valueOf(entry.getKey())));
+                }
+                return;
+            }
+            if (value instanceof Optional) {
+                collect(((Optional<?>) value).orElse(null), state);
+                return;
+            }
+            if (clazz.isArray()) {
+                if (!clazz.getComponentType().isPrimitive()) {
+                    for (int i = 0; i < Array.getLength(value); i++) {
+                        collect(Array.get(value, i), state);
+                    }
+                }
+                return;
+            }
+            if (isSimpleType(clazz) || !visited.add(value)) {
+                return;
+            }
+            for (PropertyMeta property : getProperties(clazz)) {
+                Object propertyValue;
+                try {
+                    propertyValue = property.accessor.getValue(value);
+                } catch (Exception e) {
+                    continue;
+                }
+                ExpandSelector.State propertyState = next(state, property.name);
+                if (property.serializer != null) {
+                    add(property.serializer, clazz, propertyValue, propertyState);
+                } else {
+                    collect(propertyValue, propertyState);
+                }
+            }
+        }
+
+        /**
+         * 添加待展开的值
+         *
+         * @param serializer 字段的序列化器
+         * @param beanClass  字段所在的类
+         * @param bindData   字段值
+         * @param state      字段path的匹配状态, 未开启动态展开时为null
+         */
+        private void add(ExpandSerializer serializer, Class<?> beanClass, Object bindData, ExpandSelector.State state) {
+            if (bindData == null || serializer.getLoadService() == null) {
+                return;
+            }
+            boolean batch = StringUtils.hasText(serializer.getBatchMethod());
+            if (!batch && !prefetch) {
+                return;
+            }
+            if (!serializer.getPlan().isOpen() || (state != null && !state.matches())) {
+                return;
+            }
+            Class<?> writeClass = serializer.getPlan().getWriteClass(beanClass);
+            if (serializer.getPlan().skip(writeClass)) {
+                return;
+            }
+            ExpandKey cacheKey = serializer.getCacheKey(bindData);
+            if (context.get(cacheKey) != null) {
+                return;
+            }
+            pending.putIfAbsent(cacheKey, new Pending(serializer, bindData, writeClass, batch));
+        }
+
+        /**
+         * 一次批量读取所有待展开值的缓存, 命中的放入上下文, 未命中的按分组加载
+         */
+        private void lookup() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            Map<ExpandKey, ExpandEntry> entries = ExpandSerializer.getCacheEntries(pending.keySet());
+            for (Map.Entry<ExpandKey, Pending> entry : pending.entrySet()) {
+                ExpandKey cacheKey = entry.getKey();
+                Pending item = entry.getValue();
+                ExpandSerializer serializer = item.serializer;
+                Object cacheInfo = serializer.getCacheInfo(entries.get(cacheKey), item.bindData, item.writeClass, cacheKey);
+                if (cacheInfo != null) {
+                    context.put(cacheKey, cacheInfo);
+                    continue;
+                }
+                groups.computeIfAbsent(serializer.getGroupKey(item.batch), (key) -> item.batch ? new BatchLoadGroup(serializer) : new LoadGroup(serializer))
+                        .add(cacheKey, item.bindData, item.writeClass);
+            }
+            pending.clear();
+        }
+
+        /**
+         * 各分组并发加载，全部完成后返回
+         */
+        private void load() {
+            if (groups.isEmpty()) {
+                return;
+            }
+            if (executor != null && ExpandSerializer.isBudgeted()) {
+                loadWithinBudget();
+                return;
+            }
+            if (executor == null || groups.size() == 1) {
+                for (LoadGroup group : groups.values()) {
+                    group.load(context::put);
+                }
+                return;
+            }
+            // 第一组在当前线程加载，其余分组提交线程池
+            Iterator<LoadGroup> iterator = groups.values().iterator();
+            LoadGroup first = iterator.next();
+            List<CompletableFuture<Void>> futures = new ArrayList<>(groups.size() - 1);
+            while (iterator.hasNext()) {
+                LoadGroup group = iterator.next();
+                futures.add(CompletableFuture.runAsync(() -> group.load(context::put), executor));
+            }
+            first.load(context::put);
+            try {
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+            } catch (Exception e) {
+                // 加载失败的值序列化时再单个展开
+                LOG.error("Expand预加载异常：", e);
+            }
+        }
+
+        /**
+         * 各分组提交线程池加载，每组最多等待字段自己的剩余时间预算和单次调用超时，与序列化时限时加载的等待时间一致,
+         * 未完成的值序列化时按预算降级，加载完成后照常写入缓存
+         */
+        private void loadWithinBudget() {
+            long startTime = System.nanoTime();
+            List<CompletableFuture<Void>> futures = new ArrayList<>(groups.size());
+            List<Long> timeouts = new ArrayList<>(groups.size());
+            for (LoadGroup group : groups.values()) {
+                timeouts.add(group.serializer.getTimeoutNanos(context));
+                futures.add(CompletableFuture.runAsync(() -> group.load(context::put), executor));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                long timeout = timeouts.get(i) - (System.nanoTime() - startTime);
+                try {
+                    futures.get(i).get(Math.max(timeout, 0), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    // 剩余字段序列化时处理
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    LOG.error("Expand预加载异常：", e.getCause());
+                }
+            }
+        }
+
+        /**
+         * 各分组异步加载，不阻塞当前线程
+         *
+         * @return 全部加载完成, 失败的值序列化时再单个展开
+         */
+        private CompletableFuture<Void> loadAsync() {
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[groups.size()];
+            int i = 0;
+            for (LoadGroup group : groups.values()) {
+                futures[i++] = group.loadAsync(context::put, executor);
+            }
+            return CompletableFuture.allOf(futures).exceptionally((e) -> {
+                LOG.error("Expand预加载异常：", e);
+                return null;
+            });
+        }
+    }
+}
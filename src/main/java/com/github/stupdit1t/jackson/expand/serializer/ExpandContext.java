@@ -0,0 +1,230 @@
+package com.github.stupdit1t.jackson.expand.serializer;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.github.stupdit1t.jackson.expand.cache.ExpandKey;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单次响应的展开上下文，保存序列化前预加载的展开结果
+ * <p>
+ * Servlet 环境绑定在当前请求上，WebFlux 等非 Servlet 环境通过 {@link #bindTo(ObjectWriter)} 绑定在序列化属性上，
+ * 序列化时优先读取，不再访问缓存和展开方法
+ * <p>
+ * 配置了时间预算时，预算从上下文创建时开始计算，超出预算降级的字段数量可以在请求结束时通过 {@link #getDegradedCount()} 获取
+ * <p>
+ * 流式展开的每个窗口使用 {@link #window()} 创建的子上下文，窗口写出后丢弃，时间预算和降级数量与父上下文共用
+ *
+ * @author 625
+ */
+public class ExpandContext {
+
+    /**
+     * 请求属性名
+     */
+    private static final String ATTRIBUTE = ExpandContext.class.getName();
+
+    /**
+     * 展开结果, key: 缓存KEY
+     */
+    private final Map<ExpandKey, Object> values = new ConcurrentHashMap<>();
+
+    /**
+     * 父上下文, 不是窗口时为null
+     */
+    private final ExpandContext parent;
+
+    /**
+     * 动态展开选择器, 为null时从当前请求参数解析
+     */
+    private final ExpandSelector selector;
+
+    /**
+     * 创建时间, 纳秒
+     */
+    private final long startTime;
+
+    /**
+     * 超出时间预算降级的字段数量
+     */
+    private final AtomicInteger degradedCount;
+
+    public ExpandContext() {
+        this((ExpandSelector) null);
+    }
+
+    public ExpandContext(ExpandSelector selector) {
+        this.parent = null;
+        this.selector = selector;
+        this.startTime = System.nanoTime();
+        this.degradedCount = new AtomicInteger();
+    }
+
+    private ExpandContext(ExpandContext parent) {
+        this.parent = parent;
+        this.selector = parent.selector;
+        this.startTime = parent.startTime;
+        this.degradedCount = parent.degradedCount;
+    }
+
+    /**
+     * 创建流式展开窗口的子上下文, 读取时先取自己的结果再取父上下文的结果
+     *
+     * @return
+     */
+    ExpandContext window() {
+        return new ExpandContext(this);
+    }
+
+    /**
+     * 获取本次序列化的上下文, 序列化属性中没有时取当前请求的上下文
+     *
+     * @param provider 序列化上下文
+     * @return 不存在返回null
+     */
+    public static ExpandContext current(SerializerProvider provider) {
+        Object context = provider.getAttribute(ATTRIBUTE);
+        if (context instanceof ExpandContext) {
+            return (ExpandContext) context;
+        }
+        return current();
+    }
+
+    /**
+     * 获取本次序列化的上下文，不存在则创建，请求线程绑定在当前请求上，否则绑定在序列化属性上
+     *
+     * @param provider 序列化上下文
+     * @return
+     */
+    static ExpandContext currentOrCreate(SerializerProvider provider) {
+        ExpandContext context = current(provider);
+        if (context != null) {
+            return context;
+        }
+        if (RequestContextHolder.getRequestAttributes() != null) {
+            return currentOrCreate();
+        }
+        context = new ExpandContext();
+        context.bindTo(provider);
+        return context;
+    }
+
+    /**
+     * 获取当前请求的上下文
+     *
+     * @return 不存在返回null
+     */
+    public static ExpandContext current() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        return (ExpandContext) attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    /**
+     * 获取当前请求的上下文，不存在则创建
+     *
+     * @return 非请求线程返回未绑定的上下文
+     */
+    public static ExpandContext currentOrCreate() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return new ExpandContext();
+        }
+        ExpandContext context = (ExpandContext) attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (context == null) {
+            context = new ExpandContext();
+            attributes.setAttribute(ATTRIBUTE, context, RequestAttributes.SCOPE_REQUEST);
+        }
+        return context;
+    }
+
+    /**
+     * 绑定到序列化属性上
+     *
+     * @param writer 序列化
+     * @return 绑定了上下文的序列化
+     */
+    public ObjectWriter bindTo(ObjectWriter writer) {
+        return writer.withAttribute(ATTRIBUTE, this);
+    }
+
+    /**
+     * 绑定到本次序列化的属性上
+     *
+     * @param provider 序列化上下文
+     */
+    void bindTo(SerializerProvider provider) {
+        provider.setAttribute(ATTRIBUTE, this);
+    }
+
+    /**
+     * 动态展开选择器
+     *
+     * @return 未指定返回null
+     */
+    public ExpandSelector getSelector() {
+        return selector;
+    }
+
+    /**
+     * 获取展开结果
+     *
+     * @param cacheKey 缓存KEY
+     * @return
+     */
+    public Object get(ExpandKey cacheKey) {
+        Object value = values.get(cacheKey);
+        if (value == null && parent != null) {
+            return parent.get(cacheKey);
+        }
+        return value;
+    }
+
+    /**
+     * 保存展开结果
+     *
+     * @param cacheKey 缓存KEY
+     * @param value    展开结果
+     */
+    public void put(ExpandKey cacheKey, Object value) {
+        if (value != null) {
+            values.put(cacheKey, value);
+        }
+    }
+
+    /**
+     * 剩余的时间预算
+     *
+     * @param budgetNanos 时间预算, 纳秒
+     * @return 剩余纳秒, 小于等于0已超出
+     */
+    long remaining(long budgetNanos) {
+        if (budgetNanos == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        return budgetNanos - (System.nanoTime() - startTime);
+    }
+
+    /**
+     * 记录一个超出时间预算降级的字段
+     */
+    void degraded() {
+        degradedCount.incrementAndGet();
+    }
+
+    /**
+     * 超出时间预算降级的字段数量
+     *
+     * @return
+     */
+    public int getDegradedCount() {
+        return degradedCount.get();
+    }
+}
@@ -0,0 +1,236 @@
+package com.github.stupdit1t.jackson.expand.serializer;
+
+import com.github.stupdit1t.jackson.expand.cache.ExpandKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+
+/**
+ * 跨请求合并批量调用
+ * <p>
+ * 不同线程在同一个时间窗口内对同一 bean/批量方法/额外参数/处理器/缓存配置 的展开请求合并为一次批量调用，
+ * 达到窗口时长或最大批量数量时触发，每个调用方单独拿到自己的结果
+ *
+ * @author 625
+ */
+public class ExpandDispatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExpandDispatcher.class);
+
+    /**
+     * 未配置 load-timeout 时等待批量结果的时间
+     */
+    private static final Duration DEFAULT_LOAD_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * 批量调用的线程池
+     */
+    private final Executor executor;
+
+    /**
+     * 合并窗口，纳秒
+     */
+    private final long windowNanos;
+
+    /**
+     * 同步等待批量结果的最长时间, 合并窗口加上调用超时, 纳秒
+     */
+    private final long waitNanos;
+
+    /**
+     * 单次批量最大数量
+     */
+    private final int maxBatchSize;
+
+    /**
+     * 窗口计时
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * 等待中的批次, key: bean:批量方法:额外参数
+     */
+    private final Map<String, PendingBatch> pending = new ConcurrentHashMap<>();
+
+    public ExpandDispatcher(Executor executor, Duration window, int maxBatchSize, Duration loadTimeout) {
+        this.executor = executor;
+        this.windowNanos = window.toNanos();
+        this.waitNanos = windowNanos + (loadTimeout == null ? DEFAULT_LOAD_TIMEOUT : loadTimeout).toNanos();
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, (runnable) -> {
+            Thread thread = new Thread(runnable, "expand-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 加入当前窗口的批次，等待批量结果，最多等待合并窗口加上调用超时
+     *
+     * @param serializer 字段的序列化器
+     * @param bindData   字段值
+     * @param writeClass 要写入字段的类型
+     * @param cacheKey   缓存KEY
+     * @return 展开结果, 批量调用失败或超时返回null
+     */
+    Object load(ExpandSerializer serializer, Object bindData, Class<?> writeClass, ExpandKey cacheKey) {
+        try {
+            return loadAsync(serializer, bindData, writeClass, cacheKey).get(waitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 加入当前窗口的批次，不等待批量结果
+     *
+     * @param serializer 字段的序列化器
+     * @param bindData   字段值
+     * @param writeClass 要写入字段的类型
+     * @param cacheKey   缓存KEY
+     * @return 展开结果, 批量调用失败时异常完成
+     */
+    CompletableFuture<Object> loadAsync(ExpandSerializer serializer, Object bindData, Class<?> writeClass, ExpandKey cacheKey) {
+        String groupKey = serializer.getGroupKey(true);
+        CompletableFuture<Object> future;
+        PendingBatch batch;
+        do {
+            batch = pending.computeIfAbsent(groupKey, (key) -> open(key, serializer));
+            future = batch.add(cacheKey, bindData, writeClass);
+        } while (future == null);
+        // 达到最大数量，当前线程直接调用
+        if (batch.size() >= maxBatchSize) {
+            dispatch(batch);
+        }
+        return future;
+    }
+
+    /**
+     * 关闭
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 开启新批次，窗口结束后提交线程池调用
+     *
+     * @param groupKey   分组KEY
+     * @param serializer 字段的序列化器
+     * @return
+     */
+    private PendingBatch open(String groupKey, ExpandSerializer serializer) {
+        PendingBatch batch = new PendingBatch(groupKey, new BatchLoadGroup(serializer));
+        batch.timer = scheduler.schedule(() -> executor.execute(() -> dispatch(batch)), windowNanos, TimeUnit.NANOSECONDS);
+        return batch;
+    }
+
+    /**
+     * 调用批量方法并完成各调用方的结果
+     *
+     * @param batch 批次
+     */
+    private void dispatch(PendingBatch batch) {
+        if (!batch.close()) {
+            return;
+        }
+        pending.remove(batch.groupKey, batch);
+        if (batch.timer != null) {
+            batch.timer.cancel(false);
+        }
+        try {
+            batch.group.load(batch);
+        } catch (Exception e) {
+            LOG.error("【{}】 Expand合并批量异常：", batch.group.serializer.getBeanName(), e);
+        } finally {
+            // 批量未返回的值，调用方回退到单个展开
+            for (CompletableFuture<Object> future : batch.futures.values()) {
+                future.complete(null);
+            }
+        }
+    }
+
+    /**
+     * 等待中的批次
+     */
+    private static class PendingBatch implements BiConsumer<ExpandKey, Object> {
+
+        /**
+         * 分组KEY
+         */
+        private final String groupKey;
+
+        /**
+         * 批量加载分组
+         */
+        private final BatchLoadGroup group;
+
+        /**
+         * 调用方结果, key: 缓存KEY
+         */
+        private final Map<ExpandKey, CompletableFuture<Object>> futures = new HashMap<>();
+
+        /**
+         * 窗口计时任务
+         */
+        private volatile ScheduledFuture<?> timer;
+
+        /**
+         * 是否已触发调用
+         */
+        private boolean closed;
+
+        PendingBatch(String groupKey, BatchLoadGroup group) {
+            this.groupKey = groupKey;
+            this.group = group;
+        }
+
+        /**
+         * 加入批次，相同缓存KEY共用一个结果
+         *
+         * @return 批次已关闭返回null
+         */
+        synchronized CompletableFuture<Object> add(ExpandKey cacheKey, Object bindData, Class<?> writeClass) {
+            if (closed) {
+                return null;
+            }
+            CompletableFuture<Object> future = futures.get(cacheKey);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                futures.put(cacheKey, future);
+                group.add(cacheKey, bindData, writeClass);
+            }
+            return future;
+        }
+
+        synchronized int size() {
+            return futures.size();
+        }
+
+        synchronized boolean close() {
+            if (closed) {
+                return false;
+            }
+            closed = true;
+            return true;
+        }
+
+        @Override
+        public void accept(ExpandKey cacheKey, Object result) {
+            CompletableFuture<Object> future = futures.get(cacheKey);
+            if (future != null) {
+                future.complete(result);
+            }
+        }
+    }
+}
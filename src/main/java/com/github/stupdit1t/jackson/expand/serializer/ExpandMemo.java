@@ -0,0 +1,107 @@
+package com.github.stupdit1t.jackson.expand.serializer;
+
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * 单次序列化的展开结果
+ * <p>
+ * 导出等大列表中相同字段值反复出现时，同一个 bean/方法/参数/字段值 只查一次缓存或调用一次展开方法，之后直接取这里的结果。
+ * 按展开来源(相同缓存命名空间和参数的字段共用同一个对象)分组，来源用引用比较
+ * <p>
+ * 保存在 {@link SerializerProvider} 的单次调用属性中, 每次 writeValue 都是新的, 只在序列化线程使用
+ *
+ * @author 625
+ */
+final class ExpandMemo {
+
+    /**
+     * 序列化属性名
+     */
+    private static final Object ATTRIBUTE = ExpandMemo.class;
+
+    /**
+     * 展开结果, key: 展开来源
+     */
+    private final Map<Object, Map<Object, Object>> values = new IdentityHashMap<>();
+
+    /**
+     * 上一次访问的展开来源, 列表中同一个字段连续出现
+     */
+    private Object lastOwner;
+
+    /**
+     * 上一次访问的展开来源的结果
+     */
+    private Map<Object, Object> lastValues;
+
+    /**
+     * 获取本次序列化的展开结果, 不存在则创建
+     *
+     * @param provider 序列化上下文
+     * @return
+     */
+    static ExpandMemo current(SerializerProvider provider) {
+        Object memo = provider.getAttribute(ATTRIBUTE);
+        if (memo instanceof ExpandMemo) {
+            return (ExpandMemo) memo;
+        }
+        ExpandMemo expandMemo = new ExpandMemo();
+        provider.setAttribute(ATTRIBUTE, expandMemo);
+        return expandMemo;
+    }
+
+    /**
+     * 获取展开结果
+     *
+     * @param owner    展开来源
+     * @param bindData 字段值
+     * @return 不存在返回null
+     */
+    Object get(Object owner, Object bindData) {
+        Map<Object, Object> ownerValues = values(owner, false);
+        return ownerValues == null ? null : ownerValues.get(bindData);
+    }
+
+    /**
+     * 保存展开结果
+     *
+     * @param owner    展开来源
+     * @param bindData 字段值
+     * @param value    展开结果
+     */
+    void put(Object owner, Object bindData, Object value) {
+        if (value != null) {
+            values(owner, true).put(bindData, value);
+        }
+    }
+
+    /**
+     * 清空, 流式展开每个窗口写出后调用
+     */
+    void clear() {
+        values.clear();
+        lastOwner = null;
+        lastValues = null;
+    }
+
+    private Map<Object, Object> values(Object owner, boolean create) {
+        if (lastOwner == owner) {
+            return lastValues;
+        }
+        Map<Object, Object> ownerValues = values.get(owner);
+        if (ownerValues == null) {
+            if (!create) {
+                return null;
+            }
+            ownerValues = new HashMap<>();
+            values.put(owner, ownerValues);
+        }
+        lastOwner = owner;
+        lastValues = ownerValues;
+        return ownerValues;
+    }
+}
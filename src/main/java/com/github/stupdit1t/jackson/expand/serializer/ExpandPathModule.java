@@ -0,0 +1,39 @@
+package com.github.stupdit1t.jackson.expand.serializer;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+
+/**
+ * 字段path模块
+ * <p>
+ * 开启动态展开时用 {@link ExpandPathSerializer} 包装对象的序列化器, 判断字段path的耗时和嵌套层级无关。
+ * Spring Boot 会自动注册到默认的 ObjectMapper，自己创建的 ObjectMapper 需要手动 registerModule, 不注册时结果相同
+ *
+ * @author 625
+ */
+public class ExpandPathModule extends SimpleModule {
+
+    private static final long serialVersionUID = 1L;
+
+    public ExpandPathModule(boolean dynamicExpand) {
+        super(ExpandPathModule.class.getSimpleName());
+        if (dynamicExpand) {
+            setSerializerModifier(new PathSerializerModifier());
+        }
+    }
+
+    /**
+     * 包装序列化器
+     */
+    private static class PathSerializerModifier extends BeanSerializerModifier {
+
+        @Override
+        public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc, JsonSerializer<?> serializer) {
+            return serializer instanceof BeanSerializerBase ? new ExpandPathSerializer(serializer) : serializer;
+        }
+    }
+}
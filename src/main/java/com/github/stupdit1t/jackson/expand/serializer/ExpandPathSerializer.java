@@ -0,0 +1,119 @@
+package com.github.stupdit1t.jackson.expand.serializer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsonFormatVisitors.JsonFormatVisitorWrapper;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.util.NameTransformer;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * 记录字段path
+ * <p>
+ * 包装对象的序列化器, 序列化前后在 {@link FieldPath} 中入栈出栈, 动态展开判断字段path时不用每次从根查找
+ *
+ * @author 625
+ */
+public class ExpandPathSerializer extends JsonSerializer<Object> implements ContextualSerializer, ResolvableSerializer {
+
+    /**
+     * 原序列化器
+     */
+    private final JsonSerializer<Object> delegate;
+
+    @SuppressWarnings("unchecked")
+    public ExpandPathSerializer(JsonSerializer<?> delegate) {
+        this.delegate = (JsonSerializer<Object>) delegate;
+    }
+
+    @Override
+    public void serialize(Object value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        FieldPath path = FieldPath.current(provider);
+        path.enter(gen.getOutputContext());
+        try {
+            delegate.serialize(value, gen, provider);
+        } finally {
+            path.exit();
+        }
+    }
+
+    @Override
+    public void serializeWithType(Object value, JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer) throws IOException {
+        FieldPath path = FieldPath.current(provider);
+        path.enter(gen.getOutputContext());
+        try {
+            delegate.serializeWithType(value, gen, provider, typeSer);
+        } finally {
+            path.exit();
+        }
+    }
+
+    /**
+     * 展开到上级对象中的字段和上级对象共用输出上下文, 不需要入栈
+     */
+    @Override
+    public JsonSerializer<Object> unwrappingSerializer(NameTransformer unwrapper) {
+        return delegate.unwrappingSerializer(unwrapper);
+    }
+
+    @Override
+    public JsonSerializer<?> withFilterId(Object filterId) {
+        JsonSerializer<?> serializer = delegate.withFilterId(filterId);
+        return serializer == delegate ? this : new ExpandPathSerializer(serializer);
+    }
+
+    @Override
+    public boolean isEmpty(SerializerProvider provider, Object value) {
+        return delegate.isEmpty(provider, value);
+    }
+
+    @Override
+    public boolean usesObjectId() {
+        return delegate.usesObjectId();
+    }
+
+    @Override
+    public Class<Object> handledType() {
+        return delegate.handledType();
+    }
+
+    @Override
+    public JsonSerializer<?> getDelegatee() {
+        return delegate;
+    }
+
+    @Override
+    public Iterator<PropertyWriter> properties() {
+        return delegate.properties();
+    }
+
+    @Override
+    public void acceptJsonFormatVisitor(JsonFormatVisitorWrapper visitor, JavaType type) throws JsonMappingException {
+        delegate.acceptJsonFormatVisitor(visitor, type);
+    }
+
+    @Override
+    public JsonSerializer<?> createContextual(SerializerProvider prov, BeanProperty property) throws JsonMappingException {
+        if (!(delegate instanceof ContextualSerializer)) {
+            return this;
+        }
+        JsonSerializer<?> contextual = ((ContextualSerializer) delegate).createContextual(prov, property);
+        return contextual == delegate ? this : new ExpandPathSerializer(contextual);
+    }
+
+    @Override
+    public void resolve(SerializerProvider provider) throws JsonMappingException {
+        if (delegate instanceof ResolvableSerializer) {
+            ((ResolvableSerializer) delegate).resolve(provider);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.github.stupdit1t.jackson.expand.serializer;
+
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.github.stupdit1t.jackson.expand.config.JacksonExpandProperties;
+import com.github.stupdit1t.jackson.expand.domain.ExpandStrategy;
+import com.github.stupdit1t.jackson.expand.domain.SerializerParam;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 字段的展开计划
+ * <p>
+ * 写入字段名、写入字段类型、展开开关等只和 (类, 字段) 有关的信息在创建序列化器时解析一次，序列化时直接使用
+ *
+ * @author 625
+ */
+final class ExpandPlan {
+
+    /**
+     * 当前字段名
+     */
+    private final String fieldName;
+
+    /**
+     * 要写入的字段名, 已编码
+     */
+    private final SerializedString writeFieldName;
+
+    /**
+     * 是否写入当前字段
+     */
+    private final boolean currentField;
+
+    /**
+     * 字段所在类中解析出的写入字段类型
+     */
+    private final Class<?> writeClass;
+
+    /**
+     * 写入字段在声明类中找不到时, 按运行时类型解析的结果
+     */
+    private final Map<Class<?>, Optional<Class<?>>> runtimeWriteClass;
+
+    /**
+     * 写入字段不存在时是否展开
+     */
+    private final boolean canExpandToNotExistField;
+
+    /**
+     * 注解是否开启展开
+     */
+    private final boolean open;
+
+    /**
+     * 是否动态展开
+     */
+    private final boolean dynamicExpand;
+
+    /**
+     * 动态展开参数名
+     */
+    private final String dynamicExpandParameterName;
+
+    /**
+     * 动态展开统一前缀
+     */
+    private final String dynamicExpandCommonPrefix;
+
+    private ExpandPlan(String fieldName, Class<?> declaringClass, SerializerParam params, JacksonExpandProperties properties) {
+        // 判断要写入的字段, 自定义要写入的优先级最高
+        String writeField = fieldName;
+        if (StringUtils.hasText(params.getWriteField())) {
+            writeField = params.getWriteField();
+        } else if (properties.getExpandStrategy() == ExpandStrategy.COPY) {
+            writeField = String.format(properties.getCopyStrategyFormat(), fieldName);
+        }
+        this.fieldName = fieldName;
+        this.writeFieldName = new SerializedString(writeField);
+        this.currentField = fieldName.equals(writeField);
+        this.writeClass = findWriteClass(declaringClass, params.getWriteField());
+        this.runtimeWriteClass = this.writeClass == null && StringUtils.hasText(params.getWriteField()) ? new ConcurrentHashMap<>() : null;
+        this.canExpandToNotExistField = properties.isCanExpandToNotExistField();
+        this.open = Boolean.TRUE.equals(params.isOpen());
+        this.dynamicExpand = properties.isDynamicExpand();
+        this.dynamicExpandParameterName = properties.getDynamicExpandParameterName();
+        this.dynamicExpandCommonPrefix = StringUtils.hasText(properties.getDynamicExpandCommonPrefix()) ? properties.getDynamicExpandCommonPrefix() : null;
+    }
+
+    /**
+     * 创建展开计划
+     *
+     * @param fieldName      当前字段名
+     * @param declaringClass 字段所在的类, 未知时为null
+     * @param params         注解参数
+     * @param properties     配置
+     * @return
+     */
+    static ExpandPlan of(String fieldName, Class<?> declaringClass, SerializerParam params, JacksonExpandProperties properties) {
+        return new ExpandPlan(fieldName, declaringClass, params, properties);
+    }
+
+    /**
+     * 查找写入字段的类型
+     *
+     * @param beanClass  类
+     * @param writeField 写入字段
+     * @return 找不到返回null
+     */
+    private static Class<?> findWriteClass(Class<?> beanClass, String writeField) {
+        if (beanClass == null || !StringUtils.hasText(writeField)) {
+            return null;
+        }
+        Field field = ReflectionUtils.findField(beanClass, writeField);
+        return field == null ? null : field.getType();
+    }
+
+    /**
+     * 获取要写入字段的类型
+     *
+     * @param beanClass 当前字段所在的运行时类
+     * @return 找不到字段返回null
+     */
+    Class<?> getWriteClass(Class<?> beanClass) {
+        if (writeClass != null || runtimeWriteClass == null || beanClass == null) {
+            return writeClass;
+        }
+        // 写入字段定义在子类中
+        return runtimeWriteClass.computeIfAbsent(beanClass, (key) -> Optional.ofNullable(findWriteClass(key, writeFieldName.getValue()))).orElse(null);
+    }
+
+    /**
+     * 写入字段找不到时是否跳过展开
+     *
+     * @param writeClass 写入字段的类型
+     * @return
+     */
+    boolean skip(Class<?> writeClass) {
+        return !canExpandToNotExistField && writeClass == null;
+    }
+
+    String getFieldName() {
+        return fieldName;
+    }
+
+    SerializedString getWriteFieldName() {
+        return writeFieldName;
+    }
+
+    boolean isCurrentField() {
+        return currentField;
+    }
+
+    boolean isOpen() {
+        return open;
+    }
+
+    boolean isDynamicExpand() {
+        return dynamicExpand;
+    }
+
+    /**
+     * 本次序列化的动态展开选择器, 上下文未指定时从当前请求参数解析
+     *
+     * @param provider 序列化上下文
+     * @return
+     */
+    ExpandSelector selector(SerializerProvider provider) {
+        ExpandContext context = ExpandContext.current(provider);
+        if (context != null && context.getSelector() != null) {
+            return context.getSelector();
+        }
+        return ExpandSelector.current(dynamicExpandParameterName, dynamicExpandCommonPrefix);
+    }
+}
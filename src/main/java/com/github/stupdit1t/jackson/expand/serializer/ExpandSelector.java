@@ -0,0 +1,324 @@
+package com.github.stupdit1t.jackson.expand.serializer;
+
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 动态展开的字段选择器
+ * <p>
+ * 请求参数在一个请求内只解析一次，编译成按path分段的前缀树，保存在请求属性中。支持通配符:
+ * <ul>
+ *     <li>{@code *} 匹配一级字段, 如 {@code items.*.userId}</li>
+ *     <li>{@code **} 匹配任意多级字段(包括0级), 如 {@code **.deptId}</li>
+ * </ul>
+ * 匹配过程按字段逐级推进 {@link State}，状态转移会被缓存；状态为 {@link State#isDead()} 时整个子树都不可能匹配，可以直接跳过
+ *
+ * @author 625
+ */
+public final class ExpandSelector {
+
+    /**
+     * 请求属性名
+     */
+    private static final String ATTRIBUTE = ExpandSelector.class.getName();
+
+    /**
+     * 单级通配
+     */
+    private static final String ANY = "*";
+
+    /**
+     * 多级通配
+     */
+    private static final String ANY_DEEP = "**";
+
+    /**
+     * 单个状态缓存的转移数量上限, 防止Map的key作为path时无限增长
+     */
+    private static final int MAX_TRANSITIONS = 256;
+
+    /**
+     * 什么都不匹配的选择器
+     */
+    public static final ExpandSelector NONE = new ExpandSelector(new Node(false));
+
+    /**
+     * 初始状态
+     */
+    private final State start;
+
+    private ExpandSelector(Node root) {
+        this.start = root.hasNext() || root.terminal ? new State(closure(Collections.singletonList(root))) : State.DEAD;
+    }
+
+    /**
+     * 获取当前请求的选择器，不存在则解析请求参数创建
+     *
+     * @param parameterName 动态展开参数名
+     * @param commonPrefix  统一前缀
+     * @return 非请求线程返回 {@link #NONE}
+     */
+    public static ExpandSelector current(String parameterName, String commonPrefix) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return NONE;
+        }
+        Object selector = attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (selector instanceof ExpandSelector) {
+            return (ExpandSelector) selector;
+        }
+        String[] parameterValues = null;
+        if (attributes instanceof ServletRequestAttributes) {
+            parameterValues = ((ServletRequestAttributes) attributes).getRequest().getParameterValues(parameterName);
+        }
+        ExpandSelector compiled = parameterValues == null ? NONE : compile(Arrays.asList(parameterValues), commonPrefix);
+        attributes.setAttribute(ATTRIBUTE, compiled, RequestAttributes.SCOPE_REQUEST);
+        return compiled;
+    }
+
+    /**
+     * 编译选择器
+     *
+     * @param expressions  展开表达式, 多个可以用逗号分隔
+     * @param commonPrefix 统一前缀, 带前缀的path去掉前缀后匹配
+     * @return
+     */
+    public static ExpandSelector compile(Collection<String> expressions, String commonPrefix) {
+        Node root = new Node(false);
+        String[] prefix = StringUtils.hasText(commonPrefix) ? commonPrefix.split("\\.") : null;
+        for (String expression : expressions) {
+            if (expression == null) {
+                continue;
+            }
+            for (String path : expression.split(",")) {
+                path = path.trim();
+                if (path.isEmpty()) {
+                    continue;
+                }
+                String[] segments = path.split("\\.");
+                insert(root, segments);
+                if (prefix != null) {
+                    String[] prefixed = Arrays.copyOf(prefix, prefix.length + segments.length);
+                    System.arraycopy(segments, 0, prefixed, prefix.length, segments.length);
+                    insert(root, prefixed);
+                }
+            }
+        }
+        return new ExpandSelector(root);
+    }
+
+    /**
+     * 插入一个展开表达式
+     *
+     * @param root     根节点
+     * @param segments 表达式分段
+     */
+    private static void insert(Node root, String[] segments) {
+        Node node = root;
+        for (String segment : segments) {
+            if (ANY_DEEP.equals(segment)) {
+                if (node.anyDeep == null) {
+                    node.anyDeep = new Node(true);
+                }
+                node = node.anyDeep;
+            } else if (ANY.equals(segment)) {
+                if (node.any == null) {
+                    node.any = new Node(false);
+                }
+                node = node.any;
+            } else {
+                node = node.children.computeIfAbsent(segment, (key) -> new Node(false));
+            }
+        }
+        node.terminal = true;
+    }
+
+    /**
+     * 加上 ** 匹配0级的节点
+     *
+     * @param nodes 节点
+     * @return
+     */
+    private static Node[] closure(Collection<Node> nodes) {
+        Set<Node> result = new LinkedHashSet<>();
+        Deque<Node> stack = new ArrayDeque<>(nodes);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (result.add(node) && node.anyDeep != null) {
+                stack.push(node.anyDeep);
+            }
+        }
+        return result.toArray(new Node[0]);
+    }
+
+    /**
+     * 初始状态, 对应根路径
+     *
+     * @return
+     */
+    public State start() {
+        return start;
+    }
+
+    /**
+     * 字段path是否匹配
+     *
+     * @param path 用 . 分隔的path
+     * @return
+     */
+    public boolean matches(String path) {
+        State state = start;
+        int from = 0;
+        while (from <= path.length()) {
+            if (state.isDead()) {
+                return false;
+            }
+            int to = path.indexOf('.', from);
+            if (to == -1) {
+                to = path.length();
+            }
+            state = state.next(path.substring(from, to));
+            from = to + 1;
+        }
+        return state.matches();
+    }
+
+    /**
+     * 前缀树节点
+     */
+    private static class Node {
+
+        /**
+         * 普通子节点
+         */
+        private final Map<String, Node> children = new HashMap<>();
+
+        /**
+         * 是否 ** 节点, 可以继续匹配任意字段
+         */
+        private final boolean deep;
+
+        /**
+         * * 子节点
+         */
+        private Node any;
+
+        /**
+         * ** 子节点
+         */
+        private Node anyDeep;
+
+        /**
+         * 是否表达式结尾
+         */
+        private boolean terminal;
+
+        Node(boolean deep) {
+            this.deep = deep;
+        }
+
+        boolean hasNext() {
+            return deep || any != null || anyDeep != null || !children.isEmpty();
+        }
+    }
+
+    /**
+     * 匹配状态, 不可变, 可以在多个线程间共享
+     */
+    public static final class State {
+
+        /**
+         * 不可能再匹配的状态
+         */
+        static final State DEAD = new State(new Node[0]);
+
+        /**
+         * 当前所在的节点
+         */
+        private final Node[] nodes;
+
+        /**
+         * 当前path是否匹配
+         */
+        private final boolean matches;
+
+        /**
+         * 子树中是否还可能匹配
+         */
+        private final boolean dead;
+
+        /**
+         * 状态转移缓存
+         */
+        private final Map<String, State> transitions = new ConcurrentHashMap<>();
+
+        private State(Node[] nodes) {
+            boolean matches = false;
+            boolean hasNext = false;
+            for (Node node : nodes) {
+                matches |= node.terminal;
+                hasNext |= node.hasNext();
+            }
+            this.nodes = nodes;
+            this.matches = matches;
+            this.dead = !hasNext;
+        }
+
+        /**
+         * 进入下一级字段
+         *
+         * @param name 字段名
+         * @return
+         */
+        public State next(String name) {
+            if (dead) {
+                return DEAD;
+            }
+            State next = transitions.get(name);
+            if (next != null) {
+                return next;
+            }
+            List<Node> nextNodes = new ArrayList<>(nodes.length);
+            for (Node node : nodes) {
+                Node child = node.children.get(name);
+                if (child != null) {
+                    nextNodes.add(child);
+                }
+                if (node.any != null) {
+                    nextNodes.add(node.any);
+                }
+                if (node.deep) {
+                    nextNodes.add(node);
+                }
+            }
+            next = nextNodes.isEmpty() ? DEAD : new State(closure(nextNodes));
+            if (transitions.size() < MAX_TRANSITIONS) {
+                transitions.put(name, next);
+            }
+            return next;
+        }
+
+        /**
+         * 当前path是否匹配
+         *
+         * @return
+         */
+        public boolean matches() {
+            return matches;
+        }
+
+        /**
+         * 当前path下的所有子字段是否都不可能匹配
+         *
+         * @return
+         */
+        public boolean isDead() {
+            return dead;
+        }
+    }
+}
@@ -1,37 +1,44 @@
 package com.github.stupdit1t.jackson.expand.serializer;
 
 import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.core.JsonStreamContext;
 import com.fasterxml.jackson.databind.BeanProperty;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
 import com.fasterxml.jackson.databind.ser.ContextualSerializer;
 import com.github.stupdit1t.jackson.expand.annotation.Expand;
 import com.github.stupdit1t.jackson.expand.cache.ExpandCache;
+import com.github.stupdit1t.jackson.expand.cache.ExpandEntry;
+import com.github.stupdit1t.jackson.expand.cache.ExpandGenerations;
+import com.github.stupdit1t.jackson.expand.cache.ExpandKey;
 import com.github.stupdit1t.jackson.expand.cache.LocalCache;
+import com.github.stupdit1t.jackson.expand.cache.LongKeyStore;
 import com.github.stupdit1t.jackson.expand.config.JacksonExpandProperties;
-import com.github.stupdit1t.jackson.expand.domain.ExpandStrategy;
 import com.github.stupdit1t.jackson.expand.domain.SerializerParam;
+import com.github.stupdit1t.jackson.expand.handler.params.DefaultParamsHandler;
 import com.github.stupdit1t.jackson.expand.handler.params.ParamsHandler;
 import com.github.stupdit1t.jackson.expand.handler.rsp.ResponseHandler;
-import com.github.stupdit1t.jackson.expand.util.ReflectUtil;
+import com.github.stupdit1t.jackson.expand.metrics.ExpandMetrics;
+import com.github.stupdit1t.jackson.expand.util.AsyncUtil;
+import com.github.stupdit1t.jackson.expand.util.CircuitBreaker;
+import com.github.stupdit1t.jackson.expand.util.LogLimiter;
+import com.github.stupdit1t.jackson.expand.util.SingleFlight;
 import com.github.stupdit1t.jackson.expand.util.SpringUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
-import org.springframework.web.context.request.RequestAttributes;
-import org.springframework.web.context.request.RequestContextHolder;
-import org.springframework.web.context.request.ServletRequestAttributes;
 
-import javax.servlet.ServletRequest;
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.locks.StampedLock;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class ExpandSerializer extends JsonSerializer<Object> implements ContextualSerializer {
 
@@ -58,9 +65,49 @@ public class ExpandSerializer extends JsonSerializer<Object> implements Contextu
     private static JacksonExpandProperties jacksonExpandProperties;
 
     /**
-     * 本地锁缓存，防止同时查询
+     * 相同缓存KEY同时只加载一次，并发的调用方共享结果
      */
-    private static final LocalCache lockCache = new LocalCache();
+    private static final SingleFlight<ExpandKey, Object> singleFlight = new SingleFlight<>();
+
+    /**
+     * 跨请求合并批量调用
+     */
+    private static ExpandDispatcher dispatcher;
+
+    /**
+     * 熔断器, key: bean:方法
+     */
+    private static final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    /**
+     * 失败日志限流
+     */
+    private static LogLimiter logLimiter;
+
+    /**
+     * 指标
+     */
+    private static ExpandMetrics metrics;
+
+    /**
+     * 展开线程池, 后台刷新和限时加载使用
+     */
+    private static Executor refreshExecutor;
+
+    /**
+     * 是否配置了时间预算或调用超时
+     */
+    private static boolean budgeted;
+
+    /**
+     * 单次展开方法调用的最长等待时间, 纳秒
+     */
+    private static long loadTimeoutNanos;
+
+    /**
+     * 超出时间预算的结果标记, 输出时替换为降级值
+     */
+    private static final Object DEGRADED = new Object();
 
     /**
      * 远程调用服务
@@ -72,6 +119,21 @@ public class ExpandSerializer extends JsonSerializer<Object> implements Contextu
      */
     private String method;
 
+    /**
+     * 批量方法
+     */
+    private String batchMethod;
+
+    /**
+     * 解析后的展开方法
+     */
+    private LoadMethod loadMethod;
+
+    /**
+     * 解析后的批量方法, 未配置为null
+     */
+    private LoadMethod batchLoadMethod;
+
     /**
      * 注解参数处理
      */
@@ -92,225 +154,957 @@ public class ExpandSerializer extends JsonSerializer<Object> implements Contextu
      */
     private String beanName;
 
+    /**
+     * 缓存命名空间, 前缀:bean:方法
+     */
+    private String namespace;
+
+    /**
+     * 缓存KEY的额外参数部分
+     */
+    private String paramsSuffix;
+
+    /**
+     * 缓存代数, 按 bean/方法 失效后变大
+     */
+    private ExpandGenerations.Generation generation;
+
+    /**
+     * 是否可以使用本地缓存的整数存储: 本地缓存、默认缓存KEY、没有额外参数
+     */
+    private boolean longKeyed;
+
+    /**
+     * 当前代数的整数存储
+     */
+    private volatile LongKeyStore longStore;
+
+    /**
+     * 参数处理器是否自定义了缓存KEY
+     */
+    private boolean customCacheKey;
+
+    /**
+     * 单次响应的时间预算, 纳秒, 不限制为 Long.MAX_VALUE
+     */
+    private long budgetNanos = Long.MAX_VALUE;
+
+    /**
+     * 单次序列化中展开结果的分组, 默认缓存KEY时相同命名空间和参数的字段共用
+     */
+    private Object memoOwner = this;
+
+    /**
+     * 加载分组KEY的后缀, 额外参数、处理器、缓存配置都相同的字段才能共用一个分组,
+     * 分组内的值按其中一个字段的处理器处理并按它的缓存时间写入缓存
+     */
+    private String groupSuffix;
+
+    /**
+     * 字段的展开计划
+     */
+    private ExpandPlan plan;
+
+    /**
+     * 指标记录器
+     */
+    private ExpandMetrics.Recorder recorder = ExpandMetrics.Recorder.NONE;
+
     public ExpandSerializer() {
         super();
+        init();
+    }
+
+    /**
+     * 初始化缓存和配置
+     */
+    private static void init() {
         if (cache == null) {
             synchronized (ExpandSerializer.class) {
                 if (cache == null) {
                     cache = SpringUtil.getBean(ExpandCache.class);
                     jacksonExpandProperties = SpringUtil.getBean(JacksonExpandProperties.class);
+                    logLimiter = new LogLimiter(jacksonExpandProperties.getErrorLogInterval());
+                    metrics = SpringUtil.getBeanFactory().getBeanProvider(ExpandMetrics.class).getIfAvailable(() -> ExpandMetrics.NONE);
+                    refreshExecutor = SpringUtil.getBean("expandExecutor");
+                    if (jacksonExpandProperties.isDispatch()) {
+                        dispatcher = SpringUtil.getBeanFactory().getBeanProvider(ExpandDispatcher.class).getIfAvailable();
+                    }
+                    Duration loadTimeout = jacksonExpandProperties.getLoadTimeout();
+                    loadTimeoutNanos = loadTimeout == null ? Long.MAX_VALUE : loadTimeout.toNanos();
+                    budgeted = loadTimeout != null || jacksonExpandProperties.getTimeBudget() != null || !jacksonExpandProperties.getBeanTimeBudget().isEmpty();
                 }
             }
         }
     }
 
     public ExpandSerializer(String beanName, String method, SerializerParam params, ParamsHandler paramsHandler, ResponseHandler otherResponseHandler) {
+        this(beanName, method, null, params, paramsHandler, otherResponseHandler);
+    }
+
+    public ExpandSerializer(String beanName, String method, String batchMethod, SerializerParam params, ParamsHandler paramsHandler, ResponseHandler otherResponseHandler) {
         this();
         this.loadService = SpringUtil.getBean(beanName);
         this.method = method;
+        this.batchMethod = batchMethod;
         this.params = params;
         this.responseHandler = otherResponseHandler;
         this.paramsHandler = paramsHandler;
         this.beanName = beanName;
+        if (params.getRefreshAhead() == null) {
+            params.setRefreshAhead(jacksonExpandProperties.getRefreshAhead());
+        }
+        if (params.getStaleIfError() == null) {
+            params.setStaleIfError(jacksonExpandProperties.getStaleIfError());
+        }
+        if (params.getCacheTimeJitter() == null) {
+            params.setCacheTimeJitter(jacksonExpandProperties.getCacheTimeoutJitter());
+        }
+        this.recorder = metrics.recorder(beanName, method);
+        this.loadMethod = LoadMethod.resolve(loadService, method, params.getRemoteParams(), getCircuitBreaker(beanName, method), recorder);
+        if (StringUtils.hasText(batchMethod)) {
+            this.batchLoadMethod = LoadMethod.resolve(loadService, batchMethod, params.getRemoteParams(), getCircuitBreaker(beanName, batchMethod), metrics.recorder(beanName, batchMethod));
+        }
+        this.namespace = jacksonExpandProperties.getCachePrefix() + ":" + beanName + ":" + method;
+        this.paramsSuffix = ExpandKey.paramsSuffix(params.getRemoteParams());
+        this.generation = ExpandGenerations.of(beanName, method);
+        this.customCacheKey = isCustomCacheKey(paramsHandler);
+        this.longKeyed = cache instanceof LocalCache && !customCacheKey && paramsSuffix.isEmpty();
+        if (!customCacheKey) {
+            this.memoOwner = (namespace + ":" + paramsSuffix).intern();
+        }
+        this.budgetNanos = getBudgetNanos(beanName);
+        this.groupSuffix = Arrays.toString(params.getRemoteParams())
+                + ":" + paramsHandler.getClass().getName()
+                + ":" + otherResponseHandler.getClass().getName()
+                + ":" + params.getCacheTime()
+                + ":" + params.getRefreshAhead()
+                + ":" + params.getStaleIfError()
+                + ":" + params.getCacheTimeJitter();
     }
 
-    @Override
-    public void serialize(Object bindData, JsonGenerator gen, SerializerProvider serializers) throws IOException {
-        String writeFieldPath = getFieldPath(gen.getOutputContext());
-
-        // 统一path替换
-        String dynamicExpandCommonPrefix = jacksonExpandProperties.getDynamicExpandCommonPrefix();
-        if (StringUtils.hasText(dynamicExpandCommonPrefix) && writeFieldPath.startsWith(dynamicExpandCommonPrefix)) {
-            writeFieldPath = writeFieldPath.substring(dynamicExpandCommonPrefix.length() + 1);
+    /**
+     * 获取 bean 的时间预算, 全局和 bean 都配置时取较小的
+     *
+     * @param beanName bean名称
+     * @return 纳秒, 不限制返回 Long.MAX_VALUE
+     */
+    private static long getBudgetNanos(String beanName) {
+        long budget = Long.MAX_VALUE;
+        Duration timeBudget = jacksonExpandProperties.getTimeBudget();
+        if (timeBudget != null) {
+            budget = timeBudget.toNanos();
         }
-
-        // 是否展开
-        boolean expand;
-        // 动态展开开启，判断是否展开
-        boolean dynamicExpand = jacksonExpandProperties.isDynamicExpand();
-        if (dynamicExpand) {
-            Set<String> needExpandField = getParam(jacksonExpandProperties.getDynamicExpandParameterName());
-            // 如果代码里设置不展开，动态展开也不生效
-            expand = needExpandField.contains(writeFieldPath) && params.isOpen();
-        } else {
-            expand = params.isOpen();
+        Duration beanTimeBudget = jacksonExpandProperties.getBeanTimeBudget().get(beanName);
+        if (beanTimeBudget != null) {
+            budget = Math.min(budget, beanTimeBudget.toNanos());
         }
-        if (!expand) {
-            gen.writeObject(bindData);
-            return;
+        return budget;
+    }
+
+    /**
+     * 获取 bean/方法 的熔断器
+     *
+     * @param beanName bean名称
+     * @param method   方法
+     * @return 未开启熔断返回null
+     */
+    private static CircuitBreaker getCircuitBreaker(String beanName, String method) {
+        if (!jacksonExpandProperties.isCircuitBreaker()) {
+            return null;
         }
+        return circuitBreakers.computeIfAbsent(beanName + ":" + method, (name) -> new CircuitBreaker(name, jacksonExpandProperties.getCircuitBreakerFailureThreshold(), jacksonExpandProperties.getCircuitBreakerOpenDuration()));
+    }
 
-        // 判断要写入的字段
-        String writeField = gen.getOutputContext().getCurrentName();
-        if (jacksonExpandProperties.getExpandStrategy() == ExpandStrategy.COVER) {
-            writeField = gen.getOutputContext().getCurrentName();
-        } else if (jacksonExpandProperties.getExpandStrategy() == ExpandStrategy.COPY) {
-            writeField = String.format(jacksonExpandProperties.getCopyStrategyFormat(), gen.getOutputContext().getCurrentName());
+    /**
+     * 参数处理器是否重写了 getCacheKey
+     *
+     * @param paramsHandler 参数处理器
+     * @return
+     */
+    private static boolean isCustomCacheKey(ParamsHandler paramsHandler) {
+        try {
+            return paramsHandler.getClass().getMethod("getCacheKey", Object.class, Object[].class).getDeclaringClass() != ParamsHandler.class;
+        } catch (NoSuchMethodException e) {
+            return false;
         }
+    }
 
-        // 自定义要写入的优先级最高
-        if (StringUtils.hasText(params.getWriteField())) {
-            writeField = params.getWriteField();
+    @Override
+    public void serialize(Object bindData, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        ExpandPlan plan = getPlan(gen);
+        if (!isExpand(plan, gen, serializers)) {
+            serializers.defaultSerializeValue(bindData, gen);
+            return;
         }
 
         // 设置理论上的响应类型，要不要使用取决于 ResponseHandler 要不要处理，比如只能写入数据对象存在的对象，默认是忽略存不存在
-        Class<?> writeClass = null;
-        if (params.getWriteField() != null && StringUtils.hasText(params.getWriteField())) {
-            Field field = ReflectionUtils.findField(gen.getCurrentValue().getClass(), params.getWriteField());
-            if (field != null) {
-                writeClass = field.getType();
-            }
-        }
+        Object currentValue = gen.getCurrentValue();
+        Class<?> writeClass = plan.getWriteClass(currentValue == null ? null : currentValue.getClass());
 
         // 关闭不存在字段扩展，被写入的字段类型找不到，不扩展
-        if (!jacksonExpandProperties.isCanExpandToNotExistField() && writeClass == null) {
-            gen.writeObject(bindData);
+        if (plan.skip(writeClass)) {
+            serializers.defaultSerializeValue(bindData, gen);
             return;
         }
 
-
         // 翻译为非当前字段，先写入当前字段值再翻译
-        boolean currField = gen.getOutputContext().getCurrentName().equals(writeField);
-        if (!currField) {
-            gen.writeObject(bindData);
-            gen.writeFieldName(writeField);
+        if (!plan.isCurrentField()) {
+            serializers.defaultSerializeValue(bindData, gen);
+            gen.writeFieldName(plan.getWriteFieldName());
         }
         if (bindData == null || loadService == null) {
-            gen.writeObject(bindData);
+            serializers.defaultSerializeValue(bindData, gen);
             return;
         }
 
-        // 获取缓存KEY
-        Object[] args = params.getRemoteParams();
-        int argsLength = args == null ? 0 : args.length;
-        String cacheKey = jacksonExpandProperties.getCachePrefix() + ":" + beanName + ":" + method + ":%s:" + paramsHandler.getCacheKey(bindData, args);
-        Object result = getCacheInfo(cacheKey);
+        // 本次序列化已经展开过相同的值
+        ExpandMemo memo = ExpandMemo.current(serializers);
+        Object result = memo.get(memoOwner, bindData);
+        if (result == null) {
+            result = resolve(bindData, writeClass, serializers);
+            if (result == DEGRADED) {
+                // 降级结果不记录, 相同值后面出现时可能已经加载完成
+                String degradedValue = jacksonExpandProperties.getDegradedValue();
+                serializers.defaultSerializeValue(degradedValue == null ? bindData : degradedValue, gen);
+                return;
+            }
+            memo.put(memoOwner, bindData, result);
+        }
+        serializers.defaultSerializeValue(result, gen);
+    }
+
+    /**
+     * 获取展开结果: 本次响应预加载的结果、缓存、调用展开方法
+     *
+     * @param bindData    当前值
+     * @param writeClass  要写入字段的类型
+     * @param serializers 序列化上下文
+     * @return 展开结果, 失败返回当前值, 超出时间预算返回 {@link #DEGRADED}
+     */
+    private Object resolve(Object bindData, Class<?> writeClass, SerializerProvider serializers) {
+        ExpandKey cacheKey = null;
+        Object result = null;
+        // 优先取本次响应预加载的结果, 配置了时间预算时需要上下文记录开始时间
+        ExpandContext context = budgeted ? ExpandContext.currentOrCreate(serializers) : ExpandContext.current(serializers);
+        if (context != null) {
+            cacheKey = getCacheKey(bindData);
+            result = context.get(cacheKey);
+        }
+        // 整数字段值直接查本地缓存的整数存储, 命中时不创建缓存KEY
+        if (result == null && longKeyed) {
+            result = getLongCacheInfo(bindData, writeClass);
+        }
+        if (result == null) {
+            if (cacheKey == null) {
+                cacheKey = getCacheKey(bindData);
+            }
+            result = getCacheInfo(bindData, writeClass, cacheKey);
+        }
         if (result != null) {
-            LOG.info("{} Expand cache 命中: {}", beanName, result);
-            gen.writeObject(result);
-            return;
+            return result;
         }
+        if (budgeted) {
+            return loadWithinBudget(bindData, writeClass, cacheKey, context);
+        }
+        return loadShared(bindData, writeClass, cacheKey);
+    }
 
-        StampedLock lock = lockCache.get(cacheKey, new StampedLock(), Duration.ofSeconds(300));
-        // 写锁避免同一业务ID重复查询
-        long stamp = lock.writeLock();
-        Integer cacheTime = params.getCacheTime();
+    /**
+     * 在剩余时间预算内加载, 超时后展开方法在后台继续执行并写入缓存
+     *
+     * @param bindData   当前值
+     * @param writeClass 要写入字段的类型
+     * @param cacheKey   缓存的KEY
+     * @param context    本次响应的上下文
+     * @return 展开结果, 失败返回当前值, 超出时间预算返回 {@link #DEGRADED}
+     */
+    private Object loadWithinBudget(Object bindData, Class<?> writeClass, ExpandKey cacheKey, ExpandContext context) {
+        long timeout = getTimeoutNanos(context);
+        if (timeout <= 0) {
+            return degraded(context);
+        }
+        CompletableFuture<Object> future;
+        if (dispatcher != null && StringUtils.hasText(batchMethod)) {
+            future = dispatcher.loadAsync(this, bindData, writeClass, cacheKey)
+                    .handle((result, error) -> result)
+                    .thenCompose((result) -> result != null ? CompletableFuture.completedFuture(result) : loadSharedAsync(bindData, writeClass, cacheKey, refreshExecutor));
+        } else {
+            future = loadSharedAsync(bindData, writeClass, cacheKey, refreshExecutor);
+        }
         try {
-            // 多参数组装
-            Object[] objectParams = new Object[argsLength + 1];
-            objectParams[0] = paramsHandler.handleVal(bindData);
-            if(objectParams.length > 1){
-                System.arraycopy(args, 0, objectParams, 1, argsLength);
+            return future.get(timeout, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return degraded(context);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return degraded(context);
+        } catch (ExecutionException e) {
+            return bindData;
+        }
+    }
+
+    /**
+     * 是否配置了时间预算或调用超时
+     *
+     * @return
+     */
+    static boolean isBudgeted() {
+        return budgeted;
+    }
+
+    /**
+     * 本次加载最多等待的时间, 取剩余时间预算和单次调用超时中较小的
+     *
+     * @param context 本次响应的上下文
+     * @return 纳秒, 不限制返回 Long.MAX_VALUE, 小于等于0已超出
+     */
+    long getTimeoutNanos(ExpandContext context) {
+        return Math.min(context.remaining(budgetNanos), loadTimeoutNanos);
+    }
+
+    /**
+     * 记录超出时间预算的字段
+     *
+     * @param context 本次响应的上下文
+     * @return {@link #DEGRADED}
+     */
+    private Object degraded(ExpandContext context) {
+        context.degraded();
+        recorder.degraded();
+        long suppressed = acquireLog("degraded");
+        if (suppressed >= 0) {
+            LOG.warn("【{}】 Expand超出时间预算，输出降级值{}", beanName, suppressed(suppressed));
+        }
+        return DEGRADED;
+    }
+
+    /**
+     * 加载，同一缓存KEY并发时只有一个调用方真正加载
+     *
+     * @param bindData   当前值
+     * @param writeClass 要写入字段的类型
+     * @param cacheKey   缓存的KEY
+     * @return 展开结果, 失败返回当前值
+     */
+    Object loadShared(Object bindData, Class<?> writeClass, ExpandKey cacheKey) {
+        return singleFlight.execute(cacheKey, () -> {
+            // 等待期间上一次加载可能已经写入缓存
+            Object result = getCacheValue(cacheKey);
+            if (result != null) {
+                return result;
+            }
+            // 配置了批量方法，合并同一时间窗口内其他线程的请求一起批量调用
+            if (dispatcher != null && StringUtils.hasText(batchMethod)) {
+                result = dispatcher.load(this, bindData, writeClass, cacheKey);
+                if (result != null) {
+                    return result;
+                }
             }
-            // 请求翻译结果
-            Object loadResult = ReflectUtil.invoke(loadService, method, objectParams);
-            if (loadResult != null) {
-                result = this.responseHandler.handle(this.beanName, method, loadResult, writeClass, objectParams);
-                cache.put(String.format(cacheKey, OK), result, Duration.ofSeconds(cacheTime));
-            } else {
-                LOG.error("【{}】 Expand失败，未找到：{}", beanName, bindData);
-                cache.put(String.format(cacheKey, FAIL), bindData, Duration.ofSeconds(cacheTime));
-                result = bindData;
+            return load(bindData, writeClass, cacheKey);
+        }, recorder::waited);
+    }
+
+    /**
+     * 异步加载，同一缓存KEY并发时只有一个调用方真正加载，不阻塞当前线程
+     *
+     * @param bindData   当前值
+     * @param writeClass 要写入字段的类型
+     * @param cacheKey   缓存的KEY
+     * @param executor   同步展开方法的线程池
+     * @return 展开结果, 失败返回当前值
+     */
+    CompletableFuture<Object> loadSharedAsync(Object bindData, Class<?> writeClass, ExpandKey cacheKey, Executor executor) {
+        return singleFlight.executeAsync(cacheKey, () -> {
+            Object result = getCacheValue(cacheKey);
+            if (result != null) {
+                return CompletableFuture.completedFuture(result);
             }
+            return loadAsync(bindData, writeClass, cacheKey, executor);
+        });
+    }
+
+    /**
+     * 后台刷新, 返回旧值的同时重新加载, 同一缓存KEY同时只刷新一次
+     *
+     * @param bindData   当前值
+     * @param writeClass 要写入字段的类型
+     * @param cacheKey   缓存的KEY
+     */
+    private void refresh(Object bindData, Class<?> writeClass, ExpandKey cacheKey) {
+        singleFlight.executeAsync(cacheKey, () -> loadAsync(bindData, writeClass, cacheKey, refreshExecutor));
+    }
 
+    /**
+     * 异步调用展开方法并写入缓存
+     *
+     * @param bindData   当前值
+     * @param writeClass 要写入字段的类型
+     * @param cacheKey   缓存的KEY
+     * @param executor   同步展开方法的线程池
+     * @return 展开结果, 失败返回当前值
+     */
+    private CompletableFuture<Object> loadAsync(Object bindData, Class<?> writeClass, ExpandKey cacheKey, Executor executor) {
+        Object[] objectParams;
+        try {
+            objectParams = getLoadParams(bindData);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(complete(bindData, writeClass, cacheKey, null, null, e));
+        }
+        return loadMethod.invokeAsync(objectParams, executor)
+                .handle((loadResult, error) -> complete(bindData, writeClass, cacheKey, objectParams, loadResult, error == null ? null : AsyncUtil.unwrap(error)));
+    }
+
+    /**
+     * 调用展开方法并写入缓存
+     *
+     * @param bindData   当前值
+     * @param writeClass 要写入字段的类型
+     * @param cacheKey   缓存的KEY
+     * @return 展开结果, 失败返回当前值
+     */
+    Object load(Object bindData, Class<?> writeClass, ExpandKey cacheKey) {
+        Object[] objectParams = null;
+        Object loadResult = null;
+        Exception error = null;
+        try {
+            objectParams = getLoadParams(bindData);
+            // 请求翻译结果, 异步结果等待完成
+            loadResult = loadMethod.invokeAwait(objectParams);
         } catch (Exception e) {
-            LOG.error("【{}】 Expand异常：", beanName, e);
-            cache.put(String.format(cacheKey, FAIL), bindData, Duration.ofSeconds(cacheTime));
-            result = bindData;
-        } finally {
-            lock.unlockWrite(stamp);
+            error = e;
         }
-        gen.writeObject(result);
+        return complete(bindData, writeClass, cacheKey, objectParams, loadResult, error);
     }
 
     /**
-     * 获取当前字段的path路径
+     * 组装展开方法参数
      *
-     * @param outputContext
+     * @param bindData 当前值
      * @return
      */
-    private String getFieldPath(JsonStreamContext outputContext) {
-        List<String> path = new ArrayList<>(4);
-        while (outputContext != null) {
-            String currentName = outputContext.getCurrentName();
-            if (StringUtils.hasText(currentName)) {
-                path.add(currentName);
+    private Object[] getLoadParams(Object bindData) {
+        Object[] args = params.getRemoteParams();
+        int argsLength = args == null ? 0 : args.length;
+        // 多参数组装
+        Object[] objectParams = new Object[argsLength + 1];
+        objectParams[0] = paramsHandler.handleVal(bindData);
+        if (objectParams.length > 1) {
+            System.arraycopy(args, 0, objectParams, 1, argsLength);
+        }
+        return objectParams;
+    }
+
+    /**
+     * 处理展开方法的结果并写入缓存
+     *
+     * @param bindData     当前值
+     * @param writeClass   要写入字段的类型
+     * @param cacheKey     缓存的KEY
+     * @param objectParams 展开方法参数
+     * @param loadResult   展开方法结果
+     * @param error        展开方法异常
+     * @return 展开结果, 失败返回当前值
+     */
+    private Object complete(Object bindData, Class<?> writeClass, ExpandKey cacheKey, Object[] objectParams, Object loadResult, Exception error) {
+        if (error == null) {
+            try {
+                if (loadResult != null) {
+                    Object result = this.responseHandler.handle(this.beanName, method, loadResult, writeClass, objectParams);
+                    putCacheInfo(cacheKey, result);
+                    return result;
+                }
+                return fail(cacheKey, bindData, null);
+            } catch (Exception e) {
+                error = e;
             }
-            outputContext = outputContext.getParent();
         }
-        Collections.reverse(path);
-        return String.join(".", path);
+        return fail(cacheKey, bindData, error);
     }
 
     /**
-     * 获取厍信息
+     * 展开失败，按失败类型的缓存时间写入缓存并限流输出日志。熔断打开时不缓存，恢复后立即重新展开
      *
      * @param cacheKey 缓存的KEY
+     * @param bindData 当前值
+     * @param error    展开异常, 未找到为null
+     * @return 当前值
+     */
+    Object fail(ExpandKey cacheKey, Object bindData, Exception error) {
+        // 开启了提前刷新或过期后继续使用, 展开异常时返回缓存中上一次成功的值
+        ExpandEntry stale = error == null ? null : getStaleEntry(cacheKey);
+        if (error instanceof CircuitBreaker.OpenException) {
+            return stale == null ? bindData : stale.getValue();
+        }
+        Integer timeout;
+        if (error == null) {
+            long suppressed = acquireLog("notFound");
+            if (suppressed >= 0) {
+                LOG.error("【{}】 Expand失败，未找到：{}{}", beanName, bindData, suppressed(suppressed));
+            }
+            timeout = jacksonExpandProperties.getCacheNotFoundTimeout();
+        } else {
+            long suppressed = acquireLog("error");
+            if (suppressed >= 0) {
+                LOG.error("【{}】 Expand异常{}：", beanName, suppressed(suppressed), error);
+            }
+            timeout = jacksonExpandProperties.getCacheErrorTimeout();
+        }
+        if (stale != null) {
+            return stale.getValue();
+        }
+        if (timeout == null) {
+            timeout = params.getCacheTime();
+        }
+        if (timeout > 0) {
+            cache.put(cacheKey, ExpandEntry.fail(bindData), Duration.ofMillis(jitter(timeout * 1000L)));
+        }
+        return bindData;
+    }
+
+    /**
+     * 批量展开失败, 每个值按异常的缓存时间一次写入缓存, 不再逐个展开。熔断打开时不缓存, 日志由调用方输出
+     *
+     * @param bindDatas 缓存的KEY和当前值
+     * @param error     批量展开异常
+     * @return 缓存的KEY和结果, 有上一次成功的值时返回该值, 否则返回当前值
+     */
+    Map<ExpandKey, Object> failAll(Map<ExpandKey, Object> bindDatas, Exception error) {
+        Map<ExpandKey, Object> results = new LinkedHashMap<>(bindDatas.size() * 2);
+        Map<ExpandKey, ExpandEntry> entries = new LinkedHashMap<>(bindDatas.size() * 2);
+        for (Map.Entry<ExpandKey, Object> bindData : bindDatas.entrySet()) {
+            ExpandEntry stale = getStaleEntry(bindData.getKey());
+            if (stale != null) {
+                results.put(bindData.getKey(), stale.getValue());
+                continue;
+            }
+            results.put(bindData.getKey(), bindData.getValue());
+            entries.put(bindData.getKey(), ExpandEntry.fail(bindData.getValue()));
+        }
+        if (error instanceof CircuitBreaker.OpenException || entries.isEmpty()) {
+            return results;
+        }
+        Integer timeout = jacksonExpandProperties.getCacheErrorTimeout();
+        if (timeout == null) {
+            timeout = params.getCacheTime();
+        }
+        if (timeout > 0) {
+            cache.multiPut(entries, Duration.ofMillis(jitter(timeout * 1000L)));
+        }
+        return results;
+    }
+
+    /**
+     * 批量写入未找到结果, 一次写入缓存, 只输出一次日志
+     *
+     * @param bindDatas 缓存的KEY和当前值
+     */
+    void notFound(Map<ExpandKey, Object> bindDatas) {
+        if (bindDatas.isEmpty()) {
+            return;
+        }
+        long suppressed = acquireLog("notFound");
+        if (suppressed >= 0) {
+            LOG.error("【{}】 Expand失败，未找到：{}{}", beanName, bindDatas.values(), suppressed(suppressed));
+        }
+        Integer timeout = jacksonExpandProperties.getCacheNotFoundTimeout();
+        if (timeout == null) {
+            timeout = params.getCacheTime();
+        }
+        if (timeout > 0) {
+            Map<ExpandKey, ExpandEntry> entries = new LinkedHashMap<>(bindDatas.size() * 2);
+            for (Map.Entry<ExpandKey, Object> bindData : bindDatas.entrySet()) {
+                entries.put(bindData.getKey(), ExpandEntry.fail(bindData.getValue()));
+            }
+            cache.multiPut(entries, Duration.ofMillis(jitter(timeout * 1000L)));
+        }
+    }
+
+    /**
+     * 获取展开异常时可以继续使用的缓存值。刷新失败后不再提前刷新, 到逻辑过期后再重新加载
+     *
+     * @param cacheKey 缓存的KEY
+     * @return 没有返回null
+     */
+    private ExpandEntry getStaleEntry(ExpandKey cacheKey) {
+        if (params.getRefreshAhead() <= 0 && params.getStaleIfError() <= 0) {
+            return null;
+        }
+        ExpandEntry entry = cache.get(cacheKey);
+        if (entry == null || !entry.isOk() || entry.getExpireAt() == 0) {
+            return null;
+        }
+        long remaining = entry.getExpireAt() + params.getStaleIfError() * 1000L - System.currentTimeMillis();
+        if (remaining <= 0) {
+            return null;
+        }
+        if (entry.getRefreshAt() != 0) {
+            cache.put(cacheKey, ExpandEntry.ok(entry.getValue(), 0, entry.getExpireAt()), Duration.ofMillis(remaining));
+        }
+        return entry;
+    }
+
+    /**
+     * 获取失败日志的输出许可, 同一 bean/方法/类型 按间隔限流
+     *
+     * @param type 日志类型
+     * @return 允许输出返回期间忽略的次数，不允许返回-1
+     */
+    long acquireLog(String type) {
+        return logLimiter.tryAcquire(beanName + ":" + method + ":" + type);
+    }
+
+    /**
+     * 忽略次数的日志描述
+     *
+     * @param suppressed 忽略次数
      * @return
      */
-    private Object getCacheInfo(String cacheKey) {
-        Object result = cache.get(String.format(cacheKey, OK));
-        if (result == null) {
-            result = cache.get(String.format(cacheKey, FAIL));
+    static String suppressed(long suppressed) {
+        return suppressed > 0 ? "(期间忽略" + suppressed + "次)" : "";
+    }
+
+    /**
+     * 获取展开计划, 不是通过注解构建的序列化器第一次序列化时按当前字段创建
+     *
+     * @param gen
+     * @return
+     */
+    private ExpandPlan getPlan(JsonGenerator gen) {
+        ExpandPlan plan = this.plan;
+        if (plan == null) {
+            Object currentValue = gen.getCurrentValue();
+            plan = ExpandPlan.of(gen.getOutputContext().getCurrentName(), currentValue == null ? null : currentValue.getClass(), params, jacksonExpandProperties);
+            this.plan = plan;
+        }
+        return plan;
+    }
+
+    /**
+     * 当前输出位置的字段是否要展开, 未开启动态展开时不计算path
+     *
+     * @param plan     展开计划
+     * @param gen      输出
+     * @param provider 序列化上下文
+     * @return
+     */
+    private boolean isExpand(ExpandPlan plan, JsonGenerator gen, SerializerProvider provider) {
+        // 如果代码里设置不展开，动态展开也不生效
+        if (!plan.isOpen()) {
+            return false;
+        }
+        // 动态展开开启，判断是否展开
+        return !plan.isDynamicExpand() || FieldPath.current(provider, plan).resolve(gen.getOutputContext()).matches();
+    }
+
+    /**
+     * 获取缓存KEY
+     *
+     * @param bindData 当前值
+     * @return
+     */
+    ExpandKey getCacheKey(Object bindData) {
+        if (customCacheKey) {
+            return new ExpandKey(namespace, "", paramsHandler.getCacheKey(bindData, params.getRemoteParams()), generation.get());
         }
-        return result;
+        return new ExpandKey(namespace, paramsSuffix, bindData, generation.get());
+    }
+
+    /**
+     * 获取加载分组的KEY
+     *
+     * @param batch 是否批量方法
+     * @return bean:方法:额外参数:处理器和缓存配置
+     */
+    String getGroupKey(boolean batch) {
+        return beanName + ":" + (batch ? batchMethod : method) + ":" + groupSuffix;
+    }
+
+    /**
+     * 写入成功结果。开启提前刷新或过期后继续使用时带上刷新时间和逻辑过期时间, 缓存保存时间加上继续使用的时间
+     *
+     * @param cacheKey 缓存的KEY
+     * @param result   展开结果
+     */
+    void putCacheInfo(ExpandKey cacheKey, Object result) {
+        long timeout = jitter(params.getCacheTime() * 1000L);
+        cache.put(cacheKey, toCacheEntry(result, timeout), Duration.ofMillis(cacheDuration(timeout)));
+    }
+
+    /**
+     * 批量写入成功结果, 一次写入缓存。同一批的值随机减少的缓存时间相同, 过期后一起重新批量加载
+     *
+     * @param results 缓存的KEY和展开结果
+     */
+    void putCacheInfos(Map<ExpandKey, Object> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+        long timeout = jitter(params.getCacheTime() * 1000L);
+        Map<ExpandKey, ExpandEntry> entries = new LinkedHashMap<>(results.size() * 2);
+        for (Map.Entry<ExpandKey, Object> result : results.entrySet()) {
+            entries.put(result.getKey(), toCacheEntry(result.getValue(), timeout));
+        }
+        cache.multiPut(entries, Duration.ofMillis(cacheDuration(timeout)));
+    }
+
+    /**
+     * 成功结果的缓存值
+     *
+     * @param result  展开结果
+     * @param timeout 缓存时间, 毫秒
+     * @return
+     */
+    private ExpandEntry toCacheEntry(Object result, long timeout) {
+        double refreshAhead = params.getRefreshAhead();
+        if (refreshAhead <= 0 && params.getStaleIfError() <= 0) {
+            return ExpandEntry.ok(result);
+        }
+        long now = System.currentTimeMillis();
+        long refreshAt = refreshAhead > 0 && refreshAhead < 1 ? now + (long) (timeout * refreshAhead) : 0;
+        return ExpandEntry.ok(result, refreshAt, now + timeout);
+    }
+
+    /**
+     * 缓存实际保存时间, 缓存能保存过期时间时加上过期后继续使用的时间
+     *
+     * @param timeout 缓存时间, 毫秒
+     * @return
+     */
+    private long cacheDuration(long timeout) {
+        if (!cache.storesEntryTime()) {
+            return timeout;
+        }
+        return timeout + Math.max(params.getStaleIfError(), 0) * 1000L;
+    }
+
+    /**
+     * 缓存时间随机减少, 避免同时加载的值同时过期
+     *
+     * @param timeout 缓存时间, 毫秒
+     * @return
+     */
+    private long jitter(long timeout) {
+        double jitter = params.getCacheTimeJitter();
+        if (jitter <= 0 || timeout <= 0) {
+            return timeout;
+        }
+        return timeout - (long) (timeout * Math.min(jitter, 1) * ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * 获取缓存信息, 记录命中指标。超过刷新时间的值直接返回并后台刷新, 逻辑过期的值视为未命中
+     *
+     * @param bindData   当前值
+     * @param writeClass 要写入字段的类型
+     * @param cacheKey   缓存的KEY
+     * @return
+     */
+    Object getCacheInfo(Object bindData, Class<?> writeClass, ExpandKey cacheKey) {
+        return getCacheInfo(cache.get(cacheKey), bindData, writeClass, cacheKey);
+    }
+
+    /**
+     * 处理已读取的缓存值, 记录命中指标
+     *
+     * @param entry      缓存值, 不存在为null
+     * @param bindData   当前值
+     * @param writeClass 要写入字段的类型
+     * @param cacheKey   缓存的KEY
+     * @return
+     */
+    Object getCacheInfo(ExpandEntry entry, Object bindData, Class<?> writeClass, ExpandKey cacheKey) {
+        if (entry == null) {
+            recorder.miss();
+            return null;
+        }
+        if (!entry.isOk()) {
+            recorder.negativeHit();
+            return entry.getValue();
+        }
+        if (entry.getExpireAt() != 0) {
+            long now = System.currentTimeMillis();
+            if (entry.isExpired(now)) {
+                recorder.miss();
+                return null;
+            }
+            if (entry.isRefreshable(now)) {
+                refresh(bindData, writeClass, cacheKey);
+            }
+        }
+        recorder.hit();
+        return entry.getValue();
+    }
+
+    /**
+     * 批量读取缓存, 收集器一次读取所有要展开的值
+     *
+     * @param cacheKeys 缓存的KEY
+     * @return 存在的缓存值
+     */
+    static Map<ExpandKey, ExpandEntry> getCacheEntries(Collection<ExpandKey> cacheKeys) {
+        return cache.multiGet(cacheKeys);
+    }
+
+    /**
+     * 从本地缓存的整数存储获取缓存信息, 记录命中指标
+     * <p>
+     * 未命中返回null, 由 {@link #getCacheInfo(Object, Class, ExpandKey)} 按普通方式处理
+     *
+     * @param bindData   当前值
+     * @param writeClass 要写入字段的类型
+     * @return
+     */
+    private Object getLongCacheInfo(Object bindData, Class<?> writeClass) {
+        if (!(bindData instanceof Long || bindData instanceof Integer || bindData instanceof Short || bindData instanceof Byte)) {
+            return null;
+        }
+        long currentGeneration = generation.get();
+        LongKeyStore store = this.longStore;
+        if (store == null || store.getGeneration() != currentGeneration || store.isRetired()) {
+            store = ((LocalCache) cache).longStore(namespace, currentGeneration);
+            if (store == null) {
+                return null;
+            }
+            this.longStore = store;
+        }
+        ExpandEntry entry = store.get(((Number) bindData).longValue());
+        if (entry == null || entry.isExpired(System.currentTimeMillis())) {
+            return null;
+        }
+        // 带刷新时间的值需要缓存KEY后台刷新
+        if (entry.getExpireAt() != 0) {
+            return getCacheInfo(entry, bindData, writeClass, getCacheKey(bindData));
+        }
+        if (entry.isOk()) {
+            recorder.hit();
+        } else {
+            recorder.negativeHit();
+        }
+        return entry.getValue();
+    }
+
+    /**
+     * 获取缓存值, 加载前再次检查使用, 不记录指标
+     *
+     * @param cacheKey 缓存的KEY
+     * @return
+     */
+    private Object getCacheValue(ExpandKey cacheKey) {
+        ExpandEntry entry = cache.get(cacheKey);
+        return entry == null || entry.isExpired(System.currentTimeMillis()) ? null : entry.getValue();
     }
 
     @Override
     public JsonSerializer<?> createContextual(SerializerProvider prov, BeanProperty property) throws JsonMappingException {
         if (property != null) {
-            Expand load = property.getAnnotation(Expand.class);
-            if (load == null) {
-                throw new RuntimeException("未注解相关 @Expand 注解");
-            }
-            String bean = load.bean();
-            Class<? extends ParamsHandler> paramsHandlerClass = load.paramsHandler();
-            Class<? extends ResponseHandler> responseHandlerClass = load.responseHandler();
-            String method = load.method();
+            ExpandSerializer serializer;
             try {
-                ParamsHandler paramsHandler = paramsHandlerClass.getDeclaredConstructor().newInstance();
-                ResponseHandler responseHandler = responseHandlerClass.getDeclaredConstructor().newInstance();
-                int cacheTime = load.cacheTime();
-                // 额外参数处理
-                SerializerParam params = paramsHandler.handleAnnotation(property);
-                // 参数处理器没设置，且父注设置了，以父注解为主
-                if (params.getCacheTime() == null && cacheTime != -1) {
-                    params.setCacheTime(cacheTime);
-                }
-                // 缓存时间未设置，取默认
-                if (params.getCacheTime() == null) {
-                    params.setCacheTime(jacksonExpandProperties.getCacheTimeout());
-                }
-                if (params.isOpen() == null) {
-                    params.setExpand(load.expand());
-                }
-                return new ExpandSerializer(bean, method, params, paramsHandler, responseHandler);
-            } catch (Exception e) {
-                LOG.error("@Expand error: ", e);
+                serializer = build(property);
+            } catch (IllegalStateException e) {
+                throw JsonMappingException.from(prov, "@Expand " + property.getName() + ": " + e.getMessage(), e);
+            }
+            if (serializer != null) {
+                return serializer;
             }
         }
         return prov.findNullValueSerializer(null);
     }
 
     /**
-     * 获取展开参数
+     * 根据注解构建序列化器
      *
-     * @param key
-     * @return
+     * @param property 被注解的字段
+     * @return 构建失败返回null
+     * @throws IllegalStateException 展开方法不存在
      */
-    private Set<String> getParam(String key) {
-        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
-        if (attributes == null) {
-            return Collections.emptySet();
+    static ExpandSerializer build(BeanProperty property) {
+        init();
+        Expand load = property.getAnnotation(Expand.class);
+        if (load == null) {
+            throw new RuntimeException("未注解相关 @Expand 注解");
         }
-        ServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
-        String[] parameterValues = request.getParameterValues(key);
-        if (parameterValues == null) {
-            return Collections.emptySet();
+        String bean = load.bean();
+        Class<? extends ParamsHandler> paramsHandlerClass = load.paramsHandler();
+        Class<? extends ResponseHandler> responseHandlerClass = load.responseHandler();
+        String method = load.method();
+        try {
+            ParamsHandler paramsHandler = paramsHandlerClass.getDeclaredConstructor().newInstance();
+            ResponseHandler responseHandler = responseHandlerClass.getDeclaredConstructor().newInstance();
+            int cacheTime = load.cacheTime();
+            // 额外参数处理
+            SerializerParam params = paramsHandler.handleAnnotation(property);
+            // 参数处理器没设置，且父注设置了，以父注解为主
+            if (params.getCacheTime() == null && cacheTime != -1) {
+                params.setCacheTime(cacheTime);
+            }
+            // 缓存时间未设置，取默认
+            if (params.getCacheTime() == null) {
+                params.setCacheTime(jacksonExpandProperties.getCacheTimeout());
+            }
+            if (params.isOpen() == null) {
+                params.setExpand(load.expand());
+            }
+            // 未设置的取全局配置
+            if (params.getRefreshAhead() == null && load.refreshAhead() >= 0) {
+                params.setRefreshAhead(load.refreshAhead());
+            }
+            if (params.getStaleIfError() == null && load.staleIfError() >= 0) {
+                params.setStaleIfError(load.staleIfError());
+            }
+            if (params.getCacheTimeJitter() == null && load.cacheTimeJitter() >= 0) {
+                params.setCacheTimeJitter(load.cacheTimeJitter());
+            }
+            ExpandSerializer serializer = new ExpandSerializer(bean, method, load.batchMethod(), params, paramsHandler, responseHandler);
+            // 默认参数处理器直接把字段值传给展开方法, 重载方法都不能接收字段类型时不再等到序列化时才报错
+            if (paramsHandlerClass == DefaultParamsHandler.class) {
+                serializer.loadMethod.checkArgument(property.getType().getRawClass());
+            }
+            AnnotatedMember member = property.getMember();
+            serializer.plan = ExpandPlan.of(property.getName(), member == null ? null : member.getDeclaringClass(), params, jacksonExpandProperties);
+            return serializer;
+        } catch (IllegalStateException e) {
+            // 展开方法不存在，不再等到序列化时才报错
+            throw e;
+        } catch (Exception e) {
+            LOG.error("@Expand error: ", e);
         }
-        return Arrays.stream(parameterValues).flatMap(o -> Arrays.stream(o.split(",")))
-                .collect(Collectors.toSet());
+        return null;
     }
-}
 
+    Object getLoadService() {
+        return loadService;
+    }
+
+    String getBeanName() {
+        return beanName;
+    }
 
+    String getMethod() {
+        return method;
+    }
+
+    String getBatchMethod() {
+        return batchMethod;
+    }
+
+    LoadMethod getBatchLoadMethod() {
+        return batchLoadMethod;
+    }
+
+    ExpandPlan getPlan() {
+        return plan;
+    }
+
+    SerializerParam getParams() {
+        return params;
+    }
+
+    ParamsHandler getParamsHandler() {
+        return paramsHandler;
+    }
+
+    ResponseHandler getResponseHandler() {
+        return responseHandler;
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.stupdit1t.jackson.expand.serializer;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.type.CollectionType;
+
+import java.util.Iterator;
+import java.util.stream.BaseStream;
+
+/**
+ * 流式展开模块
+ * <p>
+ * 窗口大小大于0时用 {@link ExpandWindowSerializer} 包装集合、Iterator、Stream 的序列化器。
+ * Spring Boot 会自动注册到默认的 ObjectMapper，自己创建的 ObjectMapper 需要手动 registerModule
+ *
+ * @author 625
+ */
+public class ExpandWindowModule extends SimpleModule {
+
+    private static final long serialVersionUID = 1L;
+
+    public ExpandWindowModule(int windowSize) {
+        super(ExpandWindowModule.class.getSimpleName());
+        if (windowSize > 0) {
+            setSerializerModifier(new WindowSerializerModifier(windowSize));
+        }
+    }
+
+    /**
+     * 包装序列化器
+     */
+    private static class WindowSerializerModifier extends BeanSerializerModifier {
+
+        /**
+         * 窗口大小
+         */
+        private final int windowSize;
+
+        WindowSerializerModifier(int windowSize) {
+            this.windowSize = windowSize;
+        }
+
+        @Override
+        public JsonSerializer<?> modifyCollectionSerializer(SerializationConfig config, CollectionType valueType, BeanDescription beanDesc, JsonSerializer<?> serializer) {
+            return new ExpandWindowSerializer(serializer, windowSize);
+        }
+
+        @Override
+        public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc, JsonSerializer<?> serializer) {
+            Class<?> beanClass = beanDesc.getBeanClass();
+            if (Iterator.class.isAssignableFrom(beanClass) || BaseStream.class.isAssignableFrom(beanClass)) {
+                return new ExpandWindowSerializer(serializer, windowSize);
+            }
+            return serializer;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.github.stupdit1t.jackson.expand.serializer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.impl.IndexedListSerializer;
+import com.fasterxml.jackson.databind.ser.impl.IteratorSerializer;
+import com.fasterxml.jackson.databind.ser.std.CollectionSerializer;
+import com.fasterxml.jackson.databind.ser.std.IterableSerializer;
+import com.github.stupdit1t.jackson.expand.util.SpringUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.BaseStream;
+
+/**
+ * 流式展开
+ * <p>
+ * 包装集合、Iterator、Stream 的序列化器，写出数组时每次预读一个窗口的元素，用 {@link ExpandCollector} 批量展开后再逐个写出，
+ * 窗口的展开结果写出后即丢弃，内存只和窗口大小有关。元素数量不超过窗口的集合直接使用原序列化器
+ * <p>
+ * 每个窗口的元素交给原序列化器写出，保留元素类型、contentUsing 等元素序列化配置。
+ * 原序列化器不是 Jackson 的集合、Iterable、Iterator 序列化器时, 集合整体交给原序列化器, 不按窗口展开
+ *
+ * @author 625
+ */
+public class ExpandWindowSerializer extends JsonSerializer<Object> implements ContextualSerializer, ResolvableSerializer {
+
+    /**
+     * 展开值收集器
+     */
+    private static volatile ExpandCollector collector;
+
+    /**
+     * 原序列化器
+     */
+    private final JsonSerializer<Object> delegate;
+
+    /**
+     * 窗口大小
+     */
+    private final int windowSize;
+
+    /**
+     * 原序列化器是否可以按窗口写出元素
+     */
+    private final boolean writesContents;
+
+    @SuppressWarnings("unchecked")
+    public ExpandWindowSerializer(JsonSerializer<?> delegate, int windowSize) {
+        this.delegate = (JsonSerializer<Object>) delegate;
+        this.windowSize = windowSize;
+        this.writesContents = delegate instanceof IndexedListSerializer || delegate instanceof CollectionSerializer
+                || delegate instanceof IterableSerializer || delegate instanceof IteratorSerializer;
+    }
+
+    @Override
+    public void serialize(Object value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (value instanceof Collection && (!writesContents || ((Collection<?>) value).size() <= windowSize)) {
+            delegate.serialize(value, gen, provider);
+            return;
+        }
+        Iterator<?> iterator;
+        if (value instanceof Iterable) {
+            iterator = ((Iterable<?>) value).iterator();
+        } else if (value instanceof Iterator) {
+            iterator = (Iterator<?>) value;
+        } else if (value instanceof BaseStream) {
+            iterator = ((BaseStream<?, ?>) value).iterator();
+        } else {
+            delegate.serialize(value, gen, provider);
+            return;
+        }
+        gen.writeStartArray(value);
+        try {
+            serializeWindows(iterator, gen, provider);
+        } finally {
+            if (value instanceof BaseStream) {
+                ((BaseStream<?, ?>) value).close();
+            }
+        }
+        gen.writeEndArray();
+    }
+
+    /**
+     * 按窗口展开并写出元素
+     *
+     * @param iterator 元素
+     * @param gen      输出
+     * @param provider 序列化上下文
+     * @throws IOException
+     */
+    private void serializeWindows(Iterator<?> iterator, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        ExpandCollector collector = getCollector();
+        ExpandContext parent = ExpandContext.currentOrCreate(provider);
+        ExpandMemo memo = ExpandMemo.current(provider);
+        List<Object> window = new ArrayList<>(Math.min(windowSize, 1024));
+        while (iterator.hasNext()) {
+            window.clear();
+            while (window.size() < windowSize && iterator.hasNext()) {
+                window.add(iterator.next());
+            }
+            ExpandContext windowContext = parent.window();
+            if (collector != null) {
+                collector.collectWindow(window, windowContext, gen.getOutputContext());
+            }
+            windowContext.bindTo(provider);
+            try {
+                writeWindow(window, gen, provider);
+            } finally {
+                parent.bindTo(provider);
+            }
+            // 本次序列化的展开结果也只保留当前窗口的
+            memo.clear();
+        }
+    }
+
+    /**
+     * 用原序列化器写出一个窗口的元素
+     *
+     * @param window   窗口的元素
+     * @param gen      输出
+     * @param provider 序列化上下文
+     * @throws IOException
+     */
+    private void writeWindow(List<Object> window, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        JsonSerializer<?> serializer = delegate;
+        if (serializer instanceof IndexedListSerializer) {
+            ((IndexedListSerializer) serializer).serializeContents(window, gen, provider);
+        } else if (serializer instanceof CollectionSerializer) {
+            ((CollectionSerializer) serializer).serializeContents(window, gen, provider);
+        } else if (serializer instanceof IterableSerializer) {
+            ((IterableSerializer) serializer).serializeContents(window, gen, provider);
+        } else if (serializer instanceof IteratorSerializer) {
+            ((IteratorSerializer) serializer).serializeContents(window.iterator(), gen, provider);
+        } else {
+            // Stream 等没有元素序列化器的, 按运行时类型写出
+            for (Object item : window) {
+                provider.defaultSerializeValue(item, gen);
+            }
+        }
+    }
+
+    @Override
+    public void serializeWithType(Object value, JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer) throws IOException {
+        delegate.serializeWithType(value, gen, provider, typeSer);
+    }
+
+    @Override
+    public boolean isEmpty(SerializerProvider provider, Object value) {
+        return delegate.isEmpty(provider, value);
+    }
+
+    @Override
+    public JsonSerializer<?> createContextual(SerializerProvider prov, BeanProperty property) throws JsonMappingException {
+        if (!(delegate instanceof ContextualSerializer)) {
+            return this;
+        }
+        JsonSerializer<?> contextual = ((ContextualSerializer) delegate).createContextual(prov, property);
+        return contextual == delegate ? this : new ExpandWindowSerializer(contextual, windowSize);
+    }
+
+    @Override
+    public void resolve(SerializerProvider provider) throws JsonMappingException {
+        if (delegate instanceof ResolvableSerializer) {
+            ((ResolvableSerializer) delegate).resolve(provider);
+        }
+    }
+
+    /**
+     * 获取展开值收集器
+     *
+     * @return 不存在返回null, 只按窗口写出不批量展开
+     */
+    private static ExpandCollector getCollector() {
+        if (collector == null) {
+            collector = SpringUtil.getBeanFactory().getBeanProvider(ExpandCollector.class).getIfAvailable();
+        }
+        return collector;
+    }
+}
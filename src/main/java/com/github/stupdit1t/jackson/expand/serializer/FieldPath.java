@@ -0,0 +1,258 @@
+package com.github.stupdit1t.jackson.expand.serializer;
+
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 单次序列化的字段path
+ * <p>
+ * path按 父节点+字段名 复用同一个节点, 数组下标忽略。每个节点创建时就算好了动态展开选择器的匹配状态,
+ * 序列化时找到节点即可判断是否展开, 不拼接字符串也不创建对象
+ * <p>
+ * {@link ExpandPathModule} 在每个对象序列化前后入栈出栈, 字段值只需从所在对象的节点往下找一级;
+ * 没有注册该模块时沿输出上下文从根逐级查找
+ * <p>
+ * 保存在 {@link SerializerProvider} 的单次调用属性中, 只在序列化线程使用
+ *
+ * @author 625
+ */
+final class FieldPath {
+
+    /**
+     * 序列化属性名
+     */
+    private static final Object ATTRIBUTE = FieldPath.class;
+
+    /**
+     * 根节点, 第一次判断是否展开时创建
+     */
+    private Node root;
+
+    /**
+     * 序列化中的对象所在的输出上下文, 下标为对象嵌套层级
+     */
+    private JsonStreamContext[] containers = new JsonStreamContext[16];
+
+    /**
+     * 序列化中的对象的节点, 用到时才计算
+     */
+    private Node[] nodes = new Node[16];
+
+    /**
+     * 序列化中的对象层级
+     */
+    private int depth;
+
+    /**
+     * 获取本次序列化的path, 不存在则创建
+     *
+     * @param provider 序列化上下文
+     * @param plan     展开计划, 用于获取当前请求的选择器
+     * @return
+     */
+    static FieldPath current(SerializerProvider provider, ExpandPlan plan) {
+        FieldPath fieldPath = current(provider);
+        if (fieldPath.root == null) {
+            fieldPath.root = new Node(null, null, plan.selector(provider).start());
+        }
+        return fieldPath;
+    }
+
+    /**
+     * 获取本次序列化的path, 不存在则创建
+     *
+     * @param provider 序列化上下文
+     * @return
+     */
+    static FieldPath current(SerializerProvider provider) {
+        Object path = provider.getAttribute(ATTRIBUTE);
+        if (path instanceof FieldPath) {
+            return (FieldPath) path;
+        }
+        FieldPath fieldPath = new FieldPath();
+        provider.setAttribute(ATTRIBUTE, fieldPath);
+        return fieldPath;
+    }
+
+    /**
+     * 开始序列化一个对象
+     *
+     * @param container 对象所在的输出上下文
+     */
+    void enter(JsonStreamContext container) {
+        if (depth == containers.length) {
+            containers = Arrays.copyOf(containers, depth * 2);
+            nodes = Arrays.copyOf(nodes, depth * 2);
+        }
+        containers[depth++] = container;
+    }
+
+    /**
+     * 对象序列化结束
+     */
+    void exit() {
+        if (depth > 0) {
+            depth--;
+            containers[depth] = null;
+            nodes[depth] = null;
+        }
+    }
+
+    /**
+     * 获取输出上下文对应的节点
+     *
+     * @param context 输出上下文
+     * @return
+     */
+    Node resolve(JsonStreamContext context) {
+        Node node = depth == 0 ? null : resolve(context, depth - 1);
+        return node == null ? resolveFromRoot(context) : node;
+    }
+
+    /**
+     * 从序列化中的对象开始获取输出上下文对应的节点, 上下文通常就是该对象自己的, 只需找一级
+     *
+     * @param context 输出上下文
+     * @param level   对象层级
+     * @return 上下文不在该对象内返回null
+     */
+    private Node resolve(JsonStreamContext context, int level) {
+        Node node = nodes[level];
+        if (node == null) {
+            // 对象序列化期间, 所在上下文的当前字段不会变, 节点计算一次即可
+            JsonStreamContext container = containers[level];
+            node = level == 0 ? null : resolve(container, level - 1);
+            if (node == null) {
+                node = resolveFromRoot(container);
+            }
+            nodes[level] = node;
+        }
+        return resolveFrom(context, containers[level], node);
+    }
+
+    /**
+     * 从对象所在的上下文往下获取节点
+     *
+     * @param context   输出上下文
+     * @param container 对象所在的上下文
+     * @param base      对象的节点
+     * @return 上下文不在该对象内返回null
+     */
+    private static Node resolveFrom(JsonStreamContext context, JsonStreamContext container, Node base) {
+        if (context == null) {
+            return null;
+        }
+        JsonStreamContext parent = context.getParent();
+        Node node = parent == container ? base : resolveFrom(parent, container, base);
+        return node == null ? null : node.child(context);
+    }
+
+    /**
+     * 沿输出上下文从根获取节点
+     *
+     * @param context 输出上下文
+     * @return
+     */
+    private Node resolveFromRoot(JsonStreamContext context) {
+        if (context == null) {
+            return root;
+        }
+        return resolveFromRoot(context.getParent()).child(context);
+    }
+
+    /**
+     * path节点
+     */
+    static final class Node {
+
+        /**
+         * 父节点
+         */
+        private final Node parent;
+
+        /**
+         * 字段名
+         */
+        private final String name;
+
+        /**
+         * 选择器匹配状态
+         */
+        private final ExpandSelector.State state;
+
+        /**
+         * 子节点
+         */
+        private Map<String, Node> children;
+
+        /**
+         * 上一次访问的子节点, 序列化同一个类的多个对象时字段名是同一个字符串
+         */
+        private Node lastChild;
+
+        private Node(Node parent, String name, ExpandSelector.State state) {
+            this.parent = parent;
+            this.name = name;
+            this.state = state;
+        }
+
+        /**
+         * 获取输出上下文当前字段的子节点
+         *
+         * @param context 输出上下文
+         * @return 数组或根上下文没有字段名, 返回当前节点
+         */
+        Node child(JsonStreamContext context) {
+            String name = context.getCurrentName();
+            if (name == null || name.isEmpty()) {
+                return this;
+            }
+            return child(name);
+        }
+
+        /**
+         * 获取子节点
+         *
+         * @param name 字段名
+         * @return
+         */
+        Node child(String name) {
+            Node child = lastChild;
+            if (child != null && child.name == name) {
+                return child;
+            }
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            child = children.get(name);
+            if (child == null) {
+                child = new Node(this, name, state.next(name));
+                children.put(name, child);
+            }
+            lastChild = child;
+            return child;
+        }
+
+        /**
+         * 当前path是否要展开
+         *
+         * @return
+         */
+        boolean matches() {
+            return state.matches();
+        }
+
+        @Override
+        public String toString() {
+            if (parent == null) {
+                return "";
+            }
+            String parentPath = parent.toString();
+            return parentPath.isEmpty() ? name : parentPath + "." + name;
+        }
+    }
+}
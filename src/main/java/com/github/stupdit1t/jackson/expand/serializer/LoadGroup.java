@@ -0,0 +1,106 @@
+package com.github.stupdit1t.jackson.expand.serializer;
+
+import com.github.stupdit1t.jackson.expand.cache.ExpandKey;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+
+/**
+ * 同一个 bean/方法/额外参数 的待加载分组，逐个调用展开方法
+ *
+ * @author 625
+ */
+class LoadGroup {
+
+    /**
+     * 分组内任一字段的序列化器，额外参数相同
+     */
+    final ExpandSerializer serializer;
+
+    /**
+     * 待加载的值, key: 缓存KEY
+     */
+    final Map<ExpandKey, Item> items = new LinkedHashMap<>();
+
+    LoadGroup(ExpandSerializer serializer) {
+        this.serializer = serializer;
+    }
+
+    /**
+     * 添加待加载的值，相同缓存KEY只保留一个
+     *
+     * @param cacheKey   缓存KEY
+     * @param bindData   字段值
+     * @param writeClass 要写入字段的类型
+     */
+    void add(ExpandKey cacheKey, Object bindData, Class<?> writeClass) {
+        items.putIfAbsent(cacheKey, new Item(bindData, writeClass));
+    }
+
+    /**
+     * 分组内待加载值的数量
+     *
+     * @return
+     */
+    int size() {
+        return items.size();
+    }
+
+    /**
+     * 加载分组内的值，结果写入缓存并回调
+     *
+     * @param consumer 结果回调, 参数为缓存KEY和展开结果
+     */
+    void load(BiConsumer<ExpandKey, Object> consumer) {
+        for (Map.Entry<ExpandKey, Item> entry : items.entrySet()) {
+            Item item = entry.getValue();
+            consumer.accept(entry.getKey(), serializer.loadShared(item.bindData, item.writeClass, entry.getKey()));
+        }
+    }
+
+    /**
+     * 异步加载分组内的值，结果写入缓存并回调，不阻塞当前线程
+     *
+     * @param consumer 结果回调, 参数为缓存KEY和展开结果
+     * @param executor 同步展开方法的线程池
+     * @return 全部加载完成
+     */
+    CompletableFuture<Void> loadAsync(BiConsumer<ExpandKey, Object> consumer, Executor executor) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[items.size()];
+        int i = 0;
+        for (Map.Entry<ExpandKey, Item> entry : items.entrySet()) {
+            Item item = entry.getValue();
+            futures[i++] = serializer.loadSharedAsync(item.bindData, item.writeClass, entry.getKey(), executor)
+                    .thenAccept((result) -> consumer.accept(entry.getKey(), result));
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * 待加载的值
+     */
+    static class Item {
+
+        /**
+         * 字段原始值
+         */
+        final Object bindData;
+
+        /**
+         * 要写入字段的类型
+         */
+        final Class<?> writeClass;
+
+        /**
+         * 参数处理器处理后的值
+         */
+        Object val;
+
+        Item(Object bindData, Class<?> writeClass) {
+            this.bindData = bindData;
+            this.writeClass = writeClass;
+        }
+    }
+}
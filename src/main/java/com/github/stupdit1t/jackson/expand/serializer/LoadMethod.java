@@ -0,0 +1,257 @@
+package com.github.stupdit1t.jackson.expand.serializer;
+
+import com.github.stupdit1t.jackson.expand.metrics.ExpandMetrics;
+import com.github.stupdit1t.jackson.expand.util.AsyncUtil;
+import com.github.stupdit1t.jackson.expand.util.CircuitBreaker;
+import com.github.stupdit1t.jackson.expand.util.MethodInvoker;
+import com.github.stupdit1t.jackson.expand.util.ReflectUtil;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * 展开方法
+ * <p>
+ * 创建序列化器时按 方法名 + 参数个数 + 额外参数类型 解析，找不到直接失败。
+ * 只有第一个参数类型不同的重载方法按运行时的值类型选择最匹配的一个, 选择结果按值类型缓存。
+ * 没有重载方法可以接收字段类型时创建序列化器直接失败, 运行时值的类型没有匹配的重载方法按展开异常处理, 不计入熔断
+ * <p>
+ * 方法可以返回 CompletableFuture/CompletionStage 或 Mono。配置了熔断器时，调用异常计入熔断，熔断打开直接抛出 {@link CircuitBreaker.OpenException}，
+ * 每次调用的耗时记录到指标
+ *
+ * @author 625
+ */
+final class LoadMethod {
+
+    /**
+     * 方法名
+     */
+    private final String name;
+
+    /**
+     * 候选方法的调用器
+     */
+    private final List<MethodInvoker> invokers;
+
+    /**
+     * 只有一个候选方法时直接使用
+     */
+    private final MethodInvoker single;
+
+    /**
+     * 按第一个参数的类型选择的调用器
+     */
+    private final Map<Class<?>, MethodInvoker> selected;
+
+    /**
+     * 是否所有候选方法都返回异步结果
+     */
+    private final boolean async;
+
+    /**
+     * 熔断器, 未开启为null
+     */
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * 调用耗时记录
+     */
+    private final ExpandMetrics.Recorder recorder;
+
+    private LoadMethod(String name, List<MethodInvoker> invokers, CircuitBreaker circuitBreaker, ExpandMetrics.Recorder recorder) {
+        this.name = name;
+        this.invokers = invokers;
+        this.circuitBreaker = circuitBreaker;
+        this.recorder = recorder;
+        this.async = invokers.stream().allMatch((invoker) -> AsyncUtil.isAsyncType(invoker.getMethod().getReturnType()));
+        this.single = invokers.size() == 1 ? invokers.get(0) : null;
+        this.selected = single == null ? new ConcurrentHashMap<>() : null;
+    }
+
+    /**
+     * 解析展开方法
+     *
+     * @param target    调用对象
+     * @param name      方法名
+     * @param extraArgs      注解的额外参数
+     * @param circuitBreaker 熔断器, 可以为null
+     * @param recorder       指标记录器
+     * @return
+     * @throws IllegalStateException 方法不存在
+     */
+    static LoadMethod resolve(Object target, String name, Object[] extraArgs, CircuitBreaker circuitBreaker, ExpandMetrics.Recorder recorder) {
+        List<Method> methods = ReflectUtil.findMethods(target.getClass(), name, extraArgs);
+        if (methods.isEmpty()) {
+            int count = extraArgs == null ? 1 : extraArgs.length + 1;
+            throw new IllegalStateException("No such method: [" + name + "] with " + count + " parameters from [" + target.getClass() + "]");
+        }
+        List<MethodInvoker> invokers = new ArrayList<>(methods.size());
+        for (Method method : methods) {
+            invokers.add(MethodInvoker.of(target, method));
+        }
+        return new LoadMethod(name, invokers, circuitBreaker, recorder);
+    }
+
+    /**
+     * 检查重载方法能否接收字段类型的值, 某个重载方法的参数类型是字段类型本身、父类或子类即可
+     *
+     * @param argType 字段类型
+     * @throws IllegalStateException 所有重载方法都不能接收
+     */
+    void checkArgument(Class<?> argType) {
+        if (single != null) {
+            return;
+        }
+        for (MethodInvoker invoker : invokers) {
+            Class<?> parameterType = invoker.getMethod().getParameterTypes()[0];
+            if (ReflectUtil.isAssignable(parameterType, argType) || ReflectUtil.isAssignable(argType, parameterType)) {
+                return;
+            }
+        }
+        throw new IllegalStateException("No such method: [" + name + "] for field type " + argType.getName() + ", candidates " + invokers);
+    }
+
+    /**
+     * 按第一个参数的类型获取调用器
+     *
+     * @param args 参数, 第一个为字段值
+     * @return
+     * @throws IllegalArgumentException 没有可以接收该类型的重载方法
+     */
+    private MethodInvoker invoker(Object[] args) {
+        if (single != null) {
+            return single;
+        }
+        Class<?> argType = args[0] == null ? Object.class : args[0].getClass();
+        return selected.computeIfAbsent(argType, this::select);
+    }
+
+    /**
+     * 调用并等待异步结果
+     *
+     * @param args 参数, 第一个为字段值
+     * @return
+     * @throws Exception
+     */
+    Object invokeAwait(Object[] args) throws Exception {
+        MethodInvoker invoker = invoker(args);
+        long permit = acquire();
+        if (permit == CircuitBreaker.REJECTED) {
+            throw new CircuitBreaker.OpenException(circuitBreaker.getName());
+        }
+        long startTime = recorder.loadStarted();
+        try {
+            Object result = AsyncUtil.await(invoker.invoke(args));
+            finished(startTime, permit, true);
+            return result;
+        } catch (Exception e) {
+            finished(startTime, permit, false);
+            throw e;
+        }
+    }
+
+    /**
+     * 异步调用。返回异步结果的方法在当前线程调用, 同步方法提交线程池调用, 不阻塞当前线程
+     *
+     * @param args     参数, 第一个为字段值
+     * @param executor 同步方法的线程池, 为null时在当前线程调用
+     * @return
+     */
+    CompletableFuture<Object> invokeAsync(Object[] args, Executor executor) {
+        MethodInvoker invoker;
+        try {
+            invoker = invoker(args);
+        } catch (IllegalArgumentException e) {
+            return AsyncUtil.failed(e);
+        }
+        long permit = acquire();
+        if (permit == CircuitBreaker.REJECTED) {
+            return AsyncUtil.failed(new CircuitBreaker.OpenException(circuitBreaker.getName()));
+        }
+        long startTime = recorder.loadStarted();
+        return doInvokeAsync(invoker, args, executor).whenComplete((result, error) -> finished(startTime, permit, error == null));
+    }
+
+    /**
+     * 申请熔断器许可
+     *
+     * @return 未开启熔断返回0
+     */
+    private long acquire() {
+        return circuitBreaker == null ? 0 : circuitBreaker.tryAcquire();
+    }
+
+    /**
+     * 调用结束, 记录耗时和熔断状态
+     *
+     * @param startTime 开始时间
+     * @param permit    熔断器许可
+     * @param success   是否成功
+     */
+    private void finished(long startTime, long permit, boolean success) {
+        recorder.loadFinished(startTime, success);
+        if (circuitBreaker == null) {
+            return;
+        }
+        if (success) {
+            circuitBreaker.onSuccess(permit);
+        } else {
+            circuitBreaker.onError(permit);
+        }
+    }
+
+    /**
+     * 异步调用, 不记录熔断和耗时
+     *
+     * @param invoker  调用器
+     * @param args     参数, 第一个为字段值
+     * @param executor 同步方法的线程池, 为null时在当前线程调用
+     * @return
+     */
+    private CompletableFuture<Object> doInvokeAsync(MethodInvoker invoker, Object[] args, Executor executor) {
+        if (async || executor == null) {
+            try {
+                return AsyncUtil.toFuture(invoker.invoke(args));
+            } catch (Exception e) {
+                return AsyncUtil.failed(e);
+            }
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return invoker.invoke(args);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor).thenCompose(AsyncUtil::toFuture);
+    }
+
+    /**
+     * 选择第一个参数可以接收该类型且最具体的方法
+     *
+     * @param argType 第一个参数的类型
+     * @return
+     * @throws IllegalArgumentException 没有可以接收该类型的重载方法
+     */
+    private MethodInvoker select(Class<?> argType) {
+        MethodInvoker result = null;
+        for (MethodInvoker invoker : invokers) {
+            Class<?> parameterType = invoker.getMethod().getParameterTypes()[0];
+            if (!ReflectUtil.isAssignable(parameterType, argType)) {
+                continue;
+            }
+            if (result == null || ReflectUtil.isAssignable(result.getMethod().getParameterTypes()[0], parameterType)) {
+                result = invoker;
+            }
+        }
+        if (result == null) {
+            throw new IllegalArgumentException("No such method: [" + name + "] for argument " + argType.getName() + ", candidates " + invokers);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,125 @@
+package com.github.stupdit1t.jackson.expand.util;
+
+import org.springframework.util.ClassUtils;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 异步展开结果处理, 支持 {@link CompletionStage} 和 Reactor 的 Mono
+ *
+ * @author 625
+ */
+public final class AsyncUtil {
+
+    /**
+     * 是否存在 Reactor
+     */
+    private static final boolean REACTOR_PRESENT = ClassUtils.isPresent("reactor.core.publisher.Mono", AsyncUtil.class.getClassLoader());
+
+    private AsyncUtil() {
+    }
+
+    /**
+     * 是否是异步类型
+     *
+     * @param type 类型
+     * @return
+     */
+    public static boolean isAsyncType(Class<?> type) {
+        return CompletionStage.class.isAssignableFrom(type) || (REACTOR_PRESENT && ReactorAdapter.isMono(type));
+    }
+
+    /**
+     * 是否是异步结果
+     *
+     * @param value 结果
+     * @return
+     */
+    public static boolean isAsync(Object value) {
+        return value != null && isAsyncType(value.getClass());
+    }
+
+    /**
+     * 转为 CompletableFuture, 同步结果直接完成
+     *
+     * @param value 结果
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static CompletableFuture<Object> toFuture(Object value) {
+        if (value instanceof CompletionStage) {
+            return ((CompletionStage<Object>) value).toCompletableFuture();
+        }
+        if (REACTOR_PRESENT && ReactorAdapter.isMono(value)) {
+            return ReactorAdapter.toFuture(value);
+        }
+        return CompletableFuture.completedFuture(value);
+    }
+
+    /**
+     * 等待异步结果, 同步结果直接返回
+     *
+     * @param value 结果
+     * @return
+     * @throws Exception 异步结果的异常
+     */
+    public static Object await(Object value) throws Exception {
+        if (!isAsync(value)) {
+            return value;
+        }
+        try {
+            return toFuture(value).get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * 失败的 CompletableFuture
+     *
+     * @param error 异常
+     * @return
+     */
+    public static <T> CompletableFuture<T> failed(Throwable error) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+
+    /**
+     * 取出异步包装的异常
+     *
+     * @param error 异常
+     * @return
+     */
+    public static Exception unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error instanceof Exception ? (Exception) error : new InvocationTargetException(error);
+    }
+
+    /**
+     * 隔离 Reactor 类, 不存在 Reactor 时不加载
+     */
+    private static class ReactorAdapter {
+
+        static boolean isMono(Class<?> type) {
+            return Mono.class.isAssignableFrom(type);
+        }
+
+        static boolean isMono(Object value) {
+            return value instanceof Mono;
+        }
+
+        @SuppressWarnings("unchecked")
+        static CompletableFuture<Object> toFuture(Object value) {
+            return ((Mono<Object>) value).toFuture();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.github.stupdit1t.jackson.expand.util;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 熔断器
+ * <p>
+ * 连续失败达到阈值后打开，打开期间直接失败不再调用；打开时间结束后放行一个探测调用(半开)，探测成功关闭，失败重新打开。
+ * 每次打开和放行探测都会换一批许可, 打开前已经开始的调用结束时不再改变状态
+ *
+ * @author 625
+ */
+public class CircuitBreaker {
+
+    /**
+     * 关闭
+     */
+    private static final int CLOSED = 0;
+
+    /**
+     * 打开
+     */
+    private static final int OPEN = 1;
+
+    /**
+     * 半开, 探测中
+     */
+    private static final int HALF_OPEN = 2;
+
+    /**
+     * 拒绝调用的许可
+     */
+    public static final long REJECTED = -1;
+
+    /**
+     * 熔断名称
+     */
+    private final String name;
+
+    /**
+     * 连续失败阈值
+     */
+    private final int failureThreshold;
+
+    /**
+     * 打开时长, 纳秒
+     */
+    private final long openNanos;
+
+    /**
+     * 纳秒时钟
+     */
+    private final LongSupplier clock;
+
+    /**
+     * 状态
+     */
+    private final AtomicInteger state = new AtomicInteger(CLOSED);
+
+    /**
+     * 连续失败次数
+     */
+    private final AtomicInteger failures = new AtomicInteger();
+
+    /**
+     * 当前许可, 打开和放行探测时递增
+     */
+    private final AtomicLong permits = new AtomicLong();
+
+    /**
+     * 打开时间
+     */
+    private volatile long openedAt;
+
+    public CircuitBreaker(String name, int failureThreshold, Duration openDuration) {
+        this(name, failureThreshold, openDuration, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, int failureThreshold, Duration openDuration, LongSupplier clock) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = openDuration.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * 申请调用，打开时间结束后只放行一个探测调用
+     *
+     * @return 调用结束时传给 {@link #onSuccess(long)} 或 {@link #onError(long)} 的许可, 不允许调用返回 {@link #REJECTED}
+     */
+    public long tryAcquire() {
+        long permit = permits.get();
+        int current = state.get();
+        if (current == CLOSED) {
+            return permit;
+        }
+        if (current == OPEN && clock.getAsLong() - openedAt >= openNanos && state.compareAndSet(OPEN, HALF_OPEN)) {
+            return permits.incrementAndGet();
+        }
+        return REJECTED;
+    }
+
+    /**
+     * 调用成功, 关闭状态下清零失败次数, 探测调用成功时关闭
+     *
+     * @param permit 申请到的许可
+     */
+    public void onSuccess(long permit) {
+        if (permit != permits.get()) {
+            return;
+        }
+        int current = state.get();
+        if (current == CLOSED) {
+            failures.set(0);
+        } else if (current == HALF_OPEN && state.compareAndSet(HALF_OPEN, CLOSED)) {
+            failures.set(0);
+        }
+    }
+
+    /**
+     * 调用失败, 关闭状态下连续失败达到阈值时打开, 探测调用失败时重新打开
+     *
+     * @param permit 申请到的许可
+     */
+    public void onError(long permit) {
+        if (permit != permits.get()) {
+            return;
+        }
+        int current = state.get();
+        if (current == HALF_OPEN) {
+            open(HALF_OPEN);
+        } else if (current == CLOSED && failures.incrementAndGet() >= failureThreshold) {
+            open(CLOSED);
+        }
+    }
+
+    /**
+     * 是否打开, 包括半开
+     *
+     * @return
+     */
+    public boolean isOpen() {
+        return state.get() != CLOSED;
+    }
+
+    /**
+     * 熔断名称
+     *
+     * @return
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 打开, 之前的许可失效
+     *
+     * @param expect 当前状态
+     */
+    private void open(int expect) {
+        // 先记录时间再打开, 避免其他线程读到旧的打开时间直接进入半开
+        openedAt = clock.getAsLong();
+        if (state.compareAndSet(expect, OPEN)) {
+            permits.incrementAndGet();
+        }
+    }
+
+    /**
+     * 熔断打开时的调用异常, 不记录堆栈
+     */
+    public static class OpenException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        public OpenException(String name) {
+            super("Circuit breaker is open: " + name, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.stupdit1t.jackson.expand.util;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 日志限流
+ * <p>
+ * 同一个KEY每个时间间隔只输出一次，期间忽略的次数在下一次输出时带出
+ *
+ * @author 625
+ */
+public class LogLimiter {
+
+    /**
+     * 输出间隔, 纳秒, 小于等于0不限制
+     */
+    private final long intervalNanos;
+
+    /**
+     * 纳秒时钟
+     */
+    private final LongSupplier clock;
+
+    /**
+     * 每个KEY的窗口
+     */
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    public LogLimiter(Duration interval) {
+        this(interval, System::nanoTime);
+    }
+
+    LogLimiter(Duration interval, LongSupplier clock) {
+        this.intervalNanos = interval == null ? 0 : interval.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * 获取输出许可
+     *
+     * @param key 日志KEY
+     * @return 允许输出返回上次输出后忽略的次数，不允许返回-1
+     */
+    public long tryAcquire(String key) {
+        if (intervalNanos <= 0) {
+            return 0;
+        }
+        Window window = windows.computeIfAbsent(key, (k) -> new Window());
+        long now = clock.getAsLong();
+        long last = window.last.get();
+        if (last != 0 && now - last < intervalNanos || !window.last.compareAndSet(last, now == 0 ? 1 : now)) {
+            window.suppressed.incrementAndGet();
+            return -1;
+        }
+        return window.suppressed.getAndSet(0);
+    }
+
+    /**
+     * 输出窗口
+     */
+    private static class Window {
+
+        /**
+         * 上次输出时间
+         */
+        private final AtomicLong last = new AtomicLong();
+
+        /**
+         * 忽略次数
+         */
+        private final AtomicLong suppressed = new AtomicLong();
+    }
+}
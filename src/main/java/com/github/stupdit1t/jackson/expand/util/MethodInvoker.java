@@ -0,0 +1,271 @@
+package com.github.stupdit1t.jackson.expand.util;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * 方法调用器
+ * <p>
+ * 不超过3个参数的公开方法通过 {@link LambdaMetafactory} 生成调用类, 其余通过 {@link MethodHandle} 调用, 都不经过 {@link Method#invoke}
+ *
+ * @author 625
+ */
+public abstract class MethodInvoker {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    /**
+     * 调用的方法
+     */
+    private final Method method;
+
+    MethodInvoker(Method method) {
+        this.method = method;
+    }
+
+    /**
+     * 创建调用器
+     *
+     * @param target 调用对象
+     * @param method 方法
+     * @return
+     */
+    public static MethodInvoker of(Object target, Method method) {
+        MethodHandle handle;
+        try {
+            if (!Modifier.isPublic(method.getModifiers()) || !Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+                method.setAccessible(true);
+            }
+            handle = LOOKUP.unreflect(method);
+        } catch (Exception e) {
+            throw new IllegalStateException("Can not access method: " + method, e);
+        }
+        if (canGenerate(method)) {
+            try {
+                return generate(target, method, handle);
+            } catch (Throwable e) {
+                // 生成失败使用 MethodHandle
+            }
+        }
+        int count = method.getParameterCount();
+        MethodHandle spreader = handle.bindTo(target)
+                .asType(MethodType.genericMethodType(count))
+                .asSpreader(Object[].class, count);
+        return new HandleInvoker(method, spreader);
+    }
+
+    /**
+     * 调用
+     *
+     * @param args 参数
+     * @return
+     * @throws Exception 方法抛出的异常, Error 包装为 {@link InvocationTargetException}
+     */
+    public Object invoke(Object[] args) throws Exception {
+        try {
+            return doInvoke(args);
+        } catch (Exception e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    /**
+     * 调用
+     *
+     * @param args 参数
+     * @return
+     * @throws Throwable
+     */
+    abstract Object doInvoke(Object[] args) throws Throwable;
+
+    public Method getMethod() {
+        return method;
+    }
+
+    @Override
+    public String toString() {
+        return method.toString();
+    }
+
+    /**
+     * 是否可以生成调用类, 方法和类必须公开, 用到的类在当前类加载器中可见
+     *
+     * @param method 方法
+     * @return
+     */
+    private static boolean canGenerate(Method method) {
+        if (method.getParameterCount() > 3 || method.getReturnType() == void.class
+                || !Modifier.isPublic(method.getModifiers()) || !Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+            return false;
+        }
+        if (!isVisible(method.getDeclaringClass()) || !isVisible(method.getReturnType())) {
+            return false;
+        }
+        for (Class<?> parameterType : method.getParameterTypes()) {
+            if (!isVisible(parameterType)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 类在当前类加载器中是否可见
+     *
+     * @param clazz 类
+     * @return
+     */
+    private static boolean isVisible(Class<?> clazz) {
+        while (clazz.isArray()) {
+            clazz = clazz.getComponentType();
+        }
+        if (clazz.isPrimitive() || clazz.getClassLoader() == null) {
+            return true;
+        }
+        try {
+            return Class.forName(clazz.getName(), false, MethodInvoker.class.getClassLoader()) == clazz;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 生成调用类
+     *
+     * @param target 调用对象
+     * @param method 方法
+     * @param handle 方法句柄
+     * @return
+     * @throws Throwable
+     */
+    private static MethodInvoker generate(Object target, Method method, MethodHandle handle) throws Throwable {
+        int count = method.getParameterCount();
+        Class<?> functionType = count == 0 ? Function0.class : count == 1 ? Function1.class : count == 2 ? Function2.class : Function3.class;
+        MethodType implType = handle.type();
+        CallSite site = LambdaMetafactory.metafactory(
+                LOOKUP,
+                "apply",
+                MethodType.methodType(functionType, implType.parameterType(0)),
+                MethodType.genericMethodType(count),
+                handle,
+                implType.dropParameterTypes(0, 1).wrap()
+        );
+        Object function = site.getTarget().invoke(target);
+        switch (count) {
+            case 0:
+                return new Invoker0(method, (Function0) function);
+            case 1:
+                return new Invoker1(method, (Function1) function);
+            case 2:
+                return new Invoker2(method, (Function2) function);
+            default:
+                return new Invoker3(method, (Function3) function);
+        }
+    }
+
+    /**
+     * MethodHandle 调用
+     */
+    private static final class HandleInvoker extends MethodInvoker {
+
+        private final MethodHandle handle;
+
+        HandleInvoker(Method method, MethodHandle handle) {
+            super(method);
+            this.handle = handle;
+        }
+
+        @Override
+        Object doInvoke(Object[] args) throws Throwable {
+            return handle.invokeExact(args);
+        }
+    }
+
+    @FunctionalInterface
+    interface Function0 {
+        Object apply() throws Throwable;
+    }
+
+    @FunctionalInterface
+    interface Function1 {
+        Object apply(Object arg0) throws Throwable;
+    }
+
+    @FunctionalInterface
+    interface Function2 {
+        Object apply(Object arg0, Object arg1) throws Throwable;
+    }
+
+    @FunctionalInterface
+    interface Function3 {
+        Object apply(Object arg0, Object arg1, Object arg2) throws Throwable;
+    }
+
+    private static final class Invoker0 extends MethodInvoker {
+
+        private final Function0 function;
+
+        Invoker0(Method method, Function0 function) {
+            super(method);
+            this.function = function;
+        }
+
+        @Override
+        Object doInvoke(Object[] args) throws Throwable {
+            return function.apply();
+        }
+    }
+
+    private static final class Invoker1 extends MethodInvoker {
+
+        private final Function1 function;
+
+        Invoker1(Method method, Function1 function) {
+            super(method);
+            this.function = function;
+        }
+
+        @Override
+        Object doInvoke(Object[] args) throws Throwable {
+            return function.apply(args[0]);
+        }
+    }
+
+    private static final class Invoker2 extends MethodInvoker {
+
+        private final Function2 function;
+
+        Invoker2(Method method, Function2 function) {
+            super(method);
+            this.function = function;
+        }
+
+        @Override
+        Object doInvoke(Object[] args) throws Throwable {
+            return function.apply(args[0], args[1]);
+        }
+    }
+
+    private static final class Invoker3 extends MethodInvoker {
+
+        private final Function3 function;
+
+        Invoker3(Method method, Function3 function) {
+            super(method);
+            this.function = function;
+        }
+
+        @Override
+        Object doInvoke(Object[] args) throws Throwable {
+            return function.apply(args[0], args[1], args[2]);
+        }
+    }
+}
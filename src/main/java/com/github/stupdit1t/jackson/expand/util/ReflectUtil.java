@@ -6,8 +6,10 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class ReflectUtil {
@@ -42,7 +44,7 @@ public class ReflectUtil {
      * @return
      */
     public static Object invoke(Object obj, String methodName, Object[] args) throws InvocationTargetException, IllegalAccessException {
-        String cacheKey = obj.getClass().getName() + methodName;
+        String cacheKey = obj.getClass().getName() + "#" + methodName + Arrays.toString(getClasses(args));
         final Method method = METHODS_CACHE.computeIfAbsent(cacheKey, (key) -> getMethod(obj.getClass(), methodName, args));
         if (null == method) {
             throw new UnsupportedOperationException("No such method: [" + methodName + "] from [" + obj.getClass() + "]");
@@ -78,6 +80,49 @@ public class ReflectUtil {
         return null;
     }
 
+    /**
+     * 查找方法名和参数个数匹配，且第一个之后的参数可以接收额外参数的方法，子类重写的方法优先
+     *
+     * @param beanClass  类
+     * @param methodName 方法名
+     * @param extraArgs  第一个参数之后的额外参数
+     * @return 候选方法
+     */
+    public static List<Method> findMethods(Class<?> beanClass, String methodName, Object[] extraArgs) {
+        Class<?>[] extraClasses = extraArgs == null ? new Class<?>[0] : getClasses(extraArgs);
+        List<Method> methods = new ArrayList<>();
+        Set<String> signatures = new HashSet<>();
+        Class<?> searchType = beanClass;
+        while (searchType != null) {
+            for (Method method : searchType.getDeclaredMethods()) {
+                //排除桥接方法
+                if (!methodName.equals(method.getName()) || method.isBridge() || method.getParameterCount() != extraClasses.length + 1) {
+                    continue;
+                }
+                Class<?>[] parameterTypes = method.getParameterTypes();
+                if (!isAllAssignableFrom(Arrays.copyOfRange(parameterTypes, 1, parameterTypes.length), extraClasses)) {
+                    continue;
+                }
+                if (signatures.add(Arrays.toString(parameterTypes))) {
+                    methods.add(method);
+                }
+            }
+            searchType = searchType.getSuperclass();
+        }
+        return methods;
+    }
+
+    /**
+     * 参数类型是否可以接收该类型的值, 原始类型和包装类型视为相同
+     *
+     * @param parameterType 参数类型
+     * @param valueType     值类型
+     * @return
+     */
+    public static boolean isAssignable(Class<?> parameterType, Class<?> valueType) {
+        return isAllAssignableFrom(new Class<?>[]{parameterType}, new Class<?>[]{valueType});
+    }
+
     /**
      * 获得对象数组的类数组
      *
@@ -0,0 +1,115 @@
+package com.github.stupdit1t.jackson.expand.util;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 相同KEY的并发加载合并为一次
+ * <p>
+ * 第一个调用方执行加载，同时到达的其他调用方等待并共享结果，加载完成后立即移除，不做任何缓存
+ *
+ * @param <K> KEY类型
+ * @param <V> 结果类型
+ * @author 625
+ */
+public class SingleFlight<K, V> {
+
+    /**
+     * 加载中的KEY
+     */
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 执行加载
+     *
+     * @param key    KEY
+     * @param loader 加载方法
+     * @return 加载结果
+     */
+    public V execute(K key, Supplier<V> loader) {
+        return execute(key, loader, null);
+    }
+
+    /**
+     * 执行加载
+     *
+     * @param key          KEY
+     * @param loader       加载方法
+     * @param waitListener 等待其他调用方加载时回调等待的纳秒数, 可以为null
+     * @return 加载结果
+     */
+    public V execute(K key, Supplier<V> loader, LongConsumer waitListener) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            long start = waitListener == null ? 0 : System.nanoTime();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            } finally {
+                if (waitListener != null) {
+                    waitListener.accept(System.nanoTime() - start);
+                }
+            }
+        }
+        try {
+            V value = loader.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * 异步执行加载, 不阻塞调用线程
+     *
+     * @param key    KEY
+     * @param loader 加载方法
+     * @return 加载结果
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> loader) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return existing;
+        }
+        CompletableFuture<V> loading;
+        try {
+            loading = loader.get();
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+            return future;
+        }
+        loading.whenComplete((value, error) -> {
+            inFlight.remove(key, future);
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(value);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 加载中的数量
+     *
+     * @return
+     */
+    public int size() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,139 @@
+package com.github.stupdit1t.jackson.expand.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.stupdit1t.jackson.expand.config.JacksonExpandProperties;
+import com.github.stupdit1t.jackson.expand.serializer.ExpandCollector;
+import com.github.stupdit1t.jackson.expand.serializer.ExpandContext;
+import com.github.stupdit1t.jackson.expand.serializer.ExpandSelector;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * WebFlux 环境下的 Jackson 编码器
+ * <p>
+ * 编码前异步加载返回值中所有需要展开的数据，不阻塞事件循环线程，再把本次响应的 {@link ExpandContext} 绑定到序列化上，
+ * 序列化时直接命中。动态展开参数取 Reactor Context 中 {@link ExpandSelector} 为 key 的值(ExpandSelector 或表达式字符串)，
+ * 没有时取请求参数
+ *
+ * @author 625
+ */
+public class ExpandJackson2JsonEncoder extends Jackson2JsonEncoder {
+
+    /**
+     * 请求参数解析的选择器
+     */
+    private static final String SELECTOR_HINT = ExpandSelector.class.getName();
+
+    /**
+     * 本次响应的上下文
+     */
+    private static final String CONTEXT_HINT = ExpandContext.class.getName();
+
+    /**
+     * 展开值收集器
+     */
+    private final ExpandCollector expandCollector;
+
+    /**
+     * 配置
+     */
+    private final JacksonExpandProperties properties;
+
+    public ExpandJackson2JsonEncoder(ObjectMapper objectMapper, ExpandCollector expandCollector, JacksonExpandProperties properties, MimeType... mimeTypes) {
+        super(objectMapper, mimeTypes);
+        this.expandCollector = expandCollector;
+        this.properties = properties;
+    }
+
+    @Override
+    public Map<String, Object> getEncodeHints(ResolvableType actualType, ResolvableType elementType, MediaType mediaType, ServerHttpRequest request, ServerHttpResponse response) {
+        Map<String, Object> hints = super.getEncodeHints(actualType, elementType, mediaType, request, response);
+        if (!properties.isDynamicExpand()) {
+            return hints;
+        }
+        List<String> expressions = request.getQueryParams().get(properties.getDynamicExpandParameterName());
+        Map<String, Object> result = new HashMap<>(hints);
+        result.put(SELECTOR_HINT, expressions == null ? ExpandSelector.NONE : ExpandSelector.compile(expressions, properties.getDynamicExpandCommonPrefix()));
+        return result;
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory, ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+        return Flux.deferContextual((contextView) -> {
+            ExpandContext context = new ExpandContext(getSelector(contextView, hints));
+            Map<String, Object> expandHints = hints == null ? new HashMap<>(2) : new HashMap<>(hints);
+            expandHints.put(CONTEXT_HINT, context);
+            Publisher<?> expanded;
+            if (inputStream instanceof Mono) {
+                expanded = Mono.from(inputStream).flatMap((value) -> expand(value, context));
+            } else {
+                expanded = Flux.from(inputStream).concatMap((value) -> expand(value, context));
+            }
+            return super.encode(expanded, bufferFactory, elementType, mimeType, expandHints);
+        });
+    }
+
+    @Override
+    protected ObjectWriter customizeWriter(ObjectWriter writer, MimeType mimeType, ResolvableType elementType, Map<String, Object> hints) {
+        writer = super.customizeWriter(writer, mimeType, elementType, hints);
+        Object context = hints == null ? null : hints.get(CONTEXT_HINT);
+        if (context instanceof ExpandContext) {
+            writer = ((ExpandContext) context).bindTo(writer);
+        }
+        return writer;
+    }
+
+    /**
+     * 异步加载要展开的数据
+     *
+     * @param value   返回值
+     * @param context 本次响应的上下文
+     * @return 加载完成后返回原值
+     */
+    private Mono<Object> expand(Object value, ExpandContext context) {
+        return Mono.fromFuture(expandCollector.collectAsync(value, context)).thenReturn(value);
+    }
+
+    /**
+     * 获取动态展开选择器
+     *
+     * @param contextView Reactor Context
+     * @param hints       编码参数
+     * @return 未开启动态展开返回null
+     */
+    @SuppressWarnings("unchecked")
+    private ExpandSelector getSelector(ContextView contextView, Map<String, Object> hints) {
+        if (!properties.isDynamicExpand()) {
+            return null;
+        }
+        Object selector = contextView.getOrDefault(ExpandSelector.class, null);
+        if (selector instanceof ExpandSelector) {
+            return (ExpandSelector) selector;
+        }
+        if (selector instanceof String) {
+            return ExpandSelector.compile(Collections.singletonList((String) selector), properties.getDynamicExpandCommonPrefix());
+        }
+        if (selector instanceof Collection) {
+            return ExpandSelector.compile((Collection<String>) selector, properties.getDynamicExpandCommonPrefix());
+        }
+        selector = hints == null ? null : hints.get(SELECTOR_HINT);
+        return selector instanceof ExpandSelector ? (ExpandSelector) selector : ExpandSelector.NONE;
+    }
+}
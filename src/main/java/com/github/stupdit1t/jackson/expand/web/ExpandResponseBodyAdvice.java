@@ -0,0 +1,42 @@
+package com.github.stupdit1t.jackson.expand.web;
+
+import com.github.stupdit1t.jackson.expand.serializer.ExpandCollector;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * 响应写出前, 批量加载返回值中需要展开的数据
+ *
+ * @author 625
+ */
+@ControllerAdvice
+public class ExpandResponseBodyAdvice implements ResponseBodyAdvice<Object> {
+
+    /**
+     * 展开值收集器
+     */
+    private final ExpandCollector expandCollector;
+
+    public ExpandResponseBodyAdvice(ExpandCollector expandCollector) {
+        this.expandCollector = expandCollector;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return AbstractJackson2HttpMessageConverter.class.isAssignableFrom(converterType);
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType, Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request, ServerHttpResponse response) {
+        Object value = body instanceof MappingJacksonValue ? ((MappingJacksonValue) body).getValue() : body;
+        expandCollector.collect(value);
+        return body;
+    }
+}
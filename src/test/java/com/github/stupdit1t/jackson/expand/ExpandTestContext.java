@@ -0,0 +1,168 @@
+package com.github.stupdit1t.jackson.expand;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.stupdit1t.jackson.expand.cache.ExpandCache;
+import com.github.stupdit1t.jackson.expand.config.JacksonExpandConfigure;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 测试用的 Spring 上下文
+ * <p>
+ * 序列化器依赖的缓存、配置是静态的, 同一个JVM内只创建一次, 所有测试共用
+ *
+ * @author 625
+ */
+public final class ExpandTestContext {
+
+    private static AnnotationConfigApplicationContext context;
+
+    private ExpandTestContext() {
+    }
+
+    /**
+     * 获取上下文, 不存在则创建
+     *
+     * @return
+     */
+    public static synchronized AnnotationConfigApplicationContext get() {
+        if (context == null) {
+            context = new AnnotationConfigApplicationContext();
+            context.register(Config.class, JacksonExpandConfigure.class);
+            context.refresh();
+        }
+        return context;
+    }
+
+    public static <T> T getBean(Class<T> type) {
+        return get().getBean(type);
+    }
+
+    @Configuration
+    static class Config {
+
+        @Bean
+        public RecordingCache expandCache() {
+            return new RecordingCache();
+        }
+
+        @Bean
+        public TestService testService() {
+            return new TestService();
+        }
+
+        @Bean
+        public ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+    }
+
+    /**
+     * 只实现字符串KEY的缓存, 记录每个KEY的保存时间, 相当于不重写 ExpandKey 方法的 Redis 缓存
+     */
+    public static class RecordingCache implements ExpandCache {
+
+        private final Map<String, Object> values = new ConcurrentHashMap<>();
+
+        private final Map<String, Duration> timeouts = new ConcurrentHashMap<>();
+
+        @Override
+        public <T> void put(String key, T value, Duration timeout) {
+            values.put(key, value);
+            timeouts.put(key, timeout);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T> T get(String key) {
+            return (T) values.get(key);
+        }
+
+        @Override
+        public Set<String> keys(String pattern) {
+            return values.keySet().stream().filter(matcher(pattern)).collect(Collectors.toSet());
+        }
+
+        @Override
+        public void clear() {
+            values.clear();
+            timeouts.clear();
+        }
+
+        @Override
+        public void delete(String key) {
+            values.remove(key);
+            timeouts.remove(key);
+        }
+
+        /**
+         * 获取KEY的保存时间
+         *
+         * @param key 缓存KEY
+         * @return 未写入返回null
+         */
+        public Duration timeout(String key) {
+            return timeouts.get(key);
+        }
+    }
+
+    /**
+     * 展开服务, 记录调用次数
+     */
+    public static class TestService {
+
+        /**
+         * 大于等于该值的ID批量方法视为不存在
+         */
+        public static final long MISSING = 9000;
+
+        public final AtomicInteger calls = new AtomicInteger();
+
+        public final AtomicInteger batchCalls = new AtomicInteger();
+
+        public Object name(Long id) {
+            calls.incrementAndGet();
+            return "name-" + id;
+        }
+
+        public Map<Long, Object> names(Collection<Long> ids) {
+            batchCalls.incrementAndGet();
+            Map<Long, Object> names = new LinkedHashMap<>();
+            for (Long id : ids) {
+                if (id < MISSING) {
+                    names.put(id, "name-" + id);
+                }
+            }
+            return names;
+        }
+
+        /**
+         * 返回与ID顺序一一对应的 List
+         */
+        public List<Object> nameList(Collection<Long> ids) {
+            batchCalls.incrementAndGet();
+            List<Object> names = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                names.add(id < MISSING ? "name-" + id : null);
+            }
+            return names;
+        }
+
+        public Map<Long, Object> failingNames(Collection<Long> ids) {
+            batchCalls.incrementAndGet();
+            throw new IllegalStateException("batch failed");
+        }
+    }
+}
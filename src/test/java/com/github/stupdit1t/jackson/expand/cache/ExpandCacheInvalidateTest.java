@@ -0,0 +1,57 @@
+package com.github.stupdit1t.jackson.expand.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.stupdit1t.jackson.expand.ExpandTestContext;
+import com.github.stupdit1t.jackson.expand.annotation.Expand;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 按 bean/方法 失效
+ */
+class ExpandCacheInvalidateTest {
+
+    static class Vo {
+
+        @Expand(bean = "testService", method = "name")
+        public Long userId;
+
+        Vo(Long userId) {
+            this.userId = userId;
+        }
+    }
+
+    @Test
+    void sharedCacheDeletesKeys() throws Exception {
+        ExpandTestContext.RecordingCache cache = ExpandTestContext.getBean(ExpandTestContext.RecordingCache.class);
+        ExpandTestContext.TestService service = ExpandTestContext.getBean(ExpandTestContext.TestService.class);
+        ObjectMapper objectMapper = ExpandTestContext.getBean(ObjectMapper.class);
+        long generation = ExpandGenerations.of("testService", "name").get();
+
+        objectMapper.writeValueAsString(new Vo(1901L));
+        int calls = service.calls.get();
+        objectMapper.writeValueAsString(new Vo(1901L));
+        assertEquals(calls, service.calls.get());
+
+        // 共享缓存按KEY删除, 不改变代数, 其他节点和重启后的节点也读不到旧值
+        cache.invalidate("testService", "name");
+        assertTrue(cache.keys("Expand:testService:name:*").isEmpty());
+        assertEquals(generation, ExpandGenerations.of("testService", "name").get());
+        objectMapper.writeValueAsString(new Vo(1901L));
+        assertEquals(calls + 1, service.calls.get());
+    }
+
+    @Test
+    void generationKeepsBeanAndMethodCountsApart() {
+        ExpandGenerations.Generation first = ExpandGenerations.of("generationBeanA", "load");
+        ExpandGenerations.Generation second = ExpandGenerations.of("generationBeanB", "load");
+        ExpandGenerations.increment("generationBeanA");
+        ExpandGenerations.increment("generationBeanB", "load");
+        assertNotEquals(first.get(), second.get());
+        assertEquals("Expand:generationBeanA:load#1.0", ExpandKey.renderNamespace("Expand:generationBeanA:load", first.get()));
+        assertEquals("Expand:generationBeanB:load#0.1", ExpandKey.renderNamespace("Expand:generationBeanB:load", second.get()));
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.stupdit1t.jackson.expand.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * JSON 编解码
+ */
+class JsonExpandCodecTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final JsonExpandCodec codec = new JsonExpandCodec(objectMapper);
+
+    @Test
+    void decodesToTheStoredClass() throws Exception {
+        User user = new User();
+        user.setId(1L);
+        user.setName("name-1");
+        Object decoded = codec.decode(codec.encode(user));
+        assertTrue(decoded instanceof User);
+        User value = (User) decoded;
+        assertEquals(1L, value.getId());
+        assertEquals("name-1", value.getName());
+        assertEquals("name-1", codec.decode(codec.encode("name-1")));
+        assertEquals(1L, codec.decode(codec.encode(1L)));
+        assertEquals(Collections.singletonMap("a", 1), codec.decode(codec.encode(Collections.singletonMap("a", 1))));
+    }
+
+    @Test
+    void fallsBackToJsonNode() throws Exception {
+        // 没有默认构造方法, 不能反序列化
+        Label label = new Label("label-1");
+        for (int i = 0; i < 2; i++) {
+            Object decoded = codec.decode(codec.encode(label));
+            assertTrue(decoded instanceof JsonNode);
+            assertEquals(objectMapper.writeValueAsString(label), objectMapper.writeValueAsString(decoded));
+        }
+    }
+
+    public static class User {
+
+        private Long id;
+
+        private String name;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class Label {
+
+        private final String text;
+
+        Label(String text) {
+            this.text = text;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.stupdit1t.jackson.expand.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 本地缓存
+ */
+class LocalCacheTest {
+
+    private static final Duration TIMEOUT = Duration.ofMinutes(10);
+
+    @Test
+    void expiresAfterTimeout() throws Exception {
+        LocalCache cache = new LocalCache();
+        ExpandKey longKey = new ExpandKey("Expand:userService:name", "", 1L);
+        ExpandKey stringIdKey = ExpandKey.of("Expand:userService:name", "a");
+        cache.put("Expand:key", "value", Duration.ofMillis(100));
+        cache.put(longKey, ExpandEntry.ok("name-1"), Duration.ofMillis(100));
+        cache.put(stringIdKey, ExpandEntry.ok("name-a"), Duration.ofMillis(100));
+        cache.put("Expand:other", "value", TIMEOUT);
+        assertEquals("value", cache.get("Expand:key"));
+        assertEquals("name-1", cache.get(longKey).getValue());
+        assertEquals("name-a", cache.get(stringIdKey).getValue());
+
+        Thread.sleep(200);
+        assertNull(cache.get("Expand:key"));
+        assertNull(cache.get(longKey));
+        assertNull(cache.get(stringIdKey));
+        assertTrue(cache.keys("Expand:*").contains("Expand:other"));
+        assertFalse(cache.keys("Expand:*").contains("Expand:key"));
+        assertEquals("value", cache.get("Expand:other"));
+    }
+
+    @Test
+    void evictsColdValuesAtMaximumSize() {
+        LocalCache cache = new LocalCache(10, 0);
+        cache.put("Expand:hot", "hot", TIMEOUT);
+        for (int i = 0; i < 20; i++) {
+            cache.get("Expand:hot");
+        }
+        for (int i = 0; i < 100; i++) {
+            cache.put("Expand:cold:" + i, "cold-" + i, TIMEOUT);
+        }
+        assertEquals(10, cache.size());
+        assertEquals(91, cache.evictionCount());
+        // 访问频率高的值不会被偶发写入的冷数据挤掉
+        assertEquals("hot", cache.get("Expand:hot"));
+    }
+
+    @Test
+    void evictsAtMaximumWeight() {
+        LocalCache cache = new LocalCache(100_000, 1000, (key, value) -> ((String) value).length());
+        for (int i = 0; i < 100; i++) {
+            cache.put("Expand:key:" + i, String.format("%050d", i), TIMEOUT);
+        }
+        assertTrue(cache.weightedSize() <= 1000, "weight " + cache.weightedSize());
+        assertEquals(20, cache.size());
+        // 更新为更大的值时按新权重淘汰
+        cache.put("Expand:key:99", String.format("%0500d", 99), TIMEOUT);
+        assertTrue(cache.weightedSize() <= 1000, "weight " + cache.weightedSize());
+        assertTrue(cache.size() < 20);
+    }
+
+    @Test
+    void longKeysShareMaximumSize() {
+        LocalCache cache = new LocalCache(100, 0);
+        for (long i = 0; i < 1000; i++) {
+            cache.put(new ExpandKey("Expand:userService:name", "", i), ExpandEntry.ok("name-" + i), TIMEOUT);
+            cache.put(new ExpandKey("Expand:deptService:name", "", i), ExpandEntry.ok("dept-" + i), TIMEOUT);
+        }
+        for (int i = 0; i < 1000; i++) {
+            cache.put(ExpandKey.of("Expand:userService:name", "user-" + i), ExpandEntry.ok("name-" + i), TIMEOUT);
+        }
+        assertTrue(cache.size() <= 100, "size " + cache.size());
+        assertTrue(cache.evictionCount() > 0);
+    }
+
+    @Test
+    void longKeysShareMaximumWeight() {
+        LocalCache cache = new LocalCache(100_000, 10_000, (key, value) -> 100);
+        for (long i = 0; i < 1000; i++) {
+            cache.put(new ExpandKey("Expand:userService:name", "", i), ExpandEntry.ok("name-" + i), TIMEOUT);
+        }
+        assertTrue(cache.weightedSize() <= 10_000, "weight " + cache.weightedSize());
+        assertEquals(100, cache.size());
+        // 字符串KEY写入后从较多的整数字段值中淘汰, 不会只淘汰自己
+        for (int i = 0; i < 50; i++) {
+            cache.put("Expand:key:" + i, "value-" + i, TIMEOUT);
+        }
+        assertTrue(cache.weightedSize() <= 10_000, "weight " + cache.weightedSize());
+        assertNotNull(cache.get("Expand:key:49"));
+    }
+
+    @Test
+    void newGenerationReleasesBudget() {
+        LocalCache cache = new LocalCache(100, 0);
+        for (long i = 0; i < 100; i++) {
+            cache.put(new ExpandKey("Expand:userService:name", "", i, 0), ExpandEntry.ok("name-" + i), TIMEOUT);
+        }
+        LongKeyStore old = cache.longStore("Expand:userService:name", 0);
+        cache.put(new ExpandKey("Expand:userService:name", "", 1L, 1), ExpandEntry.ok("name-1"), TIMEOUT);
+        assertEquals(1, cache.size());
+        assertTrue(old.isRetired());
+        assertNull(old.get(1));
+        assertNull(cache.longStore("Expand:userService:name", 0));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weightedSize());
+        assertFalse(cache.longStore("Expand:userService:name", 1).isRetired());
+    }
+}
@@ -0,0 +1,142 @@
+package com.github.stupdit1t.jackson.expand.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 整数字段值存储
+ */
+class LongKeyStoreTest {
+
+    /**
+     * 初始容量, 与 LongKeyStore 一致
+     */
+    private static final int CAPACITY = 16;
+
+    private final AtomicLong sharedSize = new AtomicLong();
+
+    private final AtomicLong sharedWeight = new AtomicLong();
+
+    @Test
+    void removeKeepsOverlappingChainsReachable() {
+        // 一条从表尾绕回表头的探测链, 和一条从表头开始的探测链交错
+        List<Long> tail = collide(CAPACITY - 1, 3);
+        List<Long> head = collide(0, 2);
+        LongKeyStore store = store(1000);
+        Map<Long, ExpandEntry> expected = new HashMap<>();
+        for (Long id : tail) {
+            put(store, expected, id);
+        }
+        for (Long id : head) {
+            put(store, expected, id);
+        }
+        // 逐个删除链上的每个位置, 其余值都必须仍可读到
+        List<Long> ids = new ArrayList<>(tail);
+        ids.addAll(head);
+        for (Long id : ids) {
+            assertTrue(store.remove(id));
+            expected.remove(id);
+            assertFalse(store.remove(id));
+            assertContains(store, expected);
+        }
+        assertEquals(0, store.size());
+        assertEquals(0, sharedSize.get());
+        assertEquals(0, sharedWeight.get());
+    }
+
+    @Test
+    void randomOperationsMatchMap() {
+        Random random = new Random(42);
+        LongKeyStore store = store(1000);
+        Map<Long, ExpandEntry> expected = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            long id = random.nextInt(64);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(id) != null, store.remove(id));
+            } else {
+                put(store, expected, id);
+            }
+            if (i % 97 == 0) {
+                assertContains(store, expected);
+            }
+        }
+        assertContains(store, expected);
+        assertEquals(expected.size(), sharedSize.get());
+        assertEquals(expected.size() * 10L, sharedWeight.get());
+    }
+
+    @Test
+    void evictsAtMaximumSize() {
+        LongKeyStore store = store(8);
+        for (long id = 0; id < 100; id++) {
+            store.put(id, ExpandEntry.ok("v" + id), 10, expireAt());
+        }
+        assertEquals(8, store.size());
+        assertEquals(8, sharedSize.get());
+        assertEquals(92, store.evictionCount());
+        assertEquals("v99", store.get(99).getValue());
+
+        assertTrue(store.evictOne());
+        assertEquals(7, store.size());
+        store.retire();
+        assertTrue(store.isRetired());
+        assertNull(store.get(99));
+        assertEquals(0, sharedSize.get());
+        assertEquals(0, sharedWeight.get());
+        assertFalse(store.put(100, ExpandEntry.ok("v100"), 10, expireAt()));
+        assertEquals(0, sharedSize.get());
+    }
+
+    private LongKeyStore store(long maximumSize) {
+        return new LongKeyStore("Expand:userService:name", 0, maximumSize, sharedSize, sharedWeight);
+    }
+
+    private static void put(LongKeyStore store, Map<Long, ExpandEntry> expected, long id) {
+        ExpandEntry entry = ExpandEntry.ok("v" + id);
+        store.put(id, entry, 10, expireAt());
+        expected.put(id, entry);
+    }
+
+    private static void assertContains(LongKeyStore store, Map<Long, ExpandEntry> expected) {
+        assertEquals(expected.size(), store.size());
+        for (Map.Entry<Long, ExpandEntry> entry : expected.entrySet()) {
+            assertSame(entry.getValue(), store.get(entry.getKey()), "id " + entry.getKey());
+        }
+    }
+
+    private static long expireAt() {
+        return System.nanoTime() + TimeUnit.MINUTES.toNanos(10);
+    }
+
+    /**
+     * 初始容量下散列到同一位置的字段值
+     *
+     * @param slot  位置
+     * @param count 数量
+     * @return
+     */
+    private static List<Long> collide(int slot, int count) {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 0; ids.size() < count; id++) {
+            // 与 LongKeyStore 的散列一致
+            long hash = id * 0x9E3779B97F4A7C15L;
+            if (((int) (hash ^ (hash >>> 32)) & (CAPACITY - 1)) == slot) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+}
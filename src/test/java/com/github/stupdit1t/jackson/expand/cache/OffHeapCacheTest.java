@@ -0,0 +1,96 @@
+package com.github.stupdit1t.jackson.expand.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 堆外缓存
+ */
+class OffHeapCacheTest {
+
+    private static final Duration TIMEOUT = Duration.ofMinutes(10);
+
+    /**
+     * 字符串编解码
+     */
+    private static final ExpandCodec CODEC = new ExpandCodec() {
+        @Override
+        public byte[] encode(Object value) {
+            return ((String) value).getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public Object decode(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    @Test
+    void wrapsAroundWithoutCorruptingValues() {
+        // 一个 1024 字节的分段, 长度不一的值反复写满, 写入位置多次绕回开头
+        OffHeapCache cache = new OffHeapCache(1024, 1, CODEC);
+        Map<String, String> written = new HashMap<>();
+        for (int i = 0; i < 500; i++) {
+            String key = "Expand:key:" + i;
+            String value = value(i, 20 + (i * 37) % 200);
+            cache.put(key, value, TIMEOUT);
+            written.put(key, value);
+        }
+        assertTrue(cache.evictionCount() > 0);
+        assertTrue(cache.size() < 500);
+        int hits = 0;
+        for (Map.Entry<String, String> entry : written.entrySet()) {
+            String value = cache.get(entry.getKey());
+            if (value != null) {
+                assertEquals(entry.getValue(), value, entry.getKey());
+                hits++;
+            }
+        }
+        assertEquals(cache.size(), hits);
+        // 最后写入的值一定还在
+        assertEquals(written.get("Expand:key:499"), cache.get("Expand:key:499"));
+        assertNull(cache.get("Expand:key:0"));
+    }
+
+    @Test
+    void readValuesSurviveWraparound() {
+        OffHeapCache cache = new OffHeapCache(1024, 1, CODEC);
+        cache.put("Expand:hot", "hot", TIMEOUT);
+        for (int i = 0; i < 200; i++) {
+            // 被覆盖前读取过的值重新追加到末尾
+            assertEquals("hot", cache.get("Expand:hot"));
+            cache.put("Expand:cold:" + i, value(i, 100), TIMEOUT);
+        }
+        assertEquals("hot", cache.get("Expand:hot"));
+        assertNull(cache.get("Expand:cold:0"));
+    }
+
+    @Test
+    void expandKeysRoundTrip() {
+        OffHeapCache cache = new OffHeapCache(4096, 1, CODEC);
+        ExpandKey key = new ExpandKey("Expand:userService:name", "", 1L);
+        cache.put(key, ExpandEntry.ok("name-1", 1000, 2000), TIMEOUT);
+        ExpandEntry entry = cache.get(key);
+        assertEquals("name-1", entry.getValue());
+        assertEquals(1000, entry.getRefreshAt());
+        assertEquals(2000, entry.getExpireAt());
+        cache.put(key, ExpandEntry.fail("1"), TIMEOUT);
+        assertEquals(ExpandEntry.fail("1").getStatus(), cache.get(key).getStatus());
+    }
+
+    private static String value(int i, int length) {
+        StringBuilder value = new StringBuilder(length).append(i).append('-');
+        while (value.length() < length) {
+            value.append((char) ('a' + value.length() % 26));
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,164 @@
+package com.github.stupdit1t.jackson.expand.serializer;
+
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.github.stupdit1t.jackson.expand.ExpandTestContext;
+import com.github.stupdit1t.jackson.expand.annotation.Expand;
+import com.github.stupdit1t.jackson.expand.cache.ExpandCache;
+import com.github.stupdit1t.jackson.expand.cache.ExpandEntry;
+import com.github.stupdit1t.jackson.expand.cache.ExpandKey;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 批量方法的结果处理
+ */
+class BatchLoadGroupTest {
+
+    static class MapVo {
+
+        @Expand(bean = "testService", method = "name", batchMethod = "names")
+        public Long userId;
+
+        MapVo(Long userId) {
+            this.userId = userId;
+        }
+    }
+
+    static class ListVo {
+
+        @Expand(bean = "testService", method = "name", batchMethod = "nameList")
+        public Long userId;
+
+        ListVo(Long userId) {
+            this.userId = userId;
+        }
+    }
+
+    static class FailingVo {
+
+        @Expand(bean = "testService", method = "name", batchMethod = "failingNames")
+        public Long userId;
+
+        FailingVo(Long userId) {
+            this.userId = userId;
+        }
+    }
+
+    private final ExpandTestContext.TestService service = ExpandTestContext.getBean(ExpandTestContext.TestService.class);
+
+    private final ExpandCache cache = ExpandTestContext.getBean(ExpandCache.class);
+
+    private final ObjectMapper objectMapper = ExpandTestContext.getBean(ObjectMapper.class);
+
+    @Test
+    void mapResult() throws Exception {
+        ExpandSerializer serializer = serializer(MapVo.class);
+        Map<ExpandKey, Object> results = load(serializer, 3101L, 3102L, 3101L);
+
+        assertEquals(2, results.size());
+        assertEquals("name-3101", results.get(serializer.getCacheKey(3101L)));
+        assertEquals("name-3102", results.get(serializer.getCacheKey(3102L)));
+        assertOk(serializer, 3101L, "name-3101");
+        assertOk(serializer, 3102L, "name-3102");
+    }
+
+    @Test
+    void listResult() throws Exception {
+        ExpandSerializer serializer = serializer(ListVo.class);
+        Map<ExpandKey, Object> results = load(serializer, 3201L, 3202L, 3203L);
+
+        assertEquals("name-3201", results.get(serializer.getCacheKey(3201L)));
+        assertEquals("name-3202", results.get(serializer.getCacheKey(3202L)));
+        assertEquals("name-3203", results.get(serializer.getCacheKey(3203L)));
+        assertOk(serializer, 3202L, "name-3202");
+    }
+
+    @Test
+    void missingIdsAreNotFound() throws Exception {
+        for (Class<?> type : new Class<?>[]{MapVo.class, ListVo.class}) {
+            ExpandSerializer serializer = serializer(type);
+            long missing = ExpandTestContext.TestService.MISSING + (type == MapVo.class ? 301 : 302);
+            int calls = service.calls.get();
+            Map<ExpandKey, Object> results = load(serializer, 3301L, missing);
+
+            assertEquals("name-3301", results.get(serializer.getCacheKey(3301L)));
+            // 未找到的输出原值并写入失败缓存, 不再逐个调用
+            assertEquals(missing, results.get(serializer.getCacheKey(missing)));
+            assertFail(serializer, missing);
+            assertEquals(calls, service.calls.get());
+        }
+    }
+
+    @Test
+    void batchFailureCachesEveryKey() throws Exception {
+        ExpandSerializer serializer = serializer(FailingVo.class);
+        int calls = service.calls.get();
+        int batchCalls = service.batchCalls.get();
+        Map<ExpandKey, Object> results = load(serializer, 3401L, 3402L);
+
+        assertEquals(batchCalls + 1, service.batchCalls.get());
+        assertEquals(3401L, results.get(serializer.getCacheKey(3401L)));
+        assertEquals(3402L, results.get(serializer.getCacheKey(3402L)));
+        assertFail(serializer, 3401L);
+        assertFail(serializer, 3402L);
+
+        // 序列化时命中失败缓存, 不逐个调用也不重复批量调用
+        assertEquals("{\"userId\":3401}", objectMapper.writeValueAsString(new FailingVo(3401L)));
+        assertEquals(calls, service.calls.get());
+        assertEquals(batchCalls + 1, service.batchCalls.get());
+    }
+
+    /**
+     * 一个分组批量加载
+     *
+     * @param serializer 字段的序列化器
+     * @param ids        字段值
+     * @return 回调的结果
+     */
+    private static Map<ExpandKey, Object> load(ExpandSerializer serializer, Long... ids) {
+        BatchLoadGroup group = new BatchLoadGroup(serializer);
+        for (Long id : ids) {
+            group.add(serializer.getCacheKey(id), id, String.class);
+        }
+        Map<ExpandKey, Object> results = new LinkedHashMap<>();
+        group.load(results::put);
+        return results;
+    }
+
+    private void assertOk(ExpandSerializer serializer, Long id, Object value) {
+        ExpandEntry entry = cache.get(serializer.getCacheKey(id));
+        assertTrue(entry.isOk());
+        assertEquals(value, entry.getValue());
+    }
+
+    private void assertFail(ExpandSerializer serializer, Long id) {
+        ExpandEntry entry = cache.get(serializer.getCacheKey(id));
+        assertFalse(entry.isOk());
+        assertEquals(id, entry.getValue());
+    }
+
+    /**
+     * 获取字段的序列化器
+     */
+    private ExpandSerializer serializer(Class<?> type) throws Exception {
+        JsonSerializer<Object> serializer = objectMapper.getSerializerProviderInstance().findValueSerializer(type);
+        Iterator<PropertyWriter> writers = serializer.properties();
+        while (writers.hasNext()) {
+            PropertyWriter writer = writers.next();
+            if (writer instanceof BeanPropertyWriter && ((BeanPropertyWriter) writer).getSerializer() instanceof ExpandSerializer) {
+                return (ExpandSerializer) ((BeanPropertyWriter) writer).getSerializer();
+            }
+        }
+        throw new IllegalStateException(type.getSimpleName() + ".userId 没有 ExpandSerializer");
+    }
+}
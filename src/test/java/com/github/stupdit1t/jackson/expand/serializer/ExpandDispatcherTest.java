@@ -0,0 +1,141 @@
+package com.github.stupdit1t.jackson.expand.serializer;
+
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.github.stupdit1t.jackson.expand.ExpandTestContext;
+import com.github.stupdit1t.jackson.expand.annotation.Expand;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 跨请求合并批量调用
+ */
+class ExpandDispatcherTest {
+
+    static class Vo {
+
+        @Expand(bean = "testService", method = "name", batchMethod = "names")
+        public Long userId;
+    }
+
+    private final ExpandTestContext.TestService service = ExpandTestContext.getBean(ExpandTestContext.TestService.class);
+
+    private ExecutorService executor;
+
+    private ExpandDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+        executor.shutdownNow();
+    }
+
+    @Test
+    void flushesWhenWindowEnds() throws Exception {
+        dispatcher = new ExpandDispatcher(executor, Duration.ofMillis(200), 100, null);
+        ExpandSerializer serializer = serializer();
+        int batchCalls = service.batchCalls.get();
+        long start = System.nanoTime();
+        List<CompletableFuture<Object>> futures = new ArrayList<>();
+        for (long id = 2101; id <= 2105; id++) {
+            futures.add(dispatcher.loadAsync(serializer, id, String.class, serializer.getCacheKey(id)));
+        }
+        assertFalse(futures.get(0).isDone());
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals("name-" + (2101 + i), futures.get(i).get(5, TimeUnit.SECONDS));
+        }
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(batchCalls + 1, service.batchCalls.get());
+    }
+
+    @Test
+    void flushesAtMaxBatchSize() throws Exception {
+        dispatcher = new ExpandDispatcher(executor, Duration.ofSeconds(30), 3, null);
+        ExpandSerializer serializer = serializer();
+        int batchCalls = service.batchCalls.get();
+        List<CompletableFuture<Object>> futures = new ArrayList<>();
+        for (long id = 2201; id <= 2203; id++) {
+            futures.add(dispatcher.loadAsync(serializer, id, String.class, serializer.getCacheKey(id)));
+        }
+        // 第3个值加入时在当前线程直接调用, 不等待窗口
+        for (int i = 0; i < futures.size(); i++) {
+            assertTrue(futures.get(i).isDone());
+            assertEquals("name-" + (2201 + i), futures.get(i).get());
+        }
+        assertEquals(batchCalls + 1, service.batchCalls.get());
+
+        // 相同的值只占一个位置
+        CompletableFuture<Object> next = dispatcher.loadAsync(serializer, 2204L, String.class, serializer.getCacheKey(2204L));
+        CompletableFuture<Object> same = dispatcher.loadAsync(serializer, 2204L, String.class, serializer.getCacheKey(2204L));
+        assertFalse(next.isDone());
+        assertSame(next, same);
+        assertEquals(batchCalls + 1, service.batchCalls.get());
+    }
+
+    @Test
+    void loadWaitsAtMostWindowPlusLoadTimeout() throws Exception {
+        // 线程池被占满, 窗口结束后的批量调用一直不执行
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        dispatcher = new ExpandDispatcher(executor, Duration.ofMillis(50), 100, Duration.ofMillis(100));
+        ExpandSerializer serializer = serializer();
+        try {
+            long start = System.nanoTime();
+            assertNull(dispatcher.load(serializer, 2301L, String.class, serializer.getCacheKey(2301L)));
+            long waited = System.nanoTime() - start;
+            assertTrue(waited >= TimeUnit.MILLISECONDS.toNanos(150));
+            assertTrue(waited < TimeUnit.SECONDS.toNanos(5));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    /**
+     * 获取字段的序列化器
+     */
+    private static ExpandSerializer serializer() throws Exception {
+        ObjectMapper objectMapper = ExpandTestContext.getBean(ObjectMapper.class);
+        JsonSerializer<Object> serializer = objectMapper.getSerializerProviderInstance().findValueSerializer(Vo.class);
+        Iterator<PropertyWriter> writers = serializer.properties();
+        while (writers.hasNext()) {
+            PropertyWriter writer = writers.next();
+            if (writer instanceof BeanPropertyWriter && ((BeanPropertyWriter) writer).getSerializer() instanceof ExpandSerializer) {
+                return (ExpandSerializer) ((BeanPropertyWriter) writer).getSerializer();
+            }
+        }
+        throw new IllegalStateException("Vo.userId 没有 ExpandSerializer");
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.stupdit1t.jackson.expand.serializer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 动态展开选择器的匹配规则
+ */
+class ExpandSelectorTest {
+
+    @ParameterizedTest(name = "{0} -> {1} = {2}")
+    @CsvSource({
+            // 精确匹配
+            "userId, userId, true",
+            "userId, deptId, false",
+            "user.deptId, user.deptId, true",
+            "user.deptId, user, false",
+            "user.deptId, user.deptId.name, false",
+            "user.deptId, deptId, false",
+            // 多个表达式用逗号分隔
+            "'userId,user.deptId', user.deptId, true",
+            "'userId, user.deptId', userId, true",
+            // * 匹配一级
+            "*.userId, item.userId, true",
+            "*.userId, userId, false",
+            "*.userId, a.item.userId, false",
+            "items.*.userId, items.first.userId, true",
+            "items.*.userId, items.userId, false",
+            "items.*, items.userId, true",
+            "items.*, items.first.userId, false",
+            // ** 匹配任意多级, 包括0级
+            "**.deptId, deptId, true",
+            "**.deptId, user.deptId, true",
+            "**.deptId, a.b.c.deptId, true",
+            "**.deptId, a.b.c.deptId.name, false",
+            "**.deptId, a.b.c.userId, false",
+            "user.**, user, true",
+            "user.**, user.a.b, true",
+            "user.**, dept.a, false",
+            "a.**.id, a.id, true",
+            "a.**.id, a.b.c.id, true",
+            "a.**.id, b.c.id, false",
+            // 通配组合
+            "**.*.id, id, false",
+            "**.*.id, a.id, true",
+            "**.*.id, a.b.c.id, true",
+            "*.**.id, a.id, true",
+            "*.**.id, id, false",
+            // 嵌套数组的下标不是path的一级, 数组元素的字段直接接在数组字段后面
+            "orders.items.skuId, orders.items.skuId, true",
+            "orders.*.skuId, orders.items.skuId, true",
+            "orders.**, orders.items.skuId, true",
+    })
+    void matches(String expression, String path, boolean expected) {
+        ExpandSelector selector = ExpandSelector.compile(Collections.singletonList(expression), null);
+        assertEquals(expected, selector.matches(path));
+    }
+
+    @ParameterizedTest(name = "{0} -> {1} = {2}")
+    @CsvSource({
+            "userId, userId, true",
+            "userId, data.userId, true",
+            "userId, data.page.userId, false",
+            "data.userId, data.userId, true",
+            "data.userId, data.data.userId, true",
+            "**.userId, data.list.userId, true",
+    })
+    void matchesWithCommonPrefix(String expression, String path, boolean expected) {
+        ExpandSelector selector = ExpandSelector.compile(Collections.singletonList(expression), "data");
+        assertEquals(expected, selector.matches(path));
+    }
+
+    @Test
+    void multipleParameterValues() {
+        ExpandSelector selector = ExpandSelector.compile(Arrays.asList("userId", null, "", "dept.*"), null);
+        assertTrue(selector.matches("userId"));
+        assertTrue(selector.matches("dept.id"));
+        assertFalse(selector.matches("dept"));
+        assertFalse(selector.matches(""));
+    }
+
+    @Test
+    void deadStateSkipsSubtree() {
+        ExpandSelector selector = ExpandSelector.compile(Collections.singletonList("user.deptId"), null);
+        ExpandSelector.State start = selector.start();
+        assertFalse(start.isDead());
+        assertTrue(start.next("dept").isDead());
+        assertTrue(start.next("dept").next("deptId").isDead());
+        ExpandSelector.State user = start.next("user");
+        assertFalse(user.isDead());
+        assertFalse(user.matches());
+        assertTrue(user.next("deptId").matches());
+        // 精确表达式结尾之后不会再匹配
+        assertTrue(user.next("deptId").isDead());
+        // ** 的子树永远不会死
+        assertFalse(ExpandSelector.compile(Collections.singletonList("**.id"), null).start().next("a").next("b").isDead());
+    }
+
+    @Test
+    void transitionsAreCached() {
+        ExpandSelector.State start = ExpandSelector.compile(Collections.singletonList("*.id"), null).start();
+        assertSame(start.next("user"), start.next("user"));
+    }
+
+    @Test
+    void noneMatchesNothing() {
+        assertFalse(ExpandSelector.NONE.matches("userId"));
+        assertTrue(ExpandSelector.NONE.start().isDead());
+        assertTrue(ExpandSelector.compile(Collections.emptyList(), null).start().isDead());
+    }
+}
@@ -0,0 +1,46 @@
+package com.github.stupdit1t.jackson.expand.serializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.stupdit1t.jackson.expand.ExpandTestContext;
+import com.github.stupdit1t.jackson.expand.annotation.Expand;
+import com.github.stupdit1t.jackson.expand.cache.LocalCache;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 成功结果的缓存保存时间
+ */
+class ExpandSerializerCacheTimeTest {
+
+    static class Vo {
+
+        @Expand(bean = "testService", method = "name", cacheTime = 300, staleIfError = 600)
+        public Long userId;
+
+        Vo(Long userId) {
+            this.userId = userId;
+        }
+    }
+
+    @Test
+    void plainCacheExpiresAtCacheTime() throws Exception {
+        ExpandTestContext.RecordingCache cache = ExpandTestContext.getBean(ExpandTestContext.RecordingCache.class);
+        ObjectMapper objectMapper = ExpandTestContext.getBean(ObjectMapper.class);
+
+        assertEquals("{\"userId\":\"name-1501\"}", objectMapper.writeValueAsString(new Vo(1501L)));
+
+        // 只保存值的缓存读不到过期时间, 保存时间不能加上 staleIfError, 否则缓存时间之后仍会读到旧值
+        assertFalse(cache.storesEntryTime());
+        assertEquals(Duration.ofSeconds(300), cache.timeout("Expand:testService:name:" + ExpandSerializer.OK + ":1501"));
+    }
+
+    @Test
+    void localCacheStoresEntryTime() {
+        assertTrue(new LocalCache().storesEntryTime());
+    }
+}
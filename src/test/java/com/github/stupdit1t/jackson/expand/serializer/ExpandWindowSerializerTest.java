@@ -0,0 +1,131 @@
+package com.github.stupdit1t.jackson.expand.serializer;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.stupdit1t.jackson.expand.ExpandTestContext;
+import com.github.stupdit1t.jackson.expand.annotation.Expand;
+import com.github.stupdit1t.jackson.expand.cache.ExpandCache;
+import com.github.stupdit1t.jackson.expand.config.JacksonExpandProperties;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 大集合按窗口展开, 输出与不分窗口时逐字节相同
+ */
+class ExpandWindowSerializerTest {
+
+    private static final int WINDOW_SIZE = 3;
+
+    @JsonPropertyOrder({"rows", "tags"})
+    static class Page {
+
+        public List<Row> rows = new ArrayList<>();
+
+        public Set<Row> tags = new LinkedHashSet<>();
+    }
+
+    @JsonPropertyOrder({"userId", "deptId", "child", "children"})
+    static class Row {
+
+        @Expand(bean = "testService", method = "name", batchMethod = "names")
+        public Long userId;
+
+        @Expand(bean = "testService", method = "name")
+        public Long deptId;
+
+        public Child child;
+
+        public List<Child> children;
+
+        Row(long id) {
+            this.userId = id;
+            this.deptId = id + 100;
+            this.child = new Child(id + 200);
+            this.children = Arrays.asList(new Child(id + 300), new Child(id + 400));
+        }
+    }
+
+    static class Child {
+
+        @Expand(bean = "testService", method = "name", batchMethod = "names")
+        public Long ownerId;
+
+        Child(Long ownerId) {
+            this.ownerId = ownerId;
+        }
+    }
+
+    /**
+     * @param dynamic 是否开启动态展开, 开启时只选中部分字段
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void windowedOutputMatches(boolean dynamic) throws Exception {
+        ExpandTestContext.get();
+        JacksonExpandProperties properties = ExpandTestContext.getBean(JacksonExpandProperties.class);
+        boolean dynamicExpand = properties.isDynamicExpand();
+        int streamWindowSize = properties.getStreamWindowSize();
+        properties.setDynamicExpand(dynamic);
+        properties.setStreamWindowSize(WINDOW_SIZE);
+        try {
+            Page page = new Page();
+            // 10个元素分4个窗口, 包含跨窗口重复的值
+            for (long i = 0; i < 10; i++) {
+                page.rows.add(new Row(5000 + i % 7));
+                page.tags.add(new Row(5100 + i));
+            }
+            ExpandSelector selector = ExpandSelector.compile(Collections.singletonList("rows.userId,rows.children.ownerId,tags.child.ownerId"), null);
+
+            ExpandTestContext.TestService service = ExpandTestContext.getBean(ExpandTestContext.TestService.class);
+            ExpandCache cache = ExpandTestContext.getBean(ExpandCache.class);
+
+            cache.clear();
+            int batchCalls = service.batchCalls.get();
+            byte[] windowed = writer(true, dynamic, selector).writeValueAsBytes(page);
+            // 每个窗口批量展开一次
+            assertTrue(service.batchCalls.get() - batchCalls >= 4);
+            cache.clear();
+            byte[] plain = writer(false, dynamic, selector).writeValueAsBytes(page);
+
+            assertArrayEquals(plain, windowed, () -> new String(plain) + "\n" + new String(windowed));
+            String json = new String(windowed);
+            assertTrue(json.contains("\"userId\":\"name-5000\""));
+            assertTrue(json.contains("\"ownerId\":\"name-5300\""));
+            // 没有选中的字段不展开
+            assertEquals(dynamic, json.contains("\"deptId\":5100"));
+            assertEquals(dynamic, json.contains("\"ownerId\":5200"));
+            assertEquals(dynamic, json.contains("\"ownerId\":5500"));
+        } finally {
+            properties.setDynamicExpand(dynamicExpand);
+            properties.setStreamWindowSize(streamWindowSize);
+        }
+    }
+
+    /**
+     * 每次新建 ObjectMapper, 序列化器按当前配置创建
+     *
+     * @param window   是否按窗口展开
+     * @param dynamic  是否开启动态展开
+     * @param selector 动态展开的选择器
+     * @return
+     */
+    private static ObjectWriter writer(boolean window, boolean dynamic, ExpandSelector selector) {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new ExpandPathModule(dynamic));
+        if (window) {
+            objectMapper.registerModule(new ExpandWindowModule(WINDOW_SIZE));
+        }
+        return new ExpandContext(dynamic ? selector : null).bindTo(objectMapper.writer());
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.stupdit1t.jackson.expand.serializer;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.github.stupdit1t.jackson.expand.config.JacksonExpandProperties;
+import com.github.stupdit1t.jackson.expand.domain.SerializerParam;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 序列化时字段path的计算, 嵌套对象、数组、Map
+ */
+class FieldPathTest {
+
+    private static final ExpandPlan PLAN = ExpandPlan.of("skuId", Item.class, new SerializerParam(), new JacksonExpandProperties());
+
+    /**
+     * 序列化时记录的 path=是否匹配
+     */
+    private static final List<String> PATHS = new ArrayList<>();
+
+    @JsonPropertyOrder({"id", "items", "byName", "main", "extra"})
+    static class Order {
+
+        public Long id = 1L;
+
+        public List<List<Item>> items;
+
+        public Map<String, Item> byName;
+
+        public Item main;
+
+        @JsonUnwrapped
+        public Item extra;
+    }
+
+    @JsonPropertyOrder({"skuId", "child"})
+    static class Item {
+
+        @JsonSerialize(using = PathRecorder.class)
+        public Long skuId;
+
+        public Item child;
+
+        Item(Long skuId, Item child) {
+            this.skuId = skuId;
+            this.child = child;
+        }
+    }
+
+    /**
+     * 记录字段path的序列化器
+     */
+    static class PathRecorder extends JsonSerializer<Long> {
+
+        @Override
+        public void serialize(Long value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            FieldPath.Node node = FieldPath.current(provider, PLAN).resolve(gen.getOutputContext());
+            PATHS.add(node + "=" + node.matches());
+            gen.writeNumber(value);
+        }
+    }
+
+    /**
+     * @param pathModule 是否注册 ExpandPathModule, 注册后从所在对象的节点往下找, 否则从根逐级查找, 结果应该相同
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void resolvesNestedPaths(boolean pathModule) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new ExpandPathModule(pathModule));
+        Order order = new Order();
+        order.items = Arrays.asList(
+                Arrays.asList(new Item(1L, null), new Item(2L, new Item(3L, null))),
+                Collections.singletonList(new Item(4L, null))
+        );
+        order.byName = new LinkedHashMap<>();
+        order.byName.put("first", new Item(5L, null));
+        order.main = new Item(6L, new Item(7L, new Item(8L, null)));
+        order.extra = new Item(9L, new Item(10L, null));
+        ExpandSelector selector = ExpandSelector.compile(Collections.singletonList("items.skuId,byName.*.skuId,main.**.child.skuId,child.skuId"), null);
+
+        PATHS.clear();
+        new ExpandContext(selector).bindTo(objectMapper.writer()).writeValueAsString(order);
+
+        assertEquals(Arrays.asList(
+                // 数组下标不是path的一级, 嵌套数组的元素直接接在数组字段后面
+                "items.skuId=true",
+                "items.skuId=true",
+                "items.child.skuId=false",
+                "items.skuId=true",
+                // Map的key作为一级
+                "byName.first.skuId=true",
+                "main.skuId=false",
+                "main.child.skuId=true",
+                "main.child.child.skuId=true",
+                // 展开到上级对象的字段和上级对象同一级
+                "skuId=false",
+                "child.skuId=true"
+        ), PATHS);
+    }
+}
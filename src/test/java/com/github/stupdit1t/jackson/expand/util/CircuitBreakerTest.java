@@ -0,0 +1,105 @@
+package com.github.stupdit1t.jackson.expand.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 熔断器的状态转换, 用手动推进的时钟
+ */
+class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong(1000);
+
+    private final CircuitBreaker breaker = new CircuitBreaker("test", 3, Duration.ofSeconds(10), clock::get);
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        fail(2);
+        // 成功清零失败次数
+        breaker.onSuccess(breaker.tryAcquire());
+        fail(2);
+        assertFalse(breaker.isOpen());
+        fail(1);
+        assertTrue(breaker.isOpen());
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+    }
+
+    @Test
+    void halfOpenProbeClosesOnSuccess() {
+        fail(3);
+        clock.addAndGet(Duration.ofSeconds(10).toNanos() - 1);
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+
+        clock.incrementAndGet();
+        long probe = breaker.tryAcquire();
+        assertNotEquals(CircuitBreaker.REJECTED, probe);
+        // 半开只放行一个探测调用
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+        assertTrue(breaker.isOpen());
+
+        breaker.onSuccess(probe);
+        assertFalse(breaker.isOpen());
+        assertNotEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+        // 关闭后重新计算连续失败
+        fail(2);
+        assertFalse(breaker.isOpen());
+    }
+
+    @Test
+    void halfOpenProbeReopensOnError() {
+        fail(3);
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        long probe = breaker.tryAcquire();
+        breaker.onError(probe);
+        assertTrue(breaker.isOpen());
+        // 重新打开后从探测失败时开始计时
+        clock.addAndGet(Duration.ofSeconds(10).toNanos() - 1);
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+        clock.incrementAndGet();
+        assertNotEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+    }
+
+    @Test
+    void staleResultsAreIgnored() {
+        // 打开前申请的许可
+        long stale = breaker.tryAcquire();
+        fail(3);
+        assertTrue(breaker.isOpen());
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        long probe = breaker.tryAcquire();
+
+        // 旧调用的成功不能关闭, 失败也不能重新打开半开中的熔断
+        breaker.onSuccess(stale);
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+        breaker.onError(stale);
+        breaker.onSuccess(probe);
+        assertFalse(breaker.isOpen());
+
+        // 关闭后探测许可之前的调用失败不计入连续失败
+        long closed = breaker.tryAcquire();
+        fail(2);
+        breaker.onError(stale);
+        breaker.onError(stale);
+        assertFalse(breaker.isOpen());
+        breaker.onError(closed);
+        assertTrue(breaker.isOpen());
+    }
+
+    /**
+     * 连续失败
+     *
+     * @param times 次数
+     */
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            breaker.onError(breaker.tryAcquire());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.stupdit1t.jackson.expand.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 日志限流和忽略次数, 用手动推进的时钟
+ */
+class LogLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong(1000);
+
+    @Test
+    void suppressesWithinInterval() {
+        LogLimiter limiter = new LogLimiter(Duration.ofSeconds(1), clock::get);
+        assertEquals(0, limiter.tryAcquire("a"));
+        for (int i = 0; i < 5; i++) {
+            assertEquals(-1, limiter.tryAcquire("a"));
+        }
+        // KEY之间互不影响
+        assertEquals(0, limiter.tryAcquire("b"));
+
+        clock.addAndGet(Duration.ofSeconds(1).toNanos() - 1);
+        assertEquals(-1, limiter.tryAcquire("a"));
+        clock.incrementAndGet();
+        // 下一次输出带出期间忽略的次数, 之后重新计数
+        assertEquals(6, limiter.tryAcquire("a"));
+        assertEquals(-1, limiter.tryAcquire("a"));
+
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertEquals(1, limiter.tryAcquire("a"));
+        assertEquals(0, limiter.tryAcquire("b"));
+    }
+
+    @Test
+    void unlimitedWithoutInterval() {
+        for (Duration interval : new Duration[]{null, Duration.ZERO}) {
+            LogLimiter limiter = new LogLimiter(interval, clock::get);
+            for (int i = 0; i < 3; i++) {
+                assertEquals(0, limiter.tryAcquire("a"));
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.github.stupdit1t.jackson.expand.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 相同KEY的并发加载合并
+ */
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<String> first = new AtomicReference<>();
+        Thread loader = new Thread(() -> first.set(singleFlight.execute("key", () -> {
+            loads.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "value";
+        })));
+        loader.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        AtomicReference<String> second = new AtomicReference<>();
+        AtomicInteger waited = new AtomicInteger();
+        Thread waiter = new Thread(() -> second.set(singleFlight.execute("key", () -> {
+            loads.incrementAndGet();
+            return "other";
+        }, (nanos) -> waited.incrementAndGet())));
+        waiter.start();
+        awaitWaiting(waiter);
+        release.countDown();
+        loader.join(5000);
+        waiter.join(5000);
+
+        assertEquals(1, loads.get());
+        assertEquals("value", first.get());
+        assertEquals("value", second.get());
+        assertEquals(1, waited.get());
+        // 加载完成后不保留结果
+        assertEquals(0, singleFlight.size());
+        assertEquals("next", singleFlight.execute("key", () -> "next"));
+    }
+
+    @Test
+    void waitersReceiveLoaderError() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException error = new IllegalStateException("load failed");
+        AtomicReference<Throwable> loaderError = new AtomicReference<>();
+        Thread loader = new Thread(() -> {
+            try {
+                singleFlight.execute("key", () -> {
+                    started.countDown();
+                    await(release);
+                    throw error;
+                });
+            } catch (Throwable e) {
+                loaderError.set(e);
+            }
+        });
+        loader.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        AtomicReference<Throwable> waiterError = new AtomicReference<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                singleFlight.execute("key", () -> "other");
+            } catch (Throwable e) {
+                waiterError.set(e);
+            }
+        });
+        waiter.start();
+        awaitWaiting(waiter);
+        release.countDown();
+        loader.join(5000);
+        waiter.join(5000);
+
+        assertSame(error, loaderError.get());
+        assertSame(error, waiterError.get());
+        // 失败后下一次调用重新加载
+        assertEquals(0, singleFlight.size());
+        assertEquals("retry", singleFlight.execute("key", () -> "retry"));
+    }
+
+    @Test
+    void asyncCallersShareOneLoad() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<String> loading = new CompletableFuture<>();
+        CompletableFuture<String> first = singleFlight.executeAsync("key", () -> {
+            loads.incrementAndGet();
+            return loading;
+        });
+        CompletableFuture<String> second = singleFlight.executeAsync("key", () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        assertSame(first, second);
+        assertEquals(1, singleFlight.size());
+
+        loading.complete("value");
+        assertEquals("value", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+        assertEquals(0, singleFlight.size());
+    }
+
+    @Test
+    void asyncErrorsCompleteExceptionally() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        IllegalStateException error = new IllegalStateException("load failed");
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        failed.completeExceptionally(error);
+
+        ExecutionException async = assertThrows(ExecutionException.class, () -> singleFlight.executeAsync("key", () -> failed).get(5, TimeUnit.SECONDS));
+        assertSame(error, async.getCause());
+        assertEquals(0, singleFlight.size());
+
+        // 加载方法直接抛出异常
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> singleFlight.executeAsync("key", () -> {
+            throw error;
+        }).get(5, TimeUnit.SECONDS));
+        assertSame(error, thrown.getCause());
+        assertEquals(0, singleFlight.size());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 等待线程阻塞在其他调用方的加载上
+     */
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(Thread.State.WAITING, thread.getState());
+    }
+}